@@ -0,0 +1,228 @@
+package benchmark;
+
+import application.World;
+import data.DataStorage;
+
+import java.util.*;
+
+/**
+ * Generated boards the benchmarks run on, the same for every run with the same seed
+ * Words are laid out as rules (BABA IS PUSH, KEKE NEAR ROCK IS WIN...) so the rule
+ *  engine has real work, with objects scattered over the tiles left
+ */
+public final class Boards {
+
+    // Tile size of the boards, matches GamePanel
+    public static final int TILE_SIZE = 48;
+
+    // Chance of an object on a tile without a word
+    private static final double OBJECT_DENSITY = 0.3;
+
+    // Share of rules with a condition (NOUN ON NOUN IS PROPERTY)
+    private static final double CONDITIONAL_RULES = 0.25;
+
+    private static final String[] NOUNS = { "BABA", "KEKE", "ROCK", "BOX", "FLAG", "SKULL" };
+    private static final String[] PROPERTIES = {
+            "YOU", "PUSH", "STOP", "WIN", "DEFEAT", "SINK", "FLOAT", "HOT", "MELT", "OPEN", "SHUT", "WEAK" };
+    private static final String[] PREPOSITIONS = { "ON", "NEAR", "NEXT", "FACING", "SEEING" };
+
+    private Boards() {}
+
+    /**
+     * LEVEL
+     * Fills each row from the left, starting a rule on a tile with a chance
+     *  that makes about the given share of tiles words
+     * Rules only give properties, applying them never changes the board
+     * @param cols Number of columns
+     * @param rows Number of rows
+     * @param wordDensity Share of tiles holding a word, 0 to 1
+     * @param seed Seed of the layout
+     * @return Level data of the board
+     */
+    public static DataStorage level(int cols, int rows, double wordDensity, long seed) {
+        Random random = new Random(seed);
+
+        List<String> names = new ArrayList<>();
+        List<int[]> points = new ArrayList<>();
+
+        // A rule covers 3.5 tiles on average
+        double ruleChance = wordDensity / (3.5 - 2.5 * wordDensity);
+
+        for (int row = 0; row < rows; row++) {
+            int col = 0;
+
+            while (col < cols) {
+                List<String> rule = random.nextDouble() < ruleChance ? rule(random) : List.of();
+
+                // Rule fits on the row
+                if (!rule.isEmpty() && col + rule.size() <= cols) {
+                    for (String word : rule) {
+                        names.add(word);
+                        points.add(new int[] { col * TILE_SIZE, row * TILE_SIZE });
+                        col++;
+                    }
+                    continue;
+                }
+
+                if (random.nextDouble() < OBJECT_DENSITY) {
+                    names.add(NOUNS[random.nextInt(NOUNS.length)]);
+                    points.add(new int[] { col * TILE_SIZE, row * TILE_SIZE });
+                }
+                col++;
+            }
+        }
+
+        return toData(names, points);
+    }
+
+    /**
+     * CONDITIONAL
+     * One rule, BABA [preposition] ROCK IS WIN, on the top row and objects
+     *  scattered over every other tile, so each BABA has hundreds of ROCKs to check
+     * @param cols Number of columns, at least 5
+     * @param rows Number of rows
+     * @param preposition ON, NEAR, NEXT, FACING or SEEING
+     * @param seed Seed of the layout
+     * @return Level data of the board
+     */
+    public static DataStorage conditional(int cols, int rows, String preposition, long seed) {
+        Random random = new Random(seed);
+
+        List<String> names = new ArrayList<>(List.of("WORD_BABA", "WORD_" + preposition, "WORD_ROCK", "WORD_IS", "WORD_WIN"));
+        List<int[]> points = new ArrayList<>();
+        for (int col = 0; col < names.size(); col++) {
+            points.add(new int[] { col * TILE_SIZE, 0 });
+        }
+
+        for (int row = 1; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (random.nextDouble() < OBJECT_DENSITY) {
+                    names.add(NOUNS[random.nextInt(NOUNS.length)]);
+                    points.add(new int[] { col * TILE_SIZE, row * TILE_SIZE });
+                }
+            }
+        }
+
+        return toData(names, points);
+    }
+
+    /**
+     * LAP
+     * BABA IS YOU and BOX IS PUSH over BABA standing left of a BOX, objects below
+     *  row 8 that every rule pass checks but that are never in the way
+     * @param cols Number of columns, at least 10
+     * @param rows Number of rows
+     * @param seed Seed of the objects
+     * @return Level data of the board
+     */
+    public static DataStorage lap(int cols, int rows, long seed) {
+        List<String> names = new ArrayList<>();
+        List<int[]> points = new ArrayList<>();
+
+        String[][] rules = {
+                { "WORD_BABA", "WORD_IS", "WORD_YOU" },
+                { "WORD_BOX", "WORD_IS", "WORD_PUSH" },
+                { "WORD_KEKE", "WORD_NEAR", "WORD_BABA", "WORD_IS", "WORD_WIN" } };
+        for (int row = 0; row < rules.length; row++) {
+            for (int col = 0; col < rules[row].length; col++) {
+                names.add(rules[row][col]);
+                points.add(new int[] { col * TILE_SIZE, row * TILE_SIZE });
+            }
+        }
+
+        names.add("BABA");
+        points.add(new int[] { 5 * TILE_SIZE, 5 * TILE_SIZE });
+        names.add("BOX");
+        points.add(new int[] { 6 * TILE_SIZE, 5 * TILE_SIZE });
+
+        Random random = new Random(seed);
+        String[] objects = { "ROCK", "KEKE", "FLAG", "SKULL" };
+        for (int row = 8; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (random.nextDouble() < OBJECT_DENSITY) {
+                    names.add(objects[random.nextInt(objects.length)]);
+                    points.add(new int[] { col * TILE_SIZE, row * TILE_SIZE });
+                }
+            }
+        }
+
+        return toData(names, points);
+    }
+
+    /**
+     * WORLD
+     * Builds a level the way GamePanel does before it is played
+     * @param ds Level data
+     * @param cols Number of columns
+     * @param rows Number of rows
+     * @return World with rules applied and an empty undo history
+     */
+    public static World world(DataStorage ds, int cols, int rows) {
+        World world = new World(TILE_SIZE, cols, rows);
+
+        world.loadLevel(ds);
+        world.setupLevel();
+
+        return world;
+    }
+
+    /**
+     * COLS / ROWS
+     * @param size Board size written as COLSxROWS, 33x18 being one screen
+     * @return Number of columns or rows
+     */
+    public static int cols(String size) {
+        return Integer.parseInt(size.substring(0, size.indexOf('x')));
+    }
+    public static int rows(String size) {
+        return Integer.parseInt(size.substring(size.indexOf('x') + 1));
+    }
+
+    private static List<String> rule(Random random) {
+        List<String> words = new ArrayList<>();
+
+        words.add("WORD_" + NOUNS[random.nextInt(NOUNS.length)]);
+        if (random.nextDouble() < CONDITIONAL_RULES) {
+            words.add("WORD_" + PREPOSITIONS[random.nextInt(PREPOSITIONS.length)]);
+            words.add("WORD_" + NOUNS[random.nextInt(NOUNS.length)]);
+        }
+        words.add("WORD_IS");
+        words.add("WORD_" + PROPERTIES[random.nextInt(PROPERTIES.length)]);
+
+        return words;
+    }
+
+    /**
+     * TO DATA
+     * @param names Entity names
+     * @param points Entity positions in world units
+     * @return Level data holding the entities, with no iTile variants
+     */
+    static DataStorage toData(List<String> names, List<int[]> points) {
+        int size = names.size();
+
+        DataStorage ds = new DataStorage();
+        ds.level_name = "Benchmark";
+        ds.names = names.toArray(new String[0]);
+        ds.worldX = new int[size];
+        ds.worldY = new int[size];
+        ds.belt_ori = new int[size];
+        ds.wall_ori = new int[size];
+        ds.wall_side = new int[size];
+        ds.water_ori = new int[size];
+        ds.water_side = new int[size];
+
+        Arrays.fill(ds.belt_ori, -1);
+        Arrays.fill(ds.wall_ori, -1);
+        Arrays.fill(ds.wall_side, -1);
+        Arrays.fill(ds.water_ori, -1);
+        Arrays.fill(ds.water_side, -1);
+
+        for (int i = 0; i < size; i++) {
+            ds.worldX[i] = points.get(i)[0];
+            ds.worldY[i] = points.get(i)[1];
+        }
+
+        return ds;
+    }
+}
@@ -0,0 +1,160 @@
+package benchmark;
+
+import application.World;
+import entity.Entity;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Movement checks run for every YOU entity each turn and touch checks run for every landing
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+    /**
+     * BABA followed by a row of pushable boxes with room for one more step
+     */
+    @State(Scope.Thread)
+    public static class PushChain {
+
+        @Param({ "1", "8", "32" })
+        public int length;
+
+        private Entity baba;
+        private final List<Entity> moveSet = new ArrayList<>();
+
+        @Setup
+        public void setup() {
+            List<String> names = new ArrayList<>();
+            List<int[]> points = new ArrayList<>();
+
+            int cols = Math.max(length + 2, 6);
+
+            for (String word : new String[] { "WORD_BABA", "WORD_IS", "WORD_YOU" }) {
+                names.add(word);
+                points.add(new int[] { names.size() * Boards.TILE_SIZE, 0 });
+            }
+            for (String word : new String[] { "WORD_BOX", "WORD_IS", "WORD_PUSH" }) {
+                names.add(word);
+                points.add(new int[] { (names.size() - 3) * Boards.TILE_SIZE, Boards.TILE_SIZE });
+            }
+
+            names.add("BABA");
+            points.add(new int[] { 0, 3 * Boards.TILE_SIZE });
+            for (int i = 1; i <= length; i++) {
+                names.add("BOX");
+                points.add(new int[] { i * Boards.TILE_SIZE, 3 * Boards.TILE_SIZE });
+            }
+
+            World world = Boards.world(Boards.toData(names, points), cols, 4);
+            baba = world.entities.stream().filter(e -> e.getName().equals("BABA")).findFirst().orElseThrow();
+        }
+    }
+
+    /**
+     * Generated board, every entity checked for what shares its tile
+     */
+    @State(Scope.Thread)
+    public static class Board {
+
+        @Param({ "33x18", "132x72" })
+        public String size;
+
+        @Param({ "0.05", "0.2" })
+        public double wordDensity;
+
+        private World world;
+
+        @Setup
+        public void setup() {
+            int cols = Boards.cols(size), rows = Boards.rows(size);
+            world = Boards.world(Boards.level(cols, rows, wordDensity, 1), cols, rows);
+        }
+    }
+
+    /**
+     * Square board holding the given number of objects, stacks included, and the
+     *  entities checked for what shares their tile
+     */
+    @State(Scope.Thread)
+    public static class Crowd {
+
+        // Entities checked per call, spread over the entity list
+        private static final int PROBES = 64;
+
+        @Param({ "1000", "10000", "100000" })
+        public int entities;
+
+        private World world;
+        private final List<Entity> probes = new ArrayList<>();
+
+        @Setup
+        public void setup() {
+            Random random = new Random(1);
+            String[] objects = { "ROCK", "KEKE", "FLAG", "SKULL" };
+
+            // About one object per two tiles
+            int side = (int) Math.ceil(Math.sqrt(entities * 2.0));
+
+            List<String> names = new ArrayList<>();
+            List<int[]> points = new ArrayList<>();
+            for (int i = 0; i < entities; i++) {
+                names.add(objects[random.nextInt(objects.length)]);
+                points.add(new int[] { random.nextInt(side) * Boards.TILE_SIZE, random.nextInt(side) * Boards.TILE_SIZE });
+            }
+
+            world = Boards.world(Boards.toData(names, points), side, side);
+
+            for (int i = 0; i < PROBES; i++) {
+                probes.add(world.entities.get(i * world.entities.size() / PROBES));
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean cantMove(PushChain chain) {
+        chain.moveSet.clear();
+        return chain.baba.cantMove(chain.baba, World.Direction.RIGHT, chain.moveSet);
+    }
+
+    @Benchmark
+    public void checkEntity(Board board, Blackhole bh) {
+        for (Entity e : board.world.entities) {
+            bh.consume(board.world.cChecker.checkEntity(e));
+        }
+    }
+
+    /**
+     * Tile lookup, against the whole entity list scan it replaced
+     */
+    @Benchmark
+    public void checkEntityGrid(Crowd crowd, Blackhole bh) {
+        for (Entity e : crowd.probes) {
+            bh.consume(crowd.world.cChecker.checkEntity(e));
+        }
+    }
+
+    @Benchmark
+    public void checkEntityScan(Crowd crowd, Blackhole bh) {
+        for (Entity e : crowd.probes) {
+            ArrayList<Entity> targets = new ArrayList<>();
+
+            for (Entity t : crowd.world.entities) {
+                if (t == e) continue;
+
+                if (t.getPoint().equals(e.getPoint())) {
+                    targets.add(t);
+                }
+            }
+
+            bh.consume(targets);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package benchmark;
+
+import application.World;
+import org.openjdk.jmh.annotations.*;
+import rules.LogicHandler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conditional rule checks, each BABA asking whether a ROCK is on, near, next to,
+ *  in front of or in sight of it, with hundreds of ROCKs on the board
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConditionsBenchmark {
+
+    @Param({ "100x100" })
+    public String size;
+
+    @Param({ "ON", "NEAR", "NEXT", "FACING", "SEEING" })
+    public String preposition;
+
+    private LogicHandler lHandler;
+
+    @Setup
+    public void setup() {
+        int cols = Boards.cols(size), rows = Boards.rows(size);
+        World world = Boards.world(Boards.conditional(cols, rows, preposition, 1), cols, rows);
+
+        lHandler = new LogicHandler(world);
+        lHandler.initRules();
+    }
+
+    /**
+     * Every BABA checked against the ROCKs, as in a full rule pass
+     */
+    @Benchmark
+    public void applyConditionalRules() {
+        lHandler.applyConditionalRules();
+    }
+}
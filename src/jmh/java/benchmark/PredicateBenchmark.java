@@ -0,0 +1,55 @@
+package benchmark;
+
+import application.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rule predicate checks, made for every word after IS or HAS each time a line is parsed
+ * buildEntity is how a predicate was checked before the name registry, lookupName is how it is now
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredicateBenchmark {
+
+    private World world;
+
+    // Every noun and property word with WORD_ taken off, as checkRules looks it up
+    private String[] predicates;
+
+    @Setup
+    public void setup() {
+        world = new World(Boards.TILE_SIZE, 33, 18);
+
+        List<String> names = new ArrayList<>();
+        names.addAll(world.eGenerator.wordNounFactory.keySet());
+        names.addAll(world.eGenerator.wordPropFactory.keySet());
+        names.replaceAll(name -> name.replace("WORD_", ""));
+
+        predicates = names.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public int buildEntity() {
+        int forms = 0;
+        for (String predicate : predicates) {
+            if (world.eGenerator.getEntity(predicate, 0, 0) != null) forms++;
+        }
+        return forms;
+    }
+
+    @Benchmark
+    public int lookupName() {
+        int forms = 0;
+        for (String predicate : predicates) {
+            if (world.eGenerator.hasEntity(predicate)) forms++;
+        }
+        return forms;
+    }
+}
@@ -0,0 +1,142 @@
+package benchmark;
+
+import application.World;
+import entity.Entity;
+import entity.WordEntity;
+import org.openjdk.jmh.annotations.*;
+import rules.LogicHandler;
+
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rule parsing and application, run by World after every turn a word moved
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesBenchmark {
+
+    @Param({ "33x18", "66x36", "132x72", "200x200" })
+    public String size;
+
+    @Param({ "0.05", "0.2" })
+    public double wordDensity;
+
+    private World world;
+    private LogicHandler lHandler;
+
+    // Word moved a row down and back up between scans
+    private Entity word;
+    private Point home;
+    private Point away;
+    private boolean moved = false;
+
+    // Object moved a row down and back up between rule passes
+    private Entity object;
+    private Point objectHome;
+    private Point objectAway;
+    private boolean objectMoved = false;
+
+    /**
+     * Boards a fifth words, hundreds of distinct rules over thousands of entities
+     */
+    @State(Scope.Thread)
+    public static class Crowded {
+
+        @Param({ "132x72", "264x144" })
+        public String size;
+
+        private LogicHandler lHandler;
+
+        @Setup
+        public void setup() {
+            int cols = Boards.cols(size), rows = Boards.rows(size);
+            World world = Boards.world(Boards.level(cols, rows, 0.2, 2), cols, rows);
+
+            lHandler = new LogicHandler(world);
+            lHandler.initRules();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        int cols = Boards.cols(size), rows = Boards.rows(size);
+        world = Boards.world(Boards.level(cols, rows, wordDensity, 1), cols, rows);
+
+        lHandler = new LogicHandler(world);
+        lHandler.initRules();
+
+        for (Entity e : world.entities) {
+            if (e instanceof WordEntity && e.getPoint().y < (rows - 1) * Boards.TILE_SIZE) {
+                word = e;
+                break;
+            }
+        }
+        home = new Point(word.getPoint());
+        away = new Point(home.x, home.y + Boards.TILE_SIZE);
+
+        for (Entity e : world.entities) {
+            if (!(e instanceof WordEntity) && e.getPoint().y < (rows - 1) * Boards.TILE_SIZE) {
+                object = e;
+                break;
+            }
+        }
+        objectHome = new Point(object.getPoint());
+        objectAway = new Point(objectHome.x, objectHome.y + Boards.TILE_SIZE);
+    }
+
+    /**
+     * Every column and row parsed, as when a level is set up
+     */
+    @Benchmark
+    public void scanForRules() {
+        lHandler.clearRules();
+        lHandler.scanForRules();
+    }
+
+    /**
+     * Only the lines one word left and entered parsed, as after a normal turn
+     */
+    @Benchmark
+    public void scanAfterWordMove() {
+        word.setPoint(moved ? home : away);
+        moved = !moved;
+
+        lHandler.scanForRules();
+    }
+
+    /**
+     * Rule states after a turn that moved one object, only its surroundings checked again
+     */
+    @Benchmark
+    public void updateRulesAfterMove() {
+        object.setPoint(objectMoved ? objectHome : objectAway);
+        objectMoved = !objectMoved;
+
+        lHandler.updateRules();
+    }
+
+    @Benchmark
+    public void applyStaticRules() {
+        lHandler.resetEntityRuleStates();
+        lHandler.applyStaticRules();
+    }
+
+    /**
+     * Each rule visiting only its subjects, however many other entities there are
+     */
+    @Benchmark
+    public void applyStaticRulesCrowded(Crowded crowded) {
+        crowded.lHandler.resetEntityRuleStates();
+        crowded.lHandler.applyStaticRules();
+    }
+
+    @Benchmark
+    public void applyConditionalRules() {
+        lHandler.applyConditionalRules();
+    }
+}
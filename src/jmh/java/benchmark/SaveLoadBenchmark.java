@@ -0,0 +1,54 @@
+package benchmark;
+
+import application.GamePanel;
+import data.DataStorage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Level data written from the board before every save, solve and upload, and read back on every load
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SaveLoadBenchmark {
+
+    @Param({ "33x18", "132x72" })
+    public String size;
+
+    @Param({ "0.05", "0.2" })
+    public double wordDensity;
+
+    private GamePanel gp;
+    private DataStorage level;
+
+    @Setup
+    public void setup() {
+        gp = new GamePanel();
+
+        // Board sized to the level, the screen only shows part of it
+        gp.world.maxWorldCol = Boards.cols(size);
+        gp.world.maxWorldRow = Boards.rows(size);
+
+        level = Boards.level(gp.world.maxWorldCol, gp.world.maxWorldRow, wordDensity, 1);
+        gp.levelProgress = level;
+        gp.saveLoad.loadFromData();
+    }
+
+    @Benchmark
+    public DataStorage saveToData() {
+        gp.saveLoad.saveToData("Benchmark");
+        return gp.levelProgress;
+    }
+
+    @Benchmark
+    public int loadFromData() {
+        gp.levelProgress = level;
+        gp.saveLoad.loadFromData();
+        return gp.world.entities.size();
+    }
+}
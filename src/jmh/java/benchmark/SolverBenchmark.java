@@ -0,0 +1,124 @@
+package benchmark;
+
+import data.DataStorage;
+import org.openjdk.jmh.annotations.*;
+import solver.Solver;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves of sample levels drawn as text, each walled in with STOP rocks so the search
+ *  stays inside the drawn board
+ * Run with ./gradlew jmh -Pjmh="Solver -p search=BFS" for one search only
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+    // Letters of the drawings, lower case for objects and upper case for words
+    private static final Map<Character, String> LEGEND = Map.ofEntries(
+            Map.entry('b', "BABA"), Map.entry('k', "KEKE"), Map.entry('f', "FLAG"),
+            Map.entry('r', "ROCK"), Map.entry('o', "BOX"), Map.entry('x', "SKULL"),
+            Map.entry('B', "WORD_BABA"), Map.entry('K', "WORD_KEKE"), Map.entry('F', "WORD_FLAG"),
+            Map.entry('R', "WORD_ROCK"), Map.entry('O', "WORD_BOX"), Map.entry('X', "WORD_SKULL"),
+            Map.entry('=', "WORD_IS"), Map.entry('Y', "WORD_YOU"), Map.entry('W', "WORD_WIN"),
+            Map.entry('P', "WORD_PUSH"), Map.entry('S', "WORD_STOP"), Map.entry('D', "WORD_DEFEAT"),
+            Map.entry('N', "WORD_SINK"));
+
+    // Rows of each sample level by name
+    private static final Map<String, String[]> LEVELS = Map.of(
+            "walk", new String[] {
+                    "rrrrrrrrrrrr",
+                    "rB=Y..F=Wr.r",
+                    "rR=S......rr",
+                    "r.........rr",
+                    "r.b......f.r",
+                    "r..........r",
+                    "rrrrrrrrrrrr" },
+            "push", new String[] {
+                    "rrrrrrrrrrrr",
+                    "rB=Y..F=W..r",
+                    "rR=S..O=P..r",
+                    "r..........r",
+                    "r.b..o.o..fr",
+                    "r..........r",
+                    "rrrrrrrrrrrr" },
+            "makeWin", new String[] {
+                    "rrrrrrrrrrrr",
+                    "rB=Y.......r",
+                    "rR=S.......r",
+                    "r..........r",
+                    "r.b..F=.W..r",
+                    "r........f.r",
+                    "rrrrrrrrrrrr" },
+            "kekeIsYou", new String[] {
+                    "rrrrrrrrrrrrr",
+                    "rB=Y...F=W..r",
+                    "rR=S........r",
+                    "r.....K.rrrrr",
+                    "r.b....=Yr.fr",
+                    "r........rk.r",
+                    "rrrrrrrrrrrrr" },
+            "skullGate", new String[] {
+                    "rrrrrrrrrrrrr",
+                    "rB=Y...F=W..r",
+                    "rR=S...X=D..r",
+                    "r.......x...r",
+                    "r.b.....x.f.r",
+                    "r.......x...r",
+                    "rrrrrrrrrrrrr" });
+
+    @Param({ "walk", "push", "makeWin", "kekeIsYou", "skullGate" })
+    public String level;
+
+    @Param({ "BFS", "A_STAR" })
+    public Solver.Search search;
+
+    private DataStorage ds;
+
+    @Setup
+    public void setup() {
+        ds = level(LEVELS.get(level));
+    }
+
+    // Solver.Result samples peak heap, start each solve from live data only
+    @Setup(Level.Invocation)
+    public void collect() {
+        System.gc();
+    }
+
+    @Benchmark
+    public Solver.Result solve() throws InterruptedException {
+        Solver.Result result = new Solver(ds, search, Runtime.getRuntime().availableProcessors(), Solver.DEFAULT_MAX_STATES).solve(null);
+
+        if (!result.isSolved()) throw new IllegalStateException(level + ": " + result);
+        return result;
+    }
+
+    /**
+     * LEVEL
+     * @param rows Drawing of the level, one letter per tile
+     * @return Level data with the drawn entities
+     */
+    private static DataStorage level(String... rows) {
+        List<String> names = new ArrayList<>();
+        List<int[]> points = new ArrayList<>();
+
+        for (int row = 0; row < rows.length; row++) {
+            for (int col = 0; col < rows[row].length(); col++) {
+                String entity = LEGEND.get(rows[row].charAt(col));
+                if (entity == null) continue;
+
+                names.add(entity);
+                points.add(new int[] { col * Boards.TILE_SIZE, row * Boards.TILE_SIZE });
+            }
+        }
+
+        return Boards.toData(names, points);
+    }
+}
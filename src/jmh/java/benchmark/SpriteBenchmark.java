@@ -0,0 +1,99 @@
+package benchmark;
+
+import application.GamePanel;
+import application.SpriteAtlas;
+import application.World;
+import data.DataStorage;
+import entity.CharacterEntity;
+import entity.Entity;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sprites for every entity of a level, as when it is first drawn
+ * loadDecoded is how each entity got its sprites before the atlas, reading and scaling
+ *  its own copy of every image, loadAtlas is how it gets them now
+ * Run with ./gradlew jmh -Pjmh="Sprite -prof gc" for the bytes each load allocates
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpriteBenchmark {
+
+    private static final String[] DIRECTIONS = { "_up_", "_down_", "_left_", "_right_" };
+
+    @Param({ "33x18" })
+    public String size;
+
+    private World world;
+    private DataStorage level;
+
+    @Setup
+    public void setup() {
+        int cols = Boards.cols(size), rows = Boards.rows(size);
+
+        level = Boards.level(cols, rows, 0.2, 1);
+        world = Boards.world(level, cols, rows);
+
+        // Atlas packed before measuring, as it is by the first level played
+        SpriteAtlas.getInstance(world.tileSize);
+    }
+
+    @Benchmark
+    public void loadAtlas(Blackhole bh) {
+        world.loadLevel(level);
+
+        for (Entity e : world.entities) {
+            bh.consume(e.getImage());
+        }
+    }
+
+    @Benchmark
+    public void loadDecoded(Blackhole bh) {
+        world.loadLevel(level);
+
+        for (Entity e : world.entities) {
+            for (String path : getImagePaths(e)) {
+                bh.consume(decode(path));
+            }
+        }
+    }
+
+    /**
+     * GET IMAGE PATHS
+     * @return Images the entity's setImages() loads, nine for a character and one otherwise
+     */
+    private static List<String> getImagePaths(Entity e) {
+        String fileName = e.getName().toLowerCase();
+
+        if (!(e instanceof CharacterEntity)) {
+            return List.of((e.getName().startsWith("WORD_") ? "/words/" : "/objects/") + fileName);
+        }
+
+        List<String> paths = new ArrayList<>(List.of("/characters/" + fileName));
+        for (String direction : DIRECTIONS) {
+            paths.add("/characters/" + fileName + direction + 1);
+            paths.add("/characters/" + fileName + direction + 2);
+        }
+        return paths;
+    }
+
+    private BufferedImage decode(String imagePath) {
+        try (InputStream is = getClass().getResourceAsStream(imagePath + ".png")) {
+            BufferedImage image = ImageIO.read(Objects.requireNonNull(is));
+            return GamePanel.utility.scaleImage(image, world.tileSize, world.tileSize);
+        }
+        catch (Exception e) {
+            throw new IllegalStateException(imagePath, e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package benchmark;
+
+import application.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless turns per second through World.step(), the call a solver or replay makes
+ * Same board and lap as TurnBenchmark, reported as throughput on one thread
+ * Run with ./gradlew jmh -Pjmh="Step"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StepBenchmark {
+
+    @Param({ "33x18" })
+    public String size;
+
+    @Param({ "true", "false" })
+    public boolean instantTurns;
+
+    private World world;
+    private int turn = 0;
+
+    @Setup
+    public void setup() {
+        int cols = Boards.cols(size), rows = Boards.rows(size);
+
+        world = Boards.world(Boards.lap(cols, rows, 1), cols, rows);
+        world.setInstantTurns(instantTurns);
+    }
+
+    /**
+     * Fresh history each iteration, every turn adds to it
+     */
+    @Setup(Level.Iteration)
+    public void clearHistory() {
+        world.setupLevel();
+    }
+
+    @Benchmark
+    public boolean step() {
+        boolean moved = world.step(TurnBenchmark.LAP[turn]);
+
+        turn = (turn + 1) % TurnBenchmark.LAP.length;
+        return moved;
+    }
+}
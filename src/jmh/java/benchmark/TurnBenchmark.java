@@ -0,0 +1,59 @@
+package benchmark;
+
+import application.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole turns, BABA walking a loop that pushes a BOX right and back left
+ * Run with ./gradlew jmh -Pjmh="Turn -prof gc", outside the undo history saved
+ *  every turn a steady turn should allocate nothing
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TurnBenchmark {
+
+    // Ends where it started, pushing the BOX on the first and sixth move
+    static final World.Direction[] LAP = {
+            World.Direction.RIGHT, World.Direction.DOWN, World.Direction.RIGHT, World.Direction.RIGHT, World.Direction.UP,
+            World.Direction.LEFT, World.Direction.DOWN, World.Direction.LEFT, World.Direction.LEFT, World.Direction.UP };
+
+    @Param({ "33x18", "132x72" })
+    public String size;
+
+    @Param({ "true", "false" })
+    public boolean instantTurns;
+
+    private World world;
+    private int turn = 0;
+
+    @Setup
+    public void setup() {
+        int cols = Boards.cols(size), rows = Boards.rows(size);
+
+        world = Boards.world(Boards.lap(cols, rows, 1), cols, rows);
+        world.setInstantTurns(instantTurns);
+    }
+
+    /**
+     * Fresh history each iteration, every turn adds to it
+     */
+    @Setup(Level.Iteration)
+    public void clearHistory() {
+        world.setupLevel();
+    }
+
+    @Benchmark
+    public boolean turn() {
+        boolean moved = world.move(LAP[turn]);
+        world.settle();
+
+        turn = (turn + 1) % LAP.length;
+        return moved;
+    }
+}
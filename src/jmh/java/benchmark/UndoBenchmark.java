@@ -0,0 +1,96 @@
+package benchmark;
+
+import application.World;
+import entity.Entity;
+import entity.WordEntity;
+import org.openjdk.jmh.annotations.*;
+import state.StateHandler;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Undo history, saved at the start of every turn and restored on every undo
+ * Moving a few entities on a big board is the case the per-move deltas are for
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UndoBenchmark {
+
+    @Param({ "33x18", "264x144" })
+    public String size;
+
+    @Param({ "1", "64" })
+    public int movers;
+
+    private World world;
+    private StateHandler stateHandler;
+
+    // Objects moved a tile right and back between saves
+    private final List<Entity> moving = new ArrayList<>();
+    private boolean moved = false;
+
+    @Setup
+    public void setup() {
+        int cols = Boards.cols(size), rows = Boards.rows(size);
+        world = Boards.world(Boards.level(cols, rows, 0.05, 1), cols, rows);
+
+        for (Entity e : world.entities) {
+            if (moving.size() == movers) break;
+
+            // Room to move right
+            if (!(e instanceof WordEntity) && e.getPoint().x < (cols - 1) * Boards.TILE_SIZE) {
+                moving.add(e);
+            }
+        }
+
+        stateHandler = new StateHandler(world);
+    }
+
+    /**
+     * Fresh history each iteration, saves keep adding turns to it
+     */
+    @Setup(Level.Iteration)
+    public void clearHistory() {
+        stateHandler.clearData();
+    }
+
+    /**
+     * A turn played, history growing as in a long game
+     */
+    @Benchmark
+    public void saveState() {
+        shift(moved ? -Boards.TILE_SIZE : Boards.TILE_SIZE);
+        moved = !moved;
+
+        stateHandler.saveState();
+    }
+
+    /**
+     * A turn played and undone, entities snapped back the way their reverse slide ends
+     */
+    @Benchmark
+    public void saveAndLoadState() {
+        stateHandler.saveState();
+        shift(Boards.TILE_SIZE);
+
+        stateHandler.loadState();
+        for (Entity e : moving) {
+            e.setPoint(e.getPreviousPoint());
+            e.setReversing(false);
+        }
+    }
+
+    private void shift(int dx) {
+        for (Entity e : moving) {
+            Point p = e.getPoint();
+            e.setPoint(new Point(p.x + dx, p.y));
+        }
+    }
+}
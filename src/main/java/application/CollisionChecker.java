@@ -2,72 +2,89 @@ package application;
 
 import entity.Entity;
 
-import java.awt.*;
 import java.util.ArrayList;
 import java.util.List;
 
-public record CollisionChecker(GamePanel gp) {
+public class CollisionChecker {
+
+    private final World world;
+
+    // Filled by checkEntity() and handed back, reused by every call
+    private final ArrayList<Entity> targets = new ArrayList<>();
+
+    /**
+     * CONSTRUCTOR
+     * @param world World
+     */
+    public CollisionChecker(World world) {
+        this.world = world;
+    }
 
     /**
      * GET ENTITIES AT NEXT TILE
      * Get list of entities that are at the tile to be moved on
      * @param entity Entity that is moving to the tile
      * @param dir Direction the entity is moving
-     * @return List of entities found at tile
+     * @return Live stack of entities found at tile, not to be modified while iterated
      */
-    public List<Entity> getEntitiesAtNextTile(Entity entity, GamePanel.Direction dir) {
-
-        List<Entity> result = new ArrayList<>();
-
-        Point next = getNextTilePosition(entity, dir);
-        for (Entity e : gp.entities) {
-            if (e.getPoint().equals(next)) {
-                result.add(e);
-            }
-        }
-
-        return result;
+    public List<Entity> getEntitiesAtNextTile(Entity entity, World.Direction dir) {
+        return world.tileGrid.getEntitiesAtPoint(getNextX(entity, dir), getNextY(entity, dir));
     }
 
     /**
-     * GET NEXT TILE POSITION
+     * GET NEXT X / Y
      * Gets the X/Y the entity is moving towards
      * @param entity The entity that is moving
      * @param dir The direction the entity is moving
-     * @return The X/Y Point the entity will end on
+     * @return The X or Y the entity will end on
      */
-    private Point getNextTilePosition(Entity entity, GamePanel.Direction dir) {
-
-        int nextX = 0, nextY = 0;
-
-        switch (dir) {
-            case UP -> nextY = -gp.tileSize;
-            case DOWN -> nextY = gp.tileSize;
-            case LEFT -> nextX = -gp.tileSize;
-            case RIGHT -> nextX = gp.tileSize;
-        }
-
-
-
-        return new Point(entity.getPoint().x + nextX, entity.getPoint().y + nextY);
+    private int getNextX(Entity entity, World.Direction dir) {
+        return switch (dir) {
+            case LEFT -> entity.getPoint().x - world.tileSize;
+            case RIGHT -> entity.getPoint().x + world.tileSize;
+            default -> entity.getPoint().x;
+        };
+    }
+    private int getNextY(Entity entity, World.Direction dir) {
+        return switch (dir) {
+            case UP -> entity.getPoint().y - world.tileSize;
+            case DOWN -> entity.getPoint().y + world.tileSize;
+            default -> entity.getPoint().y;
+        };
     }
 
     /**
      * CHECK ENTITY
      * Detects if given entity will collide with any entity from the given list
+     * The tile stack is copied, touch effects may kill entities while the result is iterated
+     * Only entities on the tile are found, a dead entity not yet swept or an entity
+     *  between tiles touches nothing until it is gone or has landed
      * @param entity Entity to check collision on
-     * @return List of entities the given entity will interact with
+     * @return List of entities the given entity will interact with in entity list order, reused by the next call
      */
-    public ArrayList<Entity> checkEntity(Entity entity) {
+    public List<Entity> checkEntity(Entity entity) {
 
-        ArrayList<Entity> targets = new ArrayList<>();
+        targets.clear();
 
-        for (Entity t : gp.entities) {
+        List<Entity> stack = world.tileGrid.getEntitiesAtPoint(entity.getPoint().x, entity.getPoint().y);
+
+        for (int i = 0; i < stack.size(); i++) {
+            Entity t = stack.get(i);
             if (t == entity) continue;
 
-            if (t.getPoint().equals(entity.getPoint())) {
-                targets.add(t);
+            targets.add(t);
+        }
+
+        // A tile stack is kept in arrival order, touch effects run in entity list order
+        for (int i = 1; i < targets.size(); i++) {
+            Entity t = targets.get(i);
+
+            int j = i - 1;
+            while (j >= 0 && targets.get(j).getListOrder() > t.getListOrder()) {
+                targets.set(j + 1, targets.get(j));
+                j--;
             }
+            targets.set(j + 1, t);
         }
 
         return targets;
@@ -80,16 +97,12 @@ public record CollisionChecker(GamePanel gp) {
      * @param dir Direction Entity is pointing towards
      * @return True if entity is out of bounds
      */
-    public boolean isOutOfBounds(Entity entity, GamePanel.Direction dir) {
-
-        Point next = getNextTilePosition(entity, dir);
-
-        return next.x < 0 || next.x > gp.screenWidth - gp.tileSize ||
-                next.y < 0 || next.y > gp.screenHeight - gp.tileSize;
+    public boolean isOutOfBounds(Entity entity, World.Direction dir) {
+        return isOutOfBounds(getNextX(entity, dir), getNextY(entity, dir));
     }
 
     public boolean isOutOfBounds(int x, int y) {
-        return x < 0 || x > gp.screenWidth - gp.tileSize ||
-                y < 0 || y > gp.screenHeight - gp.tileSize;
+        return x < 0 || x > (world.maxWorldCol - 1) * world.tileSize ||
+                y < 0 || y > (world.maxWorldRow - 1) * world.tileSize;
     }
-}
\ No newline at end of file
+}
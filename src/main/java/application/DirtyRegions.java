@@ -0,0 +1,172 @@
+package application;
+
+import entity.Entity;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DirtyRegions {
+
+    private final int tileSize;
+    private final int cols, rows;
+
+    // Tiles that must be repainted next frame, indexed by (row * cols + col)
+    private final BitSet dirty = new BitSet();
+    private boolean allDirty = true;
+
+    // Where and how each entity was last drawn
+    private final Map<Entity, Drawn> drawn = new IdentityHashMap<>();
+    private long frame = 0;
+
+    private static final class Drawn {
+        int x, y;
+        BufferedImage image;
+        long frame;
+    }
+
+    /**
+     * CONSTRUCTOR
+     * @param tileSize Size of one tile in pixels
+     * @param cols Number of columns on screen
+     * @param rows Number of rows on screen
+     */
+    public DirtyRegions(int tileSize, int cols, int rows) {
+        this.tileSize = tileSize;
+        this.cols = cols;
+        this.rows = rows;
+    }
+
+    /**
+     * TRACK
+     * Compares each entity with how it was last drawn and invalidates
+     *  the tiles it left and entered, including sprite frame changes,
+     *  transforms, spawns and removals
+     * Called by GamePanel before a frame is rendered
+     * @param entities Entities about to be drawn
+     */
+    public void track(List<Entity> entities) {
+        frame++;
+
+        for (Entity e : entities) {
+            Point p = e.getDrawPoint();
+            BufferedImage image = e.getDrawImage();
+
+            Drawn d = drawn.get(e);
+
+            // New entity (spawned, transformed or placed)
+            if (d == null) {
+                d = new Drawn();
+                drawn.put(e, d);
+                invalidate(p.x, p.y);
+            }
+            // Entity moved or changed sprite
+            else if (d.x != p.x || d.y != p.y || d.image != image) {
+                invalidate(d.x, d.y);
+                invalidate(p.x, p.y);
+            }
+
+            d.x = p.x;
+            d.y = p.y;
+            d.image = image;
+            d.frame = frame;
+        }
+
+        // Entity no longer drawn, clear where it was
+        drawn.values().removeIf(d -> {
+            if (d.frame == frame) return false;
+
+            invalidate(d.x, d.y);
+            return true;
+        });
+    }
+
+    /**
+     * INVALIDATE
+     * Marks every tile covered by a tile-sized sprite drawn at the given point
+     * @param x Screen X of the sprite
+     * @param y Screen Y of the sprite
+     */
+    public void invalidate(int x, int y) {
+        int col1 = Math.max(0, Math.floorDiv(x, tileSize));
+        int row1 = Math.max(0, Math.floorDiv(y, tileSize));
+        int col2 = Math.min(cols - 1, Math.floorDiv(x + tileSize - 1, tileSize));
+        int row2 = Math.min(rows - 1, Math.floorDiv(y + tileSize - 1, tileSize));
+
+        for (int row = row1; row <= row2; row++) {
+            for (int col = col1; col <= col2; col++) {
+                dirty.set(row * cols + col);
+            }
+        }
+    }
+    public void invalidateAll() {
+        allDirty = true;
+    }
+    public boolean getAllDirty() {
+        return allDirty;
+    }
+    public boolean isEmpty() {
+        return !allDirty && dirty.isEmpty();
+    }
+
+    /**
+     * COLLECT
+     * Merges the dirty tiles into rectangles and clears them
+     * Runs of tiles in a row are joined, then stacked with matching runs below
+     * @return Screen rectangles to repaint
+     */
+    public List<Rectangle> collect() {
+        List<Rectangle> regions = new ArrayList<>();
+
+        if (allDirty) {
+            regions.add(new Rectangle(0, 0, cols * tileSize, rows * tileSize));
+        }
+        else {
+            List<Rectangle> open = new ArrayList<>();
+
+            for (int row = 0; row < rows; row++) {
+                List<Rectangle> next = new ArrayList<>();
+
+                int col = dirty.nextSetBit(row * cols);
+                while (col != -1 && col < (row + 1) * cols) {
+                    int end = Math.min(dirty.nextClearBit(col), (row + 1) * cols);
+
+                    Rectangle run = new Rectangle(
+                            (col - row * cols) * tileSize, row * tileSize,
+                            (end - col) * tileSize, tileSize);
+
+                    // Grow the matching run from the row above
+                    Rectangle above = null;
+                    for (Rectangle r : open) {
+                        if (r.x == run.x && r.width == run.width) {
+                            above = r;
+                            break;
+                        }
+                    }
+
+                    if (above != null) {
+                        above.height += tileSize;
+                        next.add(above);
+                    }
+                    else {
+                        regions.add(run);
+                        next.add(run);
+                    }
+
+                    col = dirty.nextSetBit(end);
+                }
+
+                open = next;
+            }
+        }
+
+        dirty.clear();
+        allDirty = false;
+
+        return regions;
+    }
+}
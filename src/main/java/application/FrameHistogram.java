@@ -0,0 +1,84 @@
+package application;
+
+import java.util.Arrays;
+
+public class FrameHistogram {
+
+    // Bucket i holds times below 2^i microseconds, the last bucket holds everything slower
+    private static final int BUCKETS = 24;
+
+    private final String name;
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    /**
+     * CONSTRUCTOR
+     * @param name Label printed by toString()
+     */
+    public FrameHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * RECORD
+     * Adds one timing to the histogram
+     * @param nanos Elapsed time in nanoseconds
+     */
+    public synchronized void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+
+        counts[bucket]++;
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    /**
+     * GET PERCENTILE
+     * @param percentile Value between 0 and 100
+     * @return Upper bound of the bucket holding the percentile (at most the max), in milliseconds
+     */
+    public synchronized double getPercentile(double percentile) {
+        if (count == 0) return 0;
+
+        long target = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return i == BUCKETS - 1 ? getMax() : Math.min((1L << i) / 1000.0, getMax());
+            }
+        }
+
+        return maxNanos / 1_000_000.0;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+    public synchronized double getMean() {
+        return count == 0 ? 0 : totalNanos / (double) count / 1_000_000.0;
+    }
+    public synchronized double getMax() {
+        return maxNanos / 1_000_000.0;
+    }
+    public synchronized long[] getBuckets() {
+        return counts.clone();
+    }
+
+    public String toString() {
+        return String.format("%s: %d samples, mean %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+                name, getCount(), getMean(), getPercentile(50), getPercentile(99), getMax());
+    }
+}
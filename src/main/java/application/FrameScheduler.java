@@ -0,0 +1,168 @@
+package application;
+
+import java.util.concurrent.locks.LockSupport;
+
+public class FrameScheduler implements Runnable {
+
+    // Game logic always runs at 60 updates a second, rendering is decoupled from it
+    public static final int UPDATES_PER_SECOND = 60;
+    private static final long UPDATE_INTERVAL = 1_000_000_000L / UPDATES_PER_SECOND;
+
+    // Updates run back to back before dropping time (stops a spiral after a stall)
+    private static final int MAX_CATCH_UP = 5;
+
+    // Redraw at least this often even when nothing changed (window exposed, focus regained)
+    private static final long IDLE_REDRAW_INTERVAL = 500_000_000L;
+
+    private final GamePanel gp;
+    private volatile Thread thread;
+
+    /* CONFIG VALUES */
+    private volatile int targetFps = 60;
+    private volatile boolean uncapped = false;
+
+    /* FRAME STATISTICS */
+    private final FrameHistogram frameTimes = new FrameHistogram("frame");
+    private final FrameHistogram updateTimes = new FrameHistogram("update");
+    private final FrameHistogram renderTimes = new FrameHistogram("render");
+    private long skippedFrames = 0;
+
+    /**
+     * CONSTRUCTOR
+     * @param gp GamePanel
+     */
+    public FrameScheduler(GamePanel gp) {
+        this.gp = gp;
+    }
+
+    /**
+     * START
+     * Runs the scheduler on a new thread
+     * Called by GamePanel
+     */
+    public void start() {
+        if (thread != null) return;
+
+        thread = new Thread(this, "game-loop");
+        thread.start();
+    }
+    public void stop() {
+        Thread t = thread;
+        thread = null;
+
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * RUN
+     * Updates the game at a fixed rate and renders at the target FPS,
+     *  parking the thread between frames instead of spinning
+     * Frames are only rendered when the GamePanel reports a change
+     */
+    @Override
+    public void run() {
+
+        long lastTime = System.nanoTime();
+        long lastRender = lastTime;
+        long nextRender = lastTime;
+        long accumulator = 0;
+
+        while (thread == Thread.currentThread()) {
+
+            long now = System.nanoTime();
+            accumulator += now - lastTime;
+            lastTime = now;
+
+            // Fixed-timestep updates, dropping time we cannot catch up on
+            int updates = 0;
+            while (accumulator >= UPDATE_INTERVAL && updates < MAX_CATCH_UP) {
+                long start = System.nanoTime();
+                gp.update();
+                updateTimes.record(System.nanoTime() - start);
+
+                accumulator -= UPDATE_INTERVAL;
+                updates++;
+            }
+            if (updates == MAX_CATCH_UP) {
+                accumulator = 0;
+            }
+
+            // Render when a frame is due
+            now = System.nanoTime();
+            if (uncapped || now >= nextRender) {
+
+                if (uncapped || gp.needsRedraw() || now - lastRender >= IDLE_REDRAW_INTERVAL) {
+                    long start = System.nanoTime();
+                    gp.render();
+                    renderTimes.record(System.nanoTime() - start);
+
+                    frameTimes.record(now - lastRender);
+                    lastRender = now;
+                }
+                else {
+                    skippedFrames++;
+                }
+
+                // Schedule from the previous slot to hold the rate, resync after a stall
+                nextRender += getRenderInterval();
+                if (nextRender < now) {
+                    nextRender = now + getRenderInterval();
+                }
+            }
+
+            if (uncapped) continue;
+
+            // Sleep until the next update or render is due
+            long nextUpdate = System.nanoTime() + (UPDATE_INTERVAL - accumulator);
+            long wake = Math.min(nextUpdate, nextRender);
+            long sleep = wake - System.nanoTime();
+
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+            }
+        }
+    }
+
+    private long getRenderInterval() {
+        return 1_000_000_000L / targetFps;
+    }
+
+    public int getTargetFps() {
+        return targetFps;
+    }
+    public void setTargetFps(int targetFps) {
+        this.targetFps = Math.max(1, targetFps);
+    }
+
+    public boolean getUncapped() {
+        return uncapped;
+    }
+    public void setUncapped(boolean uncapped) {
+        this.uncapped = uncapped;
+    }
+
+    public FrameHistogram getFrameTimes() {
+        return frameTimes;
+    }
+    public FrameHistogram getUpdateTimes() {
+        return updateTimes;
+    }
+    public FrameHistogram getRenderTimes() {
+        return renderTimes;
+    }
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+    public void resetStats() {
+        frameTimes.reset();
+        updateTimes.reset();
+        renderTimes.reset();
+        skippedFrames = 0;
+    }
+
+    public String toString() {
+        return frameTimes + "\n" + updateTimes + "\n" + renderTimes + "\nskipped frames: " + skippedFrames;
+    }
+}
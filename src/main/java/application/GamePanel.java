@@ -1,41 +1,34 @@
 package application;
 
+import application.World.Direction;
 import data.*;
 import entity.*;
-import rules.LogicHandler;
-import state.StateHandler;
+import state.Replay;
+import state.ReplayRecorder;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.util.*;
+import java.util.List;
 
-import static application.GamePanel.Direction.*;
-import static application.GamePanel.Direction.RIGHT;
-import static rules.Properties.YOU;
+import static application.World.Direction.*;
 
-public class GamePanel extends JPanel implements Runnable {
-
-    public enum Direction {
-        UP,
-        DOWN,
-        LEFT,
-        RIGHT
-    }
+public class GamePanel extends JPanel implements WorldListener {
 
     /* GENERAL CONFIG */
     private Graphics2D g2;
-    private Thread gameThread;
+    public final FrameScheduler scheduler = new FrameScheduler(this);
+    private volatile boolean redrawRequested = true;
 
     public ConfigManager config = new ConfigManager(this);
 
     /* UTILITIES / UI */
     public static UtilityTool utility = new UtilityTool();
     public KeyHandler keyH = new KeyHandler();
-    public final EntityGenerator eGenerator = new EntityGenerator(this);
     public final SoundCard music = new SoundCard();
     public final SoundCard se = new SoundCard();
-    private final UI ui = new UI(this);
 
     /* SCREEN SETTINGS */
     private final int originalTileSize = 16; // 16x16 tile
@@ -46,9 +39,24 @@ public class GamePanel extends JPanel implements Runnable {
     public final int screenWidth = tileSize * maxScreenCol; // screen width (33 x 48: 1584px)
     public final int screenHeight = tileSize * maxScreenRow; // screen height (18 x 48: 864px)
 
-    /* WORLD SIZE */
-    public int maxWorldCol = 33;
-    public int maxWorldRow = 18;
+    /* WORLD */
+    public final World world = new World(tileSize, maxScreenCol, maxScreenRow);
+
+    // Undo timelines of played levels, named by their starting board
+    public static final File TIMELINE_DIR = new File(System.getProperty("user.home") + "/baba-conf/timeline/");
+
+    // Inputs of the level being played, saved for ReplayPlayer
+    private final ReplayRecorder replayRecorder =
+            new ReplayRecorder(new File(System.getProperty("user.home") + "/baba-conf/replays/"));
+
+    // Built after the world, the entity library reads its generator
+    private final UI ui = new UI(this);
+
+    /* RENDERING */
+    private BufferedImage gridLayer;
+    private final DirtyRegions dirtyRegions = new DirtyRegions(tileSize, maxScreenCol, maxScreenRow);
+    private final RenderLayers renderLayers = new RenderLayers();
+    private int lastDrawnState = -1;
 
     /* FULL SCREEN SETTINGS */
     public boolean fullScreenOn = false;
@@ -61,32 +69,20 @@ public class GamePanel extends JPanel implements Runnable {
     public final int playState = 1;
     public final int editState = 2;
 
-    /* HANDLERS */
-    public CollisionChecker cChecker = new CollisionChecker(this);
-    private final LogicHandler lHandler = new LogicHandler(this);
-    private final StateHandler stateHandler = new StateHandler(this);
-
     public Auth auth = new Auth();
     public Firebase db = new Firebase(this);
     public boolean dbConnected = false;
     public SaveLoad saveLoad = new SaveLoad(this);
+    public AsyncStorage storage = new AsyncStorage(this);
     public DataStorage levelProgress = new DataStorage();
     public Map<String, String> saveFiles = new LinkedHashMap<>();
     public String levelPath = "";
     public boolean isUploading = false;
 
-    /* ENTITIES */
-    public ArrayList<Entity> entities = new ArrayList<>();
-    public ArrayList<Entity> spawnQueue = new ArrayList<>();
-
     private boolean canLoad = false;
-    private boolean entitiesWereMoving = false;
-    public boolean wordMoved = false;
-    private boolean rewinding = false;
     private int cooldown = 0;
 
     public int song = 0;
-    public boolean win = false;
 
     /**
      * CONSTRUCTOR
@@ -98,6 +94,9 @@ public class GamePanel extends JPanel implements Runnable {
 
         this.addKeyListener(keyH);
         this.setFocusable(true); // GamePanel in focus to receive input
+
+        world.setListener(this);
+        world.setTimelineDir(TIMELINE_DIR);
     }
 
     /**
@@ -110,6 +109,7 @@ public class GamePanel extends JPanel implements Runnable {
         // Temp game window (before drawing to window)
         tempScreen = new BufferedImage(screenWidth, screenHeight, BufferedImage.TYPE_INT_ARGB);
         g2 = (Graphics2D) tempScreen.getGraphics();
+        gridLayer = createGridLayer();
 
         // Connect to Firebase
         dbConnected = db.init();
@@ -141,79 +141,69 @@ public class GamePanel extends JPanel implements Runnable {
 
     /**
      * START GAME THREAD
-     * Runs a new thread
+     * Starts the frame scheduler on its own thread
      * Called by Driver
      */
     protected void startGameThread() {
-
-        // New Thread with GamePanel class
-        gameThread = new Thread(this);
-
-        // Calls run() endlessly
-        gameThread.start();
+        scheduler.start();
     }
 
     /**
-     * RUN
-     * Draws and updates the game 60 times a second
-     * Called using the game thread start() method
+     * UPDATE
+     * Runs each time the frame is updated
+     * Called by FrameScheduler
      */
-    @Override
-    public void run() {
-
-        long currentTime;
-        long lastTime = System.nanoTime();
-        double drawInterval = 1000000000.0 / 60.0; // 1/60th of a second
-        double delta = 0;
-
-        // Update and repaint gameThread
-        while (gameThread != null) {
-
-            currentTime = System.nanoTime();
-            delta += (currentTime - lastTime) / drawInterval; // Time passed (1/60th second)
-            lastTime = currentTime;
-
-            if (delta >= 1) {
-
-                // Update game information
-                update();
-
-                // Draw temp screen with new information
-                drawToTempScreen();
+    void update() {
+        if (gameState == playState) {
+            updatePlayState();
+        }
+    }
 
-                // Send temp screen to monitors
-                drawToScreen();
+    /**
+     * NEEDS REDRAW
+     * Checks if anything on screen may have changed since the last frame
+     * Called by FrameScheduler
+     * @return True if the frame should be rendered
+     */
+    boolean needsRedraw() {
+        boolean requested = redrawRequested;
+        redrawRequested = false;
 
-                delta = 0;
-            }
-        }
+        return requested || keyH.consumeInput() || keyH.anyPressed() ||
+                world.isMoving() || entitiesAnimating();
+    }
+    public void requestRedraw() {
+        redrawRequested = true;
     }
 
     /**
-     * UPDATE
-     * Runs each time the frame is updated
-     * Called by run()
+     * RENDER
+     * Draws the frame and sends it to the screen
+     * Called by FrameScheduler
      */
-    private void update() {
-        if (gameState == playState) {
-            updatePlayState();
-        }
+    void render() {
+
+        // Draw temp screen with new information
+        List<Rectangle> regions = drawToTempScreen();
+
+        // Send changed parts of temp screen to monitors
+        drawToScreen(regions);
     }
 
     private void updatePlayState() {
 
-        // Update entities
-        updateEntities();
+        // Update entities and check rules in play
+        world.update();
+
+        // Slide sprites toward their tiles
+        for (Entity e : world.entities) e.animate();
 
         // Manage movement
         handleMovementInput();
 
-        // Run redo if requested
+        // Run undo or redo if requested
         handleRedoInput();
 
-        // Check rules in play
-        checkRules();
-
         // Detect if player won
         checkWin();
 
@@ -221,36 +211,13 @@ public class GamePanel extends JPanel implements Runnable {
         handleConfigInput();
     }
 
-    /**
-     * UPDATE ENTITIES
-     * Iterates over each entity and updates if alive, sets to null if not
-     * Called by runUpdate()
-     */
-    private void updateEntities() {
-
-        // Update all entities, remove from list if not alive
-        for (Entity e : entities) e.update();
-        entities.removeIf(e -> !e.getAlive());
-
-        // Entities spawned in after update, add to list
-        if (!spawnQueue.isEmpty()) {
-
-            entities.addAll(spawnQueue);
-            spawnQueue.clear();
-
-            // Override flags to check for rules
-            entitiesWereMoving = true;
-            wordMoved = true;
-        }
-    }
-
     /**
      * HANDLE MOVEMENT INPUT
      */
     private void handleMovementInput() {
 
         // Entities currently moving, do nothing
-        if (entitiesMoving()) {
+        if (world.isMoving() || entitiesAnimating()) {
             return;
         }
 
@@ -264,17 +231,18 @@ public class GamePanel extends JPanel implements Runnable {
         Direction directionPressed = getPressedDirection();
 
         // Arrow pressed while no entity movement
-        if (directionPressed != null && cooldown > 3 && hasMoveableEntities()) {
+        if (directionPressed != null && cooldown > 3 && world.hasMoveableEntities()) {
 
             canLoad = false;
             cooldown = 0;
 
-            moveEntities(entities, directionPressed);
+            boolean moved = world.move(directionPressed);
+            replayRecorder.recordMove(directionPressed, moved);
         }
     }
-    private boolean entitiesMoving() {
-        for (Entity e : entities) {
-            if (e.getMoving() || e.getReversing()) {
+    private boolean entitiesAnimating() {
+        for (Entity e : world.entities) {
+            if (e.getTweening()) {
                 return true;
             }
         }
@@ -292,108 +260,30 @@ public class GamePanel extends JPanel implements Runnable {
 
         return direction;
     }
-    private boolean hasMoveableEntities() {
-        for (Entity e : entities) {
-            if (e.has(YOU)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-    private void moveEntities(ArrayList<Entity> entities, Direction direction) {
-
-        // Set of entities to move
-        Set<Entity> moveSet = new LinkedHashSet<>();
-
-        // Loop through each entity
-        for (Entity e : entities) {
-
-            // Entity not YOU
-            if (!e.has(YOU)) {
-                continue;
-            }
-
-            // Entity can't move, change direction
-            if (e.cantMove(e, direction, moveSet)) {
-                e.setDirection(direction);
-                continue;
-            }
-
-            moveSet.add(e);
-
-            if (e instanceof WordEntity) {
-                wordMoved = true;
-            }
-        }
-
-        // Entities can move
-        if (moveSet.isEmpty()) return;
-
-        // Save current positions
-        stateHandler.saveState();
-
-        // Start move for each entity that can move
-        for (Entity e : moveSet) {
-            e.move(direction);
-        }
-
-        // Play walking SE
-        playSE(2, 0);
-    }
-
     private void handleRedoInput() {
-        if (keyH.bPressed && canLoad && !entitiesMoving()) {
+        if (!canLoad || world.isMoving() || entitiesAnimating()) return;
+
+        if (keyH.bPressed) {
             keyH.bPressed = false;
             playSE(2, 0);
 
-            stateHandler.loadState();
-
-            // If redo moves entities back
-            rewinding = entitiesMoving();
-
-            // Check rules if rewind not applied
-            if (!rewinding) {
-                lHandler.initRules();
-            }
+            world.undo();
+            replayRecorder.recordUndo();
         }
-    }
-
-    private void checkRules() {
-
-        // Check if entities are currently moving
-        boolean movingNow = entitiesMoving();
-
-        // An entity moved a tile
-        if (entitiesWereMoving && !movingNow) {
-
-            // Scan static rules if a word moved
-            if (wordMoved) {
-                lHandler.scanForRules();
-            }
-
-            // Re-apply all rules
-            lHandler.resetEntityRuleStates();
-            lHandler.applyStaticRules();
-            lHandler.applyConditionalRules();
-
-            // Check for entity rules if not redo
-            if (!rewinding) {
-                for (Entity e : entities) {
-                    e.checkEntities();
-                }
-            }
+        else if (keyH.yPressed) {
+            keyH.yPressed = false;
+            playSE(2, 0);
 
-            wordMoved = false;
-            rewinding = false;
+            world.redo();
+            replayRecorder.recordRedo();
         }
-
-        entitiesWereMoving = movingNow;
     }
 
     private void checkWin() {
-        if (win && isUploading) {
-            win = false;
+        if (world.win && isUploading) {
+            stopReplay();
+
+            world.win = false;
             isUploading = false;
 
             saveLoad.loadFromData();
@@ -409,7 +299,8 @@ public class GamePanel extends JPanel implements Runnable {
             keyH.startPressed = false;
 
             isUploading = false;
-            lHandler.rulesInitialized = false;
+            stopReplay();
+            world.clearRules();
             saveLoad.loadFromData();
             gameState = editState;
 
@@ -420,81 +311,141 @@ public class GamePanel extends JPanel implements Runnable {
     /**
      * DRAW TO TEMP SCREEN
      * Draws to temporary screen before drawing to front-end
-     * Called by run()
+     * Only tiles whose entities changed since the last frame are repainted while playing
+     * Called by render()
+     * @return Screen regions that were repainted
      */
-    private void drawToTempScreen() {
-        clearBackBuffer();
-        drawGrid();
-        drawEntities();
+    private List<Rectangle> drawToTempScreen() {
+
+        // Menus can change anywhere on screen, repaint everything outside of play
+        if (gameState != playState || gameState != lastDrawnState) {
+            dirtyRegions.invalidateAll();
+        }
+        lastDrawnState = gameState;
+
+        dirtyRegions.track(world.entities);
+
+        List<Rectangle> regions = dirtyRegions.collect();
+        for (Rectangle r : regions) {
+
+            // Restore background and grid, then entities over it
+            g2.setClip(r);
+            g2.drawImage(gridLayer,
+                    r.x, r.y, r.x + r.width, r.y + r.height,
+                    r.x, r.y, r.x + r.width, r.y + r.height, null);
+            drawEntities(r);
+        }
+        g2.setClip(null);
+
         ui.draw(g2);
+
+        return regions;
     }
 
     /**
-     * CLEAR BACK BUFFER
-     * Fills the background with black to eliminate artifacting
-     * Called by drawToTempScreen()
+     * CREATE GRID LAYER
+     * Draws the black background and grid lines once to be copied under entities
+     * Called by setupGame()
+     * @return Cached background layer
      */
-    private void clearBackBuffer() {
-        g2.setColor(Color.BLACK);
-        g2.fillRect(0, 0, screenWidth, screenHeight);
-    }
+    private BufferedImage createGridLayer() {
+
+        BufferedImage layer = new BufferedImage(screenWidth, screenHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = layer.createGraphics();
+
+        // Fill the background with black to eliminate artifacting
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, screenWidth, screenHeight);
 
-    private void drawGrid() {
         // Semi-transparent white
-        g2.setColor(new Color(255, 255, 255, 50));
-        g2.setStroke(new BasicStroke(1));
+        g.setColor(new Color(255, 255, 255, 50));
+        g.setStroke(new BasicStroke(1));
 
         // Vertical lines
-        for (int col = 0; col <= maxWorldCol; col++) {
+        for (int col = 0; col <= world.maxWorldCol; col++) {
             int x = col * tileSize;
-            g2.drawLine(x, 0, x, maxWorldRow * tileSize);
+            g.drawLine(x, 0, x, world.maxWorldRow * tileSize);
         }
 
         // Horizontal lines
-        for (int row = 0; row <= maxWorldRow; row++) {
+        for (int row = 0; row <= world.maxWorldRow; row++) {
             int y = row * tileSize;
-            g2.drawLine(0, y, maxWorldCol * tileSize, y);
+            g.drawLine(0, y, world.maxWorldCol * tileSize, y);
         }
+
+        g.dispose();
+
+        return layer;
     }
 
     /**
-     * Iterates over each entity and calls draw method
+     * Iterates over each render layer and calls draw method on entities overlapping the region
      * Called by drawToTempScreen()
+     * @param r Region being repainted
      */
-    private void drawEntities() {
+    private void drawEntities(Rectangle r) {
+        for (int l = 0; l < renderLayers.getLayerCount(); l++) {
+
+            ArrayList<Entity> layer = renderLayers.getEntities(l);
+            for (int i = 0; i < layer.size(); i++) {
 
-        entities.sort(Comparator.comparingInt(e ->
-                e instanceof ITileEntity ? 0 :
-                        e instanceof ObjectEntity ? 1 :
-                                e instanceof CharacterEntity ? 2 : 3
-        ));
+                Entity e = layer.get(i);
+                Point p = e.getDrawPoint();
 
-        for (Entity e : entities) {
-            e.draw(g2);
+                if (p.x < r.x + r.width && p.x + tileSize > r.x &&
+                        p.y < r.y + r.height && p.y + tileSize > r.y) {
+                    e.draw(g2);
+                }
+            }
         }
     }
 
     /**
      * DRAW TO SCREEN
-     * Draws graphics to screen
-     * Called by run()
+     * Draws graphics to screen, scaling only the regions that were repainted
+     * Called by render()
+     * @param regions Repainted regions, the whole screen is sent if empty
      */
-    private void drawToScreen() {
+    private void drawToScreen(List<Rectangle> regions) {
         Graphics g = getGraphics();
-        g.drawImage(tempScreen, 0, 0, screenWidth2, screenHeight2, null);
+
+        // Nothing repainted (idle refresh), resend the whole frame
+        if (regions.isEmpty()) {
+            g.drawImage(tempScreen, 0, 0, screenWidth2, screenHeight2, null);
+        }
+
+        for (Rectangle r : regions) {
+            int dx1 = r.x * screenWidth2 / screenWidth;
+            int dy1 = r.y * screenHeight2 / screenHeight;
+            int dx2 = (r.x + r.width) * screenWidth2 / screenWidth;
+            int dy2 = (r.y + r.height) * screenHeight2 / screenHeight;
+
+            g.drawImage(tempScreen,
+                    dx1, dy1, dx2, dy2,
+                    r.x, r.y, r.x + r.width, r.y + r.height, null);
+        }
+
         g.dispose();
     }
 
+    /**
+     * STOP REPLAY
+     * Ends the replay being recorded and saves it on a storage thread
+     */
+    private void stopReplay() {
+        Replay replay = replayRecorder.stop(world);
+        if (replay != null) storage.submit("Saving replay", progress -> replayRecorder.save(replay));
+    }
+
     /**
      * RESET LEVEL
      * Resets the current level to starting position
      * Called by KeyHandler
      */
     public void setupLevel() {
-        win = false;
-        stateHandler.clearData();
-        lHandler.clearRules();
-        lHandler.initRules();
+        stopReplay();
+        world.setupLevel();
+        replayRecorder.start(world);
         playMusic(0, song);
     }
 
@@ -523,10 +474,23 @@ public class GamePanel extends JPanel implements Runnable {
         }
     }
 
+    @Override
     public void playSE(int category, int record) {
         se.setFile(category, record);
         se.play();
     }
+    @Override
+    public void entityAdded(Entity e) {
+        renderLayers.add(e);
+    }
+    @Override
+    public void entityRemoved(Entity e) {
+        renderLayers.remove(e);
+    }
+    @Override
+    public void entitiesCleared() {
+        renderLayers.clear();
+    }
     public void playMusic(int category, int record) {
         stopMusic();
         int loopStart = music.getLoopStart(category, record);
@@ -8,6 +8,9 @@ public class KeyHandler implements KeyListener {
     /* GENERAL ATTRIBUTES */
     private boolean lock = true;
 
+    // Set by any key event, cleared when the frame scheduler checks for a redraw
+    private volatile boolean inputReceived = false;
+
     /* BUTTON MAPPING */
     public final int btn_Start = KeyEvent.VK_SPACE;
     public final int btn_UP = KeyEvent.VK_UP;
@@ -44,6 +47,7 @@ public class KeyHandler implements KeyListener {
     @Override
     public void keyPressed(KeyEvent e) {
         int code = e.getKeyCode(); // key pressed by user
+        inputReceived = true;
 
         if (code == btn_UP) {
             upPressed = true;
@@ -85,6 +89,7 @@ public class KeyHandler implements KeyListener {
     @Override
     public void keyReleased(KeyEvent e) {
         int code = e.getKeyCode();
+        inputReceived = true;
 
         if (code == btn_UP) {
             upPressed = false;
@@ -118,4 +123,19 @@ public class KeyHandler implements KeyListener {
             lock = true;
         }
     }
+
+    /**
+     * CONSUME INPUT
+     * Called by GamePanel to decide whether a frame must be redrawn
+     * @return True if a key was pressed or released since the last call
+     */
+    public boolean consumeInput() {
+        boolean received = inputReceived;
+        inputReceived = false;
+        return received;
+    }
+    public boolean anyPressed() {
+        return upPressed || downPressed || leftPressed || rightPressed ||
+                startPressed || aPressed || bPressed || yPressed || xPressed;
+    }
 }
@@ -0,0 +1,259 @@
+package application;
+
+import entity.Entity;
+import entity.WordEntity;
+import rules.Properties;
+
+import java.util.List;
+
+public class NeighborQuery {
+
+    private final World world;
+
+    /**
+     * CONSTRUCTOR
+     * @param world World
+     */
+    public NeighborQuery(World world) {
+        this.world = world;
+    }
+
+    /**
+     * IS ON
+     * @param self Entity asking
+     * @param name Name of the entities looked for
+     * @return True if another entity with the name shares its tile
+     */
+    public boolean isOn(Entity self, String name) {
+        if (!isIndexed()) {
+            for (Entity t : world.nounIndex.getNamed(name)) {
+                if (t != self && t.getPoint().equals(self.getPoint())) return true;
+            }
+            return false;
+        }
+
+        return hasNamedAt(getCol(self), getRow(self), name, self);
+    }
+
+    /**
+     * IS NEAR
+     * @param self Entity asking
+     * @param name Name of the entities looked for
+     * @return True if an entity with the name is on one of the 8 tiles around it, diagonals included
+     */
+    public boolean isNear(Entity self, String name) {
+        if (!isIndexed()) {
+            for (Entity t : world.nounIndex.getNamed(name)) {
+                int dx = Math.abs(t.getPoint().x - self.getPoint().x);
+                int dy = Math.abs(t.getPoint().y - self.getPoint().y);
+
+                if (t != self && dx <= world.tileSize && dy <= world.tileSize && !(dx == 0 && dy == 0)) return true;
+            }
+            return false;
+        }
+
+        int col = getCol(self), row = getRow(self);
+
+        for (int r = row - 1; r <= row + 1; r++) {
+            for (int c = col - 1; c <= col + 1; c++) {
+                if ((c != col || r != row) && hasNamedAt(c, r, name, self)) return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * IS NEXT
+     * @param self Entity asking
+     * @param name Name of the entities looked for
+     * @return True if an entity with the name is on a tile above, below, left or right of it
+     */
+    public boolean isNext(Entity self, String name) {
+        if (!isIndexed()) {
+            for (Entity t : world.nounIndex.getNamed(name)) {
+                int dx = Math.abs(t.getPoint().x - self.getPoint().x);
+                int dy = Math.abs(t.getPoint().y - self.getPoint().y);
+
+                if (t != self && ((dx == world.tileSize && dy == 0) || (dy == world.tileSize && dx == 0))) return true;
+            }
+            return false;
+        }
+
+        int col = getCol(self), row = getRow(self);
+
+        return hasNamedAt(col, row - 1, name, self) || hasNamedAt(col, row + 1, name, self)
+                || hasNamedAt(col - 1, row, name, self) || hasNamedAt(col + 1, row, name, self);
+    }
+
+    /**
+     * IS FACING
+     * @param self Entity asking
+     * @param name Name of the entities looked for
+     * @return True if an entity with the name is on the tile in front of it
+     */
+    public boolean isFacing(Entity self, String name) {
+        int dx = getDirectionX(self.getDirection());
+        int dy = getDirectionY(self.getDirection());
+
+        if (!isIndexed()) {
+            int x = self.getPoint().x + dx * world.tileSize;
+            int y = self.getPoint().y + dy * world.tileSize;
+
+            for (Entity t : world.nounIndex.getNamed(name)) {
+                if (t != self && t.getPoint().x == x && t.getPoint().y == y) return true;
+            }
+            return false;
+        }
+
+        return hasNamedAt(getCol(self) + dx, getRow(self) + dy, name, self);
+    }
+
+    /**
+     * IS SEEING
+     * Walks the tiles in front of the entity to the edge of the board
+     * Sight ends at the first STOP, PUSH or word, in entity list order when a tile
+     *  holds both one of those and an entity with the name
+     * @param self Entity asking
+     * @param name Name of the entities looked for
+     * @return True if an entity with the name is the first thing in sight
+     */
+    public boolean isSeeing(Entity self, String name) {
+        int dx = getDirectionX(self.getDirection());
+        int dy = getDirectionY(self.getDirection());
+
+        if (!isIndexed() || self.getPoint().x % world.tileSize != 0 || self.getPoint().y % world.tileSize != 0) {
+            Entity first = getFirstInSight(self, dx, dy, name);
+            return first != null && !isBlocking(first);
+        }
+
+        int col = getCol(self) + dx;
+        int row = getRow(self) + dy;
+
+        while (col >= 0 && col < world.maxWorldCol && row >= 0 && row < world.maxWorldRow) {
+
+            // Stack order is not entity list order, the entity added first decides
+            Entity first = getFirstAt(world.tileGrid.getEntitiesAt(col, row), name, null);
+            first = getFirstAt(world.tileGrid.getDeadAt(col, row), name, first);
+
+            if (first != null) return !isBlocking(first);
+
+            col += dx;
+            row += dy;
+        }
+
+        return false;
+    }
+
+    /**
+     * GET FIRST IN SIGHT
+     * Finds what sight ends on in one pass over the entity list, the nearest tile wins and
+     *  on the same tile the entity list order decides
+     * A pass per tile walked made SEEING quadratic on large boards
+     * @param self Entity asking
+     * @param dx Step in columns
+     * @param dy Step in rows
+     * @param name Name of the entities looked for
+     * @return First STOP, PUSH, word or entity with the name in sight, null if there is none
+     */
+    private Entity getFirstInSight(Entity self, int dx, int dy, String name) {
+        int x = self.getPoint().x, y = self.getPoint().y;
+        if (world.cChecker.isOutOfBounds(x + dx * world.tileSize, y + dy * world.tileSize)) return null;
+
+        Entity first = null;
+        int nearest = Integer.MAX_VALUE;
+
+        for (int i = 0; i < world.entities.size(); i++) {
+            Entity e = world.entities.get(i);
+            if (!isBlocking(e) && !e.getName().equals(name)) continue;
+
+            // Tiles ahead only, on the line the entity faces
+            int offX = e.getPoint().x - x, offY = e.getPoint().y - y;
+            int steps = dx != 0 ? offX / (dx * world.tileSize) : offY / (dy * world.tileSize);
+            if (steps <= 0 || steps >= nearest) continue;
+            if (offX != steps * dx * world.tileSize || offY != steps * dy * world.tileSize) continue;
+            if (world.cChecker.isOutOfBounds(e.getPoint().x, e.getPoint().y)) continue;
+
+            first = e;
+            nearest = steps;
+        }
+
+        return first;
+    }
+
+    /**
+     * GET FIRST AT
+     * @param stack Entities on a tile
+     * @param name Name of the entities looked for
+     * @param first First STOP, PUSH, word or entity with the name found so far, or null
+     * @return Whichever of those comes first in entity list order
+     */
+    private Entity getFirstAt(List<Entity> stack, String name, Entity first) {
+        for (int i = 0; i < stack.size(); i++) {
+            Entity e = stack.get(i);
+            if (!isBlocking(e) && !e.getName().equals(name)) continue;
+
+            if (first == null || e.getListOrder() < first.getListOrder()) first = e;
+        }
+
+        return first;
+    }
+
+    private boolean isBlocking(Entity e) {
+        return e.has(Properties.STOP) || e.has(Properties.PUSH) || e instanceof WordEntity;
+    }
+
+    /**
+     * HAS NAMED AT
+     * @param col Tile column
+     * @param row Tile row
+     * @param name Name of the entities looked for
+     * @param self Entity asking, never counted
+     * @return True if an entity with the name other than self is on the tile, dead ones
+     *  awaiting removal included
+     */
+    public boolean hasNamedAt(int col, int row, String name, Entity self) {
+        return hasNamedIn(world.tileGrid.getEntitiesAt(col, row), name, self)
+                || hasNamedIn(world.tileGrid.getDeadAt(col, row), name, self);
+    }
+    private boolean hasNamedIn(List<Entity> stack, String name, Entity self) {
+        for (int i = 0; i < stack.size(); i++) {
+            Entity e = stack.get(i);
+            if (e != self && e.getName().equals(name)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * IS INDEXED
+     * Tile lookups only find entities on a tile or dead on one, while entities between
+     *  tiles still count for rules by their point
+     * @return True if every entity in the level is on its tile
+     */
+    private boolean isIndexed() {
+        return world.tileGrid.getIndexedCount() + world.tileGrid.getDeadCount() == world.entities.size();
+    }
+
+    private int getCol(Entity e) {
+        return e.getPoint().x / world.tileSize;
+    }
+    private int getRow(Entity e) {
+        return e.getPoint().y / world.tileSize;
+    }
+
+    private int getDirectionX(World.Direction direction) {
+        return switch (direction) {
+            case LEFT -> -1;
+            case RIGHT -> 1;
+            default -> 0;
+        };
+    }
+    private int getDirectionY(World.Direction direction) {
+        return switch (direction) {
+            case UP -> -1;
+            case DOWN -> 1;
+            default -> 0;
+        };
+    }
+}
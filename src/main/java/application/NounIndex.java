@@ -0,0 +1,102 @@
+package application;
+
+import entity.Entity;
+import entity.WordEntity;
+
+import java.util.*;
+
+public class NounIndex {
+
+    // Subject that every word answers to
+    public static final String TEXT = "TEXT";
+
+    // Entities by name, each in the order of the world entity list
+    private final Map<String, Noun> nouns = new HashMap<>();
+    private final Noun words = new Noun();
+
+    /**
+     * NOUN
+     * Entities of one name in the order they joined, removed without a scan
+     * The list handed out is built again on the first read after a removal
+     */
+    private static class Noun {
+        private final Set<Entity> entities = new LinkedHashSet<>();
+        private final ArrayList<Entity> list = new ArrayList<>();
+        private boolean removed = false;
+
+        void add(Entity e) {
+            if (entities.add(e) && !removed) list.add(e);
+        }
+        void remove(Entity e) {
+            if (entities.remove(e)) removed = true;
+        }
+        void clear() {
+            entities.clear();
+            list.clear();
+            removed = false;
+        }
+
+        List<Entity> getList() {
+            if (removed) {
+                list.clear();
+                list.addAll(entities);
+                removed = false;
+            }
+            return list;
+        }
+    }
+
+    /**
+     * ADD
+     * Called whenever an entity joins the world entity list
+     * @param e Entity added to the level
+     */
+    public void add(Entity e) {
+        nouns.computeIfAbsent(e.getName(), _ -> new Noun()).add(e);
+
+        if (e instanceof WordEntity) {
+            words.add(e);
+        }
+    }
+
+    /**
+     * REMOVE
+     * Called whenever an entity leaves the world entity list, dead or deleted
+     * @param e Entity removed from the level
+     */
+    public void remove(Entity e) {
+        Noun noun = nouns.get(e.getName());
+        if (noun != null) {
+            noun.remove(e);
+        }
+
+        if (e instanceof WordEntity) {
+            words.remove(e);
+        }
+    }
+
+    public void clear() {
+        nouns.clear();
+        words.clear();
+    }
+
+    /**
+     * GET SUBJECTS
+     * Entities a rule with the given subject applies to
+     * @param subject Name from a rule, TEXT for every word
+     * @return Matching entities in entity list order, not to be modified
+     */
+    public List<Entity> getSubjects(String subject) {
+        return TEXT.equals(subject) ? words.getList() : getNamed(subject);
+    }
+
+    /**
+     * GET NAMED
+     * @param name Entity name
+     * @return Entities with exactly the given name in entity list order, not to be modified
+     */
+    public List<Entity> getNamed(String name) {
+        Noun noun = nouns.get(name);
+        return noun != null ? noun.getList() : List.of();
+    }
+}
@@ -0,0 +1,62 @@
+package application;
+
+import entity.CharacterEntity;
+import entity.Entity;
+import entity.ITileEntity;
+import entity.ObjectEntity;
+
+import java.util.ArrayList;
+
+public class RenderLayers {
+
+    /* LAYERS (drawn bottom to top) */
+    private static final int I_TILES = 0;
+    private static final int OBJECTS = 1;
+    private static final int CHARACTERS = 2;
+    private static final int WORDS = 3;
+
+    private final ArrayList<ArrayList<Entity>> layers = new ArrayList<>();
+
+    /**
+     * CONSTRUCTOR
+     */
+    public RenderLayers() {
+        for (int i = 0; i <= WORDS; i++) {
+            layers.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * ADD
+     * Places the entity on top of its layer
+     * Called when an entity enters the world
+     * @param e Entity added
+     */
+    public void add(Entity e) {
+        layers.get(getLayer(e)).add(e);
+    }
+    public void remove(Entity e) {
+        layers.get(getLayer(e)).remove(e);
+    }
+    public void clear() {
+        for (ArrayList<Entity> layer : layers) {
+            layer.clear();
+        }
+    }
+
+    private int getLayer(Entity e) {
+        return switch (e) {
+            case ITileEntity _ -> I_TILES;
+            case ObjectEntity _ -> OBJECTS;
+            case CharacterEntity _ -> CHARACTERS;
+            default -> WORDS;
+        };
+    }
+
+    public int getLayerCount() {
+        return layers.size();
+    }
+    public ArrayList<Entity> getEntities(int layer) {
+        return layers.get(layer);
+    }
+}
@@ -0,0 +1,206 @@
+package application;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+public class SpriteAtlas {
+
+    // Sprite folders packed into the atlas
+    private static final String[] LIBRARIES = {"characters", "objects", "words", "i_tiles"};
+
+    // One atlas per tile size, sprites are scaled to it when packed
+    private static final Map<Integer, SpriteAtlas> instances = new HashMap<>();
+
+    private final int tileSize;
+
+    // Image path (without .png) mapped to its scaled sprite
+    private final Map<String, BufferedImage> sprites = new ConcurrentHashMap<>();
+    private BufferedImage atlas;
+
+    /* CACHE STATISTICS */
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * GET INSTANCE
+     * Returns the process-wide atlas for the given tile size, building it on first use
+     * @param tileSize Size every sprite is scaled to
+     * @return Shared sprite atlas of that tile size
+     */
+    public static synchronized SpriteAtlas getInstance(int tileSize) {
+        return instances.computeIfAbsent(tileSize, SpriteAtlas::new);
+    }
+
+    private SpriteAtlas(int tileSize) {
+        this.tileSize = tileSize;
+        packAtlas();
+    }
+
+    /**
+     * PACK ATLAS
+     * Decodes every sprite in the entity folders once, scales it to tileSize
+     * and copies it into a single shared image
+     * Called by constructor
+     */
+    private void packAtlas() {
+
+        List<String> paths = new ArrayList<>();
+        for (String library : LIBRARIES) {
+            paths.addAll(getSpritePaths(library));
+        }
+
+        if (paths.isEmpty()) return;
+
+        // Square-ish grid of tiles
+        int cols = (int) Math.ceil(Math.sqrt(paths.size()));
+        int rows = (paths.size() + cols - 1) / cols;
+
+        atlas = new BufferedImage(cols * tileSize, rows * tileSize, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = atlas.createGraphics();
+
+        int index = 0;
+        for (String path : paths) {
+
+            BufferedImage image = decode(path);
+            if (image == null) continue;
+
+            int x = (index % cols) * tileSize;
+            int y = (index / cols) * tileSize;
+
+            // Draw scaled sprite into its slot, entities share the sub-image
+            g2.drawImage(image, x, y, tileSize, tileSize, null);
+            sprites.put(path, atlas.getSubimage(x, y, tileSize, tileSize));
+
+            index++;
+        }
+
+        g2.dispose();
+    }
+
+    /**
+     * GET SPRITE PATHS
+     * Lists the sprites inside the given resource folder
+     * @param library Resource folder name
+     * @return Sprite paths in the form "/library/name"
+     */
+    private List<String> getSpritePaths(String library) {
+
+        List<String> paths = new ArrayList<>();
+
+        try {
+            boolean runningFromJar =
+                    Driver.class.getProtectionDomain()
+                            .getCodeSource()
+                            .getLocation()
+                            .getPath()
+                            .endsWith(".jar");
+
+            if (runningFromJar) {
+                String jarPath = new File(
+                        Driver.class.getProtectionDomain()
+                                .getCodeSource()
+                                .getLocation()
+                                .toURI()
+                ).getPath();
+
+                JarFile jarFile = new JarFile(jarPath);
+                Enumeration<JarEntry> entries = jarFile.entries();
+
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+
+                    if (entry.getName().startsWith(library + "/") && entry.getName().endsWith(".png")) {
+                        paths.add("/" + entry.getName().replace(".png", ""));
+                    }
+                }
+
+                jarFile.close();
+            }
+            else {
+                File folder = new File(
+                        Objects.requireNonNull(
+                                getClass().getClassLoader()
+                                        .getResource(library)
+                        ).toURI()
+                );
+
+                for (File f : Objects.requireNonNull(folder.listFiles())) {
+                    if (f.getName().endsWith(".png")) {
+                        paths.add("/" + library + "/" + f.getName().replace(".png", ""));
+                    }
+                }
+            }
+        }
+        catch (Exception e) {
+            System.out.println("Error listing sprites: " + e.getMessage());
+        }
+
+        return paths;
+    }
+
+    /**
+     * GET SPRITE
+     * Returns the shared, pre-scaled sprite for the given path
+     * Sprites outside the atlas are decoded once and cached on their own
+     * @param imagePath Path to image file (without .png)
+     * @return Scaled image, null if it could not be loaded
+     */
+    public BufferedImage getSprite(String imagePath) {
+
+        BufferedImage sprite = sprites.get(imagePath);
+        if (sprite != null) {
+            hits.incrementAndGet();
+            return sprite;
+        }
+
+        sprite = decode(imagePath);
+        if (sprite == null) return null;
+
+        sprite = GamePanel.utility.scaleImage(sprite, tileSize, tileSize);
+        BufferedImage existing = sprites.putIfAbsent(imagePath, sprite);
+
+        return existing != null ? existing : sprite;
+    }
+
+    private BufferedImage decode(String imagePath) {
+        misses.incrementAndGet();
+
+        try (InputStream is = getClass().getResourceAsStream(imagePath + ".png")) {
+            return ImageIO.read(Objects.requireNonNull(is));
+        }
+        catch (Exception e) {
+            System.out.println("Error loading image:" + e.getMessage());
+            return null;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+    public long getMisses() {
+        return misses.get();
+    }
+    public int getSpriteCount() {
+        return sprites.size();
+    }
+    public BufferedImage getAtlas() {
+        return atlas;
+    }
+
+    public String toString() {
+        return sprites.size() + " sprites [" + hits.get() + " hits, " + misses.get() + " misses]";
+    }
+}
@@ -0,0 +1,291 @@
+package application;
+
+import entity.Entity;
+import entity.WordEntity;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+public class TileGrid {
+
+    private final World world;
+
+    // One stack of entities per tile, indexed by (row * cols + col)
+    private final ArrayList<ArrayList<Entity>> cells = new ArrayList<>();
+    private int cols, rows;
+
+    // Entities currently on a tile, across all tiles
+    private int indexed = 0;
+
+    // Dead entities still in the entity list by the tile they died on, rules count them until removal
+    private final HashMap<Integer, ArrayList<Entity>> dead = new HashMap<>();
+    private int deadCount = 0;
+
+    // Columns and rows a word entered or left since the last rule scan
+    private final BitSet dirtyCols = new BitSet();
+    private final BitSet dirtyRows = new BitSet();
+
+    // Tiles any entity entered or left since the last rule pass, with their columns and rows
+    private final BitSet touchedCells = new BitSet();
+    private final BitSet touchedCols = new BitSet();
+    private final BitSet touchedRows = new BitSet();
+
+    /**
+     * CONSTRUCTOR
+     * @param world World
+     */
+    public TileGrid(World world) {
+        this.world = world;
+        resize(world.maxWorldCol, world.maxWorldRow);
+        markAllDirty();
+    }
+
+    /**
+     * CLEAR
+     * Empties every tile and detaches the entities currently in the level
+     * Called before the entity list is cleared or reloaded
+     */
+    public void clear() {
+        for (Entity e : world.entities) {
+            e.setOnGrid(false);
+            e.setGridCell(-1);
+        }
+
+        resize(world.maxWorldCol, world.maxWorldRow);
+        markAllDirty();
+    }
+
+    private void resize(int cols, int rows) {
+        dead.clear();
+        deadCount = 0;
+
+        // Same dimensions, reuse existing tile lists
+        if (this.cols == cols && this.rows == rows) {
+            for (ArrayList<Entity> cell : cells) {
+                cell.clear();
+            }
+            indexed = 0;
+            return;
+        }
+
+        indexed = 0;
+
+        this.cols = cols;
+        this.rows = rows;
+
+        cells.clear();
+        for (int i = 0; i < cols * rows; i++) {
+            cells.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * ADD
+     * Starts tracking the given entity at its current tile
+     * Called whenever an entity enters the level
+     * @param e Entity added to the level
+     */
+    public void add(Entity e) {
+        e.setOnGrid(true);
+        e.setGridCell(-1);
+        update(e);
+    }
+
+    /**
+     * REMOVE
+     * Stops tracking the given entity
+     * Called whenever an entity dies or leaves the level
+     * @param e Entity removed from the level
+     */
+    public void remove(Entity e) {
+        if (e.getGridCell() != -1) {
+            cells.get(e.getGridCell()).remove(e);
+            indexed--;
+
+            // Killed, stays in the entity list until the end of the frame
+            if (!e.getAlive()) {
+                dead.computeIfAbsent(e.getGridCell(), cell -> new ArrayList<>()).add(e);
+                deadCount++;
+            }
+            markDirty(e, e.getGridCell());
+            markTouched(e.getGridCell());
+        }
+
+        e.setOnGrid(false);
+        e.setGridCell(-1);
+    }
+
+    /**
+     * UPDATE
+     * Moves the entity to the tile matching its current point
+     * Entities between tiles are not indexed until they land
+     * @param e Entity whose point changed
+     */
+    public void update(Entity e) {
+        if (!e.getOnGrid()) return;
+
+        int cell = getCell(e.getPoint().x, e.getPoint().y);
+        if (cell == e.getGridCell()) return;
+
+        if (e.getGridCell() != -1) {
+            cells.get(e.getGridCell()).remove(e);
+            indexed--;
+            markDirty(e, e.getGridCell());
+            markTouched(e.getGridCell());
+        }
+        if (cell != -1) {
+            cells.get(cell).add(e);
+            indexed++;
+            markDirty(e, cell);
+            markTouched(cell);
+        }
+
+        e.setGridCell(cell);
+    }
+
+    /**
+     * MARK DIRTY
+     * Flags the column and row of the given tile for a rule rescan
+     * Only words can change rules, other entities are ignored
+     * @param e Entity that entered or left the tile
+     * @param cell Tile index
+     */
+    private void markDirty(Entity e, int cell) {
+        if (!(e instanceof WordEntity)) return;
+
+        dirtyCols.set(cell % cols);
+        dirtyRows.set(cell / cols);
+    }
+    public void markAllDirty() {
+        dirtyCols.set(0, cols);
+        dirtyRows.set(0, rows);
+    }
+    public void clearDirty() {
+        dirtyCols.clear();
+        dirtyRows.clear();
+    }
+    public BitSet getDirtyCols() {
+        return dirtyCols;
+    }
+    public BitSet getDirtyRows() {
+        return dirtyRows;
+    }
+
+    /**
+     * TOUCH
+     * Flags the tile at the entity's point for the next rule pass
+     * Dead entities are off the grid but still count for rules until they leave the entity list
+     * @param e Entity leaving the entity list
+     */
+    public void touch(Entity e) {
+        int cell = getCell(e.getPoint().x, e.getPoint().y);
+        if (cell != -1) {
+            markTouched(cell);
+
+            ArrayList<Entity> buried = dead.get(cell);
+            if (buried != null && buried.remove(e)) {
+                deadCount--;
+                if (buried.isEmpty()) dead.remove(cell);
+            }
+        }
+    }
+    private void markTouched(int cell) {
+        touchedCells.set(cell);
+        touchedCols.set(cell % cols);
+        touchedRows.set(cell / cols);
+    }
+    public void clearTouched() {
+        touchedCells.clear();
+        touchedCols.clear();
+        touchedRows.clear();
+    }
+    public BitSet getTouchedCells() {
+        return touchedCells;
+    }
+    public BitSet getTouchedCols() {
+        return touchedCols;
+    }
+    public BitSet getTouchedRows() {
+        return touchedRows;
+    }
+
+    /**
+     * GET ENTITIES AT
+     * Returns the live stack of entities sitting on the given tile
+     * The list must not be modified by the caller
+     * @param col Tile column
+     * @param row Tile row
+     * @return Entities on the tile, empty if out of bounds
+     */
+    public List<Entity> getEntitiesAt(int col, int row) {
+        if (col < 0 || col >= cols || row < 0 || row >= rows) {
+            return List.of();
+        }
+
+        return cells.get(row * cols + col);
+    }
+
+    /**
+     * GET ENTITIES AT POINT
+     * Returns the live stack of entities at the given world X/Y
+     * @param x World X
+     * @param y World Y
+     * @return Entities on the tile, empty if X/Y is between tiles or out of bounds
+     */
+    public List<Entity> getEntitiesAtPoint(int x, int y) {
+        int cell = getCell(x, y);
+        return cell == -1 ? List.of() : cells.get(cell);
+    }
+
+    /**
+     * GET DEAD AT
+     * Returns the dead entities that died on the given tile and are still in the entity list
+     * The list must not be modified by the caller
+     * @param col Tile column
+     * @param row Tile row
+     * @return Dead entities on the tile, empty if there are none or out of bounds
+     */
+    public List<Entity> getDeadAt(int col, int row) {
+        if (deadCount == 0 || col < 0 || col >= cols || row < 0 || row >= rows) {
+            return List.of();
+        }
+
+        ArrayList<Entity> buried = dead.get(row * cols + col);
+        return buried == null ? List.of() : buried;
+    }
+
+    /**
+     * GET INDEXED COUNT
+     * Together with the dead count, equal to the entity list size when no entity in the
+     *  level is between tiles
+     * @return Number of entities on a tile
+     */
+    public int getIndexedCount() {
+        return indexed;
+    }
+    public int getDeadCount() {
+        return deadCount;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+    public int getRows() {
+        return rows;
+    }
+
+    private int getCell(int x, int y) {
+
+        // Only tile-aligned positions are indexed
+        if (x % world.tileSize != 0 || y % world.tileSize != 0) return -1;
+
+        int col = x / world.tileSize;
+        int row = y / world.tileSize;
+
+        if (col < 0 || col >= cols || row < 0 || row >= rows) return -1;
+
+        return row * cols + col;
+    }
+}
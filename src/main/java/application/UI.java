@@ -1,14 +1,16 @@
 package application;
 
+import data.AsyncStorage;
+import data.DataStorage;
 import entity.Entity;
 import entity.UIEntity;
+import solver.Solver;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 public class UI {
@@ -38,9 +40,26 @@ public class UI {
     private Map<String, String> usersList = new HashMap<>();
     private boolean viewingUserLevels = false;
 
+    /* USER DIRECTORY PAGING */
+    private String usersPageToken = null;
+    private String nextUsersPageToken = null;
+    private final Deque<String> previousUsersPageTokens = new ArrayDeque<>();
+
+    /* STORAGE REQUESTS */
+    private record Pending<T>(AsyncStorage.Task<T> task, Consumer<T> onDone) {
+        void finish() {
+            T result = task.getResult();
+            if (result != null) onDone.accept(result);
+        }
+    }
+    private Pending<?> pending;
+
     private boolean isSaving;
     private boolean isLoading;
 
+    // Last solver run, shown until the window is closed
+    private Solver.Result solverResult;
+
     public String textInput = "";
     private final Map<Integer, String> keyboard = new LinkedHashMap<>();
     private boolean capital = true;
@@ -60,12 +79,12 @@ public class UI {
 
     private void fillEntityLibrary() {
         entityLibrary.addAll(Arrays.asList(
-                buildFromFactory("words", gp.eGenerator.wordNounFactory),
-                buildFromFactory("words", gp.eGenerator.wordPrepFactory),
-                buildFromFactory("words", gp.eGenerator.wordPropFactory),
+                buildFromFactory("words", gp.world.eGenerator.wordNounFactory),
+                buildFromFactory("words", gp.world.eGenerator.wordPrepFactory),
+                buildFromFactory("words", gp.world.eGenerator.wordPropFactory),
                 buildITilesLibraryList(),
-                buildFromFactory("objects", gp.eGenerator.objectFactory),
-                buildFromFactory("characters", gp.eGenerator.characterFactory)
+                buildFromFactory("objects", gp.world.eGenerator.objectFactory),
+                buildFromFactory("characters", gp.world.eGenerator.characterFactory)
         ));
     }
     private ArrayList<UIEntity> buildFromFactory(String path, Map<String, ? extends Supplier<Entity>> factory) {
@@ -125,10 +144,34 @@ public class UI {
         this.g2 = g2;
 
         if (gp.gameState == gp.editState) {
-            drawEditState();
+
+            // Storage call finished, apply its result on this thread
+            if (pending != null && pending.task().isDone()) {
+                Pending<?> done = pending;
+                pending = null;
+                done.finish();
+            }
+
+            // Menus wait while a storage call is running
+            if (pending != null) {
+                drawEditing_Waiting();
+            }
+            else {
+                drawEditState();
+            }
         }
     }
 
+    /**
+     * AWAIT
+     * Shows the loading window until a storage call finishes
+     * @param task Running storage call
+     * @param onDone Applies the result, skipped if the call failed or was cancelled
+     */
+    private <T> void await(AsyncStorage.Task<T> task, Consumer<T> onDone) {
+        pending = new Pending<>(task, onDone);
+    }
+
     private void drawEditState() {
         // LEVEL CREATION
         if (subState == 0) {
@@ -178,6 +221,10 @@ public class UI {
         else if (subState == 5) {
             drawEditing_Settings();
         }
+        // SOLVER RESULT
+        else if (subState == 6) {
+            drawEditing_Solved();
+        }
     }
 
     private void drawEditing_Pause() {
@@ -188,7 +235,7 @@ public class UI {
         int x = gp.tileSize;
         int y = gp.tileSize;
         int width = gp.tileSize * 4;
-        int height = (int) (gp.tileSize * 6.5);
+        int height = (int) (gp.tileSize * 7.5);
         drawSubWindow(x, y, width, height);
 
         x = gp.tileSize * 2;
@@ -231,11 +278,11 @@ public class UI {
             if (gp.keyH.aPressed) {
                 gp.keyH.aPressed = false;
 
-                usersList = gp.db.getAllUsers();
-                if (usersList == null || usersList.isEmpty()) return;
-
-                commandNum = 0;
-                subState = 4;
+                previousUsersPageTokens.clear();
+                loadUsersPage(null, () -> {
+                    commandNum = 0;
+                    subState = 4;
+                });
             }
         }
 
@@ -264,6 +311,17 @@ public class UI {
             }
         }
 
+        // SOLVE
+        y += gp.tileSize;
+        g2.drawString("Solve", x, y);
+        if (commandNum == 5) {
+            g2.drawString(">", x - 25, y);
+            if (gp.keyH.aPressed) {
+                gp.keyH.aPressed = false;
+                solveLevel();
+            }
+        }
+
         if (gp.keyH.bPressed || gp.keyH.startPressed) {
             gp.keyH.bPressed = false;
             gp.keyH.startPressed = false;
@@ -283,8 +341,8 @@ public class UI {
             gp.keyH.downPressed = false;
 
             commandNum++;
-            if (commandNum > 4) {
-                commandNum = 4;
+            if (commandNum > 5) {
+                commandNum = 5;
             }
         }
     }
@@ -296,7 +354,7 @@ public class UI {
         int x = gp.tileSize;
         int y = gp.tileSize;
         int width = gp.tileSize * 4;
-        int height = (int) (gp.tileSize * 10.5);
+        int height = (int) (gp.tileSize * 11.5);
         drawSubWindow(x, y, width, height);
 
         x = gp.tileSize * 2;
@@ -339,13 +397,15 @@ public class UI {
             if (gp.keyH.aPressed) {
                 gp.keyH.aPressed = false;
 
-                gp.saveFiles = gp.db.getUserLevels(gp.auth.getUserId());
-                if (gp.saveFiles == null || gp.saveFiles.isEmpty()) return;
+                await(gp.storage.getUserLevels(gp.auth.getUserId()), levels -> {
+                    gp.saveFiles = levels;
+                    if (gp.saveFiles.isEmpty()) return;
 
-                isSaving = false;
-                isLoading = true;
-                commandNum = 0;
-                subState = 2;
+                    isSaving = false;
+                    isLoading = true;
+                    commandNum = 0;
+                    subState = 2;
+                });
             }
         }
 
@@ -357,13 +417,15 @@ public class UI {
             if (gp.keyH.aPressed) {
                 gp.keyH.aPressed = false;
 
-                gp.saveFiles = gp.db.getUserLevels(gp.auth.getUserId());
-                if (gp.saveFiles == null || gp.saveFiles.isEmpty()) return;
+                await(gp.storage.getUserLevels(gp.auth.getUserId()), levels -> {
+                    gp.saveFiles = levels;
+                    if (gp.saveFiles.isEmpty()) return;
 
-                isSaving = true;
-                isLoading = false;
-                commandNum = 0;
-                subState = 2;
+                    isSaving = true;
+                    isLoading = false;
+                    commandNum = 0;
+                    subState = 2;
+                });
             }
         }
 
@@ -375,13 +437,15 @@ public class UI {
             if (gp.keyH.aPressed) {
                 gp.keyH.aPressed = false;
 
-                gp.saveFiles = gp.db.getUserLevels(gp.auth.getUserId());
-                if (gp.saveFiles == null || gp.saveFiles.isEmpty()) return;
+                await(gp.storage.getUserLevels(gp.auth.getUserId()), levels -> {
+                    gp.saveFiles = levels;
+                    if (gp.saveFiles.isEmpty()) return;
 
-                isSaving = false;
-                isLoading = false;
-                commandNum = 0;
-                subState = 2;
+                    isSaving = false;
+                    isLoading = false;
+                    commandNum = 0;
+                    subState = 2;
+                });
             }
         }
 
@@ -411,11 +475,11 @@ public class UI {
             if (gp.keyH.aPressed) {
                 gp.keyH.aPressed = false;
 
-                usersList = gp.db.getAllUsers();
-                if (usersList == null || usersList.isEmpty()) return;
-
-                commandNum = 0;
-                subState = 4;
+                previousUsersPageTokens.clear();
+                loadUsersPage(null, () -> {
+                    commandNum = 0;
+                    subState = 4;
+                });
             }
         }
 
@@ -444,6 +508,17 @@ public class UI {
             }
         }
 
+        // SOLVE
+        y += gp.tileSize;
+        g2.drawString("Solve", x, y);
+        if (commandNum == 9) {
+            g2.drawString(">", x - 25, y);
+            if (gp.keyH.aPressed) {
+                gp.keyH.aPressed = false;
+                solveLevel();
+            }
+        }
+
         if (gp.keyH.bPressed || gp.keyH.startPressed) {
             gp.keyH.bPressed = false;
             gp.keyH.startPressed = false;
@@ -463,12 +538,75 @@ public class UI {
             gp.keyH.downPressed = false;
 
             commandNum++;
-            if (commandNum > 8) {
-                commandNum = 8;
+            if (commandNum > 9) {
+                commandNum = 9;
             }
         }
     }
 
+    /**
+     * SOLVE LEVEL
+     * Searches for the fewest moves that win the level being edited, off the game thread
+     * Called by the pause menus
+     */
+    private void solveLevel() {
+        gp.saveLoad.saveToData("temp");
+        DataStorage ds = gp.levelProgress;
+
+        await(gp.storage.compute("Solving level", progress -> new Solver(ds).solve(progress)), result -> {
+            solverResult = result;
+            commandNum = 0;
+            subState = 6;
+        });
+    }
+
+    private void drawEditing_Solved() {
+
+        g2.setColor(Color.WHITE);
+        g2.setFont(g2.getFont().deriveFont(Font.PLAIN, 32F));
+
+        int x = gp.tileSize * 2;
+        int y = gp.tileSize * 2;
+        int width = gp.tileSize * 16;
+        int height = gp.tileSize * 7;
+        drawSubWindow(x, y, width, height);
+
+        x = gp.tileSize * 3;
+        y = gp.tileSize * 3;
+
+        // OUTCOME
+        if (solverResult.isSolved()) {
+            g2.drawString("Solved in " + solverResult.moves().size() + " moves", x, y);
+
+            // Moves as first letters, wrapped to fit the window
+            StringBuilder moves = new StringBuilder();
+            for (World.Direction d : solverResult.moves()) moves.append(d.name().charAt(0));
+
+            for (int i = 0; i < moves.length() && i < 84; i += 28) {
+                y += gp.tileSize;
+                g2.drawString(moves.substring(i, Math.min(moves.length(), i + 28)), x, y);
+            }
+        }
+        else {
+            g2.drawString(solverResult.complete() ? "No solution" : "No solution within the search limit", x, y);
+        }
+
+        // STATS
+        y += (int) (gp.tileSize * 1.5);
+        g2.drawString(solverResult.states() + " states, " + solverResult.getStatesPerSecond() + " states/s", x, y);
+
+        y += gp.tileSize;
+        g2.drawString("B) Back", x, y);
+
+        if (gp.keyH.bPressed || gp.keyH.startPressed) {
+            gp.keyH.bPressed = false;
+            gp.keyH.startPressed = false;
+
+            commandNum = 0;
+            subState = 1;
+        }
+    }
+
     private void drawEditing_SaveLoadDelete() {
 
         if (gp.saveFiles.isEmpty() && !isSaving) return;
@@ -528,13 +666,16 @@ public class UI {
                                 entry.getValue().substring(0, entry.getValue().indexOf(" [")) :
                                 entry.getValue();
 
-                        gp.saveLoad.save(lvlName, entry.getKey());
+                        await(gp.storage.save(lvlName, entry.getKey()), path -> { });
                     }
                     else if (isLoading) {
-                        gp.saveLoad.load(entry.getKey());
+                        await(gp.storage.load(entry.getKey()), ds -> {
+                            gp.levelProgress = ds;
+                            gp.saveLoad.loadFromData();
+                        });
                     }
                     else {
-                        gp.saveLoad.delete(entry.getKey());
+                        await(gp.storage.delete(entry.getKey()), path -> { });
                     }
 
                     gp.saveFiles.clear();
@@ -588,6 +729,26 @@ public class UI {
         handleKeyboardInput();
     }
 
+    /**
+     * LOAD USERS PAGE
+     * Replaces the user list with one page of the user directory
+     * Pages left empty by skipping the logged-in user are passed over
+     * The current page stays up if the directory could not be read or had no one else in it
+     * @param pageToken Token of the page to load, null for the first page
+     * @param onLoaded Run once the new page is showing
+     */
+    private void loadUsersPage(String pageToken, Runnable onLoaded) {
+        await(gp.storage.getUsers(pageToken), page -> {
+            if (page.users().isEmpty()) return;
+
+            usersList = page.users();
+            usersPageToken = page.pageToken();
+            nextUsersPageToken = page.nextPageToken();
+
+            onLoaded.run();
+        });
+    }
+
     private void drawEditing_Users() {
 
         if (usersList == null || usersList.isEmpty()) return;
@@ -598,7 +759,7 @@ public class UI {
         int x = gp.tileSize * 2;
         int y = gp.tileSize * 2;
         int width = gp.tileSize * 20;
-        int height = (int) ((gp.tileSize * .95) * (usersList.size() + 1));
+        int height = (int) ((gp.tileSize * .95) * (usersList.size() + 2));
         drawSubWindow(x, y, width, height);
 
         x = gp.tileSize * 3;
@@ -618,13 +779,15 @@ public class UI {
                 if (gp.keyH.aPressed) {
                     gp.keyH.aPressed = false;
 
-                    gp.saveFiles = gp.db.getUserLevels(entry.getKey());
+                    await(gp.storage.getUserLevels(entry.getKey()), levels -> {
+                        gp.saveFiles = levels;
 
-                    viewingUserLevels = true;
-                    isSaving = false;
-                    isLoading = true;
-                    commandNum = 0;
-                    subState = 2;
+                        viewingUserLevels = true;
+                        isSaving = false;
+                        isLoading = true;
+                        commandNum = 0;
+                        subState = 2;
+                    });
                 }
             }
 
@@ -632,6 +795,12 @@ public class UI {
             y += gp.tileSize;
         }
 
+        // PAGE NUMBER
+        text = (previousUsersPageTokens.isEmpty() ? "  " : "< ") +
+                "Page " + (previousUsersPageTokens.size() + 1) +
+                (nextUsersPageToken == null ? "" : " >");
+        g2.drawString(text, x, y);
+
         if (gp.keyH.bPressed || gp.keyH.startPressed) {
             gp.keyH.bPressed = false;
             gp.keyH.startPressed = false;
@@ -639,6 +808,31 @@ public class UI {
             subState = 1;
         }
 
+        // Next page
+        if (gp.keyH.rightPressed) {
+            gp.keyH.rightPressed = false;
+
+            String currentToken = usersPageToken;
+            if (nextUsersPageToken != null) {
+                loadUsersPage(nextUsersPageToken, () -> {
+                    previousUsersPageTokens.push(currentToken == null ? "" : currentToken);
+                    commandNum = 0;
+                });
+            }
+        }
+        // Previous page
+        else if (gp.keyH.leftPressed) {
+            gp.keyH.leftPressed = false;
+
+            if (!previousUsersPageTokens.isEmpty()) {
+                String token = previousUsersPageTokens.peek();
+                loadUsersPage(token.isEmpty() ? null : token, () -> {
+                    previousUsersPageTokens.pop();
+                    commandNum = 0;
+                });
+            }
+        }
+
         if (gp.keyH.upPressed) {
             gp.keyH.upPressed = false;
 
@@ -957,31 +1151,23 @@ public class UI {
     }
     private boolean editing_GrabEntity() {
 
-        Iterator<Entity> it = gp.entities.iterator();
-        while (it.hasNext()) {
-
-            Entity e = it.next();
-
-            // Entity found at same X/Y
-            if (entityFoundAtPoint(e, slotCol, slotRow)) {
+        // Entity found at same X/Y
+        Entity e = entityFoundAtSlot();
+        if (e == null) return false;
 
-                // Trying to place selected entity on top of existing, not allowed
-                if (selectedEntity != null) return true;
+        // Trying to place selected entity on top of existing, not allowed
+        if (selectedEntity != null) return true;
 
-                // Grab new entity, remove from level
-                selectedEntity = e;
-
-                it.remove();
-                return true;
-            }
-        }
+        // Grab new entity, remove from level
+        selectedEntity = e;
 
-        return false;
+        editing_RemoveEntity(e);
+        return true;
     }
     public void editing_GetEntity() {
         UIEntity uiEntity = entityLibrary.get(entityListIndex).get(entityIndex);
 
-        currentEntity = gp.eGenerator.getEntity(uiEntity.getName(), uiEntity.getOri(), uiEntity.getSide());
+        currentEntity = gp.world.eGenerator.getEntity(uiEntity.getName(), uiEntity.getOri(), uiEntity.getSide());
         if (currentEntity == null) return;
 
         currentEntity.setPoint(new Point(slotCol, slotRow));
@@ -992,15 +1178,11 @@ public class UI {
             gp.keyH.bPressed = false;
 
             // Find entity at X/Y
-            Iterator<Entity> it = gp.entities.iterator();
-            while (it.hasNext()) {
-                Entity e = it.next();
-
-                // Entity found, delete from list
-                if (entityFoundAtPoint(e, slotCol, slotRow)) {
-                    it.remove();
-                    return;
-                }
+            Entity e = entityFoundAtSlot();
+
+            // Entity found, delete from list
+            if (e != null) {
+                editing_RemoveEntity(e);
             }
         }
     }
@@ -1011,13 +1193,11 @@ public class UI {
             if (selectedEntity != null) return;
 
             // Find entity at X/Y
-            for (Entity e : gp.entities) {
+            Entity e = entityFoundAtSlot();
 
-                // Entity found, copy and select
-                if (entityFoundAtPoint(e, slotCol, slotRow)) {
-                    selectedEntity = gp.eGenerator.getEntity(e.getName(), e.getOri(), e.getSide());
-                    return;
-                }
+            // Entity found, copy and select
+            if (e != null) {
+                selectedEntity = gp.world.eGenerator.getEntity(e.getName(), e.getOri(), e.getSide());
             }
         }
     }
@@ -1048,13 +1228,17 @@ public class UI {
         }
     }
 
-    private boolean entityFoundAtPoint(Entity e, int x, int y) {
-        return e.getPoint().x == x && e.getPoint().y == y;
+    private Entity entityFoundAtSlot() {
+        List<Entity> stack = gp.world.tileGrid.getEntitiesAtPoint(slotCol, slotRow);
+        return stack.isEmpty() ? null : stack.getFirst();
     }
 
     private void editing_PlaceEntity(Entity entity) {
         entity.setPoint(new Point(slotCol, slotRow));
-        gp.entities.add(entity);
+        gp.world.addEntity(entity);
+    }
+    private void editing_RemoveEntity(Entity entity) {
+        gp.world.removeEntity(entity);
     }
 
     private void drawKeyboard() {
@@ -1217,7 +1401,7 @@ public class UI {
             else if (commandNum == keyboardLetters.length() + 3) {
                 if (textInput.length() < 3 || textInput.length() > MAX_LVL_NAME) return;
 
-                gp.saveLoad.save(textInput, "");
+                await(gp.storage.save(textInput, ""), path -> { });
                 commandNum = 0;
                 subState = 1;
 
@@ -1227,6 +1411,43 @@ public class UI {
         }
     }
 
+    private void drawEditing_Waiting() {
+
+        AsyncStorage.Task<?> task = pending.task();
+
+        g2.setColor(Color.WHITE);
+        g2.setFont(g2.getFont().deriveFont(Font.PLAIN, 32F));
+
+        int x = gp.tileSize * 2;
+        int y = gp.tileSize * 2;
+        int width = gp.tileSize * 12;
+        int height = gp.tileSize * 4;
+        drawSubWindow(x, y, width, height);
+
+        x = gp.tileSize * 3;
+        y = gp.tileSize * 3;
+        g2.drawString(task.getMessage() + "...", x, y);
+
+        // PROGRESS BAR, once the call knows how far along it is
+        y += gp.tileSize / 2;
+        if (task.getFraction() > 0) {
+            int barWidth = gp.tileSize * 10;
+            g2.drawRect(x, y, barWidth, gp.tileSize / 3);
+            g2.fillRect(x, y, (int) (barWidth * task.getFraction()), gp.tileSize / 3);
+        }
+
+        y += (int) (gp.tileSize * 1.5);
+        g2.drawString("B) Cancel", x, y);
+
+        if (gp.keyH.bPressed || gp.keyH.startPressed) {
+            gp.keyH.bPressed = false;
+            gp.keyH.startPressed = false;
+
+            task.cancel();
+            pending = null;
+        }
+    }
+
     private void drawSubWindow(int x, int y, int width, int height) {
 
         // Black (RGB, Transparency)
@@ -1249,19 +1470,6 @@ public class UI {
     }
 
     private BufferedImage setup(String imagePath) {
-
-        BufferedImage image = null;
-
-        try {
-            image = ImageIO.read(Objects.requireNonNull(
-                    getClass().getResource(imagePath + ".png")
-            ));
-            image = GamePanel.utility.scaleImage(image, gp.tileSize, gp.tileSize);
-        }
-        catch (IOException e) {
-            System.out.println(e.getMessage());
-        }
-
-        return image;
+        return SpriteAtlas.getInstance(gp.tileSize).getSprite(imagePath);
     }
 }
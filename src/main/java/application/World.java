@@ -0,0 +1,535 @@
+package application;
+
+import data.DataStorage;
+import data.EntityGenerator;
+import entity.Entity;
+import entity.WordEntity;
+import entity.tile_interactive.IT_Belt;
+import entity.tile_interactive.IT_Wall;
+import entity.tile_interactive.IT_Water;
+import rules.LogicHandler;
+import rules.Rule;
+import state.StateHandler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static rules.Properties.YOU;
+
+public class World {
+
+    public enum Direction {
+        UP,
+        DOWN,
+        LEFT,
+        RIGHT
+    }
+
+    // Frames to wait for movement to settle before giving up (10 seconds at 60 FPS)
+    private static final int MAX_SETTLE_FRAMES = 600;
+
+    // Tile moves to resolve in one instant turn before giving up (belt loops)
+    private static final int MAX_SETTLE_PASSES = 75;
+
+    /* WORLD SIZE */
+    public final int tileSize;
+    public int maxWorldCol;
+    public int maxWorldRow;
+
+    /* ENTITIES */
+    public ArrayList<Entity> entities = new ArrayList<>();
+    public ArrayList<Entity> spawnQueue = new ArrayList<>();
+
+    // Entities only ever join the end of the list, counting them numbers the list order
+    private long entitiesAdded = 0;
+
+    /* HANDLERS */
+    public final TileGrid tileGrid;
+    public final NounIndex nounIndex = new NounIndex();
+    public final NeighborQuery neighbors = new NeighborQuery(this);
+    public final CollisionChecker cChecker = new CollisionChecker(this);
+    public final EntityGenerator eGenerator = new EntityGenerator(this);
+    private final LogicHandler lHandler = new LogicHandler(this);
+    private final StateHandler stateHandler = new StateHandler(this);
+
+    /* EVENTS */
+    private WorldListener listener = new WorldListener() {};
+
+    private boolean entitiesWereMoving = false;
+    public boolean wordMoved = false;
+    private boolean rewinding = false;
+
+    // Resolve a turn in one call instead of over several frames
+    private boolean instantTurns = true;
+
+    public boolean win = false;
+
+    /* SCRATCH */
+    // Reused every turn so a turn allocates nothing outside the undo history
+    private final ArrayList<Entity> moveSet = new ArrayList<>();
+    private final ArrayList<Entity> landed = new ArrayList<>();
+
+    // Built once, a lambda written inside addSpawnedEntities() is allocated on every call
+    private final Predicate<Entity> removeDead = this::removeIfDead;
+
+    /**
+     * CONSTRUCTOR
+     * @param tileSize Size of one tile in world units
+     * @param maxWorldCol Number of columns
+     * @param maxWorldRow Number of rows
+     */
+    public World(int tileSize, int maxWorldCol, int maxWorldRow) {
+        this.tileSize = tileSize;
+        this.maxWorldCol = maxWorldCol;
+        this.maxWorldRow = maxWorldRow;
+        this.tileGrid = new TileGrid(this);
+    }
+
+    public void setListener(WorldListener listener) {
+        this.listener = listener;
+    }
+    public boolean getInstantTurns() {
+        return instantTurns;
+    }
+    public void setInstantTurns(boolean instantTurns) {
+        this.instantTurns = instantTurns;
+    }
+
+    /**
+     * LOAD LEVEL
+     * Replaces every entity with the entities stored in the given level data
+     * @param ds Level data to build
+     */
+    public void loadLevel(DataStorage ds) {
+
+        clear();
+
+        for (int i = 0; i < ds.names.length; i++) {
+
+            // Grab saved name from file
+            String name = ds.names[i];
+
+            // No data, skip
+            if ("NULL".equals(name)) {
+                continue;
+            }
+
+            // Get type if iTile
+            Entity e = switch (name) {
+                case (IT_Belt.iName) -> eGenerator.getEntity(name, ds.belt_ori[i], 0);
+                case IT_Wall.iName -> eGenerator.getEntity(name, ds.wall_ori[i], ds.wall_side[i]);
+                case IT_Water.iName -> eGenerator.getEntity(name, ds.water_ori[i], ds.water_side[i]);
+                default -> eGenerator.getEntity(name, -1, -1);
+            };
+
+            if (e == null) continue;
+
+            e.setPoint(ds.worldX[i], ds.worldY[i]);
+
+            // Assign to world entity list
+            addEntity(e);
+        }
+    }
+
+    /**
+     * CLEAR
+     * Removes every entity from the world
+     */
+    public void clear() {
+        tileGrid.clear();
+        nounIndex.clear();
+        lHandler.clearRules();
+        entities.clear();
+        spawnQueue.clear();
+        listener.entitiesCleared();
+    }
+
+    public void addEntity(Entity e) {
+        e.setListOrder(entitiesAdded++);
+        entities.add(e);
+        tileGrid.add(e);
+        nounIndex.add(e);
+        lHandler.entityAdded(e);
+        listener.entityAdded(e);
+    }
+    public void removeEntity(Entity e) {
+        tileGrid.remove(e);
+        if (entities.remove(e)) {
+            nounIndex.remove(e);
+            tileGrid.touch(e);
+            listener.entityRemoved(e);
+        }
+    }
+
+    /**
+     * SETUP LEVEL
+     * Clears undo history and rebuilds rules for the current entities
+     * Called before a level is played
+     */
+    public void setupLevel() {
+        win = false;
+        stateHandler.clearData();
+        lHandler.clearRules();
+        lHandler.initRules();
+    }
+
+    public void clearRules() {
+        lHandler.clearRules();
+    }
+    public void setIncrementalRules(boolean incremental) {
+        lHandler.setIncremental(incremental);
+    }
+    public Set<Rule> getActiveRules() {
+        return lHandler.getActiveRules();
+    }
+
+    /**
+     * UPDATE
+     * Advances entity movement by one frame and re-applies rules once movement settles
+     * Called every frame while playing
+     */
+    public void update() {
+        updateEntities();
+        checkRules();
+    }
+
+    /**
+     * UPDATE ENTITIES
+     * Iterates over each entity and updates if alive, removes it if not
+     * Called by update()
+     */
+    private void updateEntities() {
+
+        // Update all entities
+        for (Entity e : entities) e.update();
+
+        addSpawnedEntities();
+    }
+
+    /**
+     * ADD SPAWNED ENTITIES
+     * Removes dead entities from the list and adds entities spawned this frame
+     * Called by updateEntities() and resolve()
+     */
+    private void addSpawnedEntities() {
+
+        // Remove from list if not alive
+        entities.removeIf(removeDead);
+
+        // Entities spawned in after update, add to list
+        if (!spawnQueue.isEmpty()) {
+
+            for (Entity e : spawnQueue) {
+                addEntity(e);
+            }
+            spawnQueue.clear();
+
+            // Override flags to check for rules
+            entitiesWereMoving = true;
+            wordMoved = true;
+        }
+    }
+
+    /**
+     * REMOVE IF DEAD
+     * Takes a dead entity off the indexes as the entity list drops it
+     * Called by addSpawnedEntities() through removeDead
+     * @param e Entity in the entity list
+     * @return True if the entity is dead and leaves the list
+     */
+    private boolean removeIfDead(Entity e) {
+        if (e.getAlive()) return false;
+
+        nounIndex.remove(e);
+        tileGrid.touch(e);
+        listener.entityRemoved(e);
+        stateHandler.retire(e);
+        return true;
+    }
+
+    /**
+     * MOVE
+     * Starts a turn, moving every YOU entity in the given direction
+     * @param direction Direction to move
+     * @return True if any entity started moving
+     */
+    public boolean move(Direction direction) {
+
+        // Entities to move, pushed ones may be listed twice
+        moveSet.clear();
+
+        // Loop through each entity
+        for (Entity e : entities) {
+
+            // Entity not YOU
+            if (!e.has(YOU)) {
+                continue;
+            }
+
+            // Entity can't move, change direction
+            if (e.cantMove(e, direction, moveSet)) {
+                e.setDirection(direction);
+                continue;
+            }
+
+            moveSet.add(e);
+
+            if (e instanceof WordEntity) {
+                wordMoved = true;
+            }
+        }
+
+        // Entities can move
+        if (moveSet.isEmpty()) return false;
+
+        // Save current positions
+        stateHandler.saveState();
+
+        // Start move for each entity that can move
+        for (int i = 0; i < moveSet.size(); i++) {
+            moveSet.get(i).move(direction);
+        }
+
+        // Play walking SE
+        playSE(2, 0);
+
+        if (instantTurns) {
+            resolve();
+        }
+
+        return true;
+    }
+
+    /**
+     * UNDO
+     * Restores the entity states saved before the last move
+     */
+    public void undo() {
+        stateHandler.loadState();
+        rewind();
+    }
+
+    /**
+     * REDO
+     * Replays the move undone last, or the branch visited last from this turn
+     */
+    public void redo() {
+        stateHandler.redoState();
+        rewind();
+    }
+
+    /**
+     * SEEK
+     * Restores the entity states of any turn played on this level
+     * @param turn Index of the turn, 0 for the start of the level
+     */
+    public void seek(int turn) {
+        stateHandler.seekState(turn);
+        rewind();
+    }
+
+    public int getTurn() {
+        return stateHandler.getTurn();
+    }
+    public int getTurnCount() {
+        return stateHandler.getTurnCount();
+    }
+
+    /**
+     * SET TIMELINE DIR
+     * @param dir Folder undo timelines are saved in, null to keep them in memory only
+     */
+    public void setTimelineDir(File dir) {
+        stateHandler.setTimelineDir(dir);
+    }
+
+    /**
+     * SET MAX UNDO MEMORY
+     * @param bytes Heap the undo timeline may take before the turns furthest from the board are dropped
+     */
+    public void setMaxUndoMemory(long bytes) {
+        stateHandler.setMaxUndoBytes(bytes);
+    }
+    public long getUndoMemory() {
+        return stateHandler.getMemorySize();
+    }
+
+    /**
+     * SET TIMELINE DATA
+     * @param data Saved turns to start the timeline with, as a replay stores them, null for none
+     */
+    public void setTimelineData(byte[] data) {
+        stateHandler.setTimelineData(data);
+    }
+    public byte[] getTimelineData() {
+        return stateHandler.getTimelineData();
+    }
+
+    /**
+     * DELETE TIMELINE
+     * Deletes the saved undo timeline of the level loaded, leaving the board as it is
+     */
+    public void deleteTimeline() {
+        stateHandler.deleteTimeline();
+    }
+
+    /**
+     * LINK TIMELINE / DELETE TIMELINE
+     * Names the saved undo timeline of the level loaded by the level's file name, then deletes
+     *  it by that name alone, without the level
+     * Called by SaveLoad when a level is loaded or saved, and when it is deleted
+     * @param levelName File name of the level
+     */
+    public void linkTimeline(String levelName) {
+        stateHandler.linkTimeline(levelName);
+    }
+    public void deleteTimeline(String levelName) {
+        stateHandler.deleteTimeline(levelName);
+    }
+
+    /**
+     * REWIND
+     * Slides entities to the states just restored
+     * Called by undo(), redo() and seek()
+     */
+    private void rewind() {
+
+        // If restoring moves entities back
+        rewinding = isMoving();
+
+        // Check rules if rewind not applied
+        if (!rewinding) {
+            lHandler.initRules();
+        }
+        else if (instantTurns) {
+            resolve();
+        }
+    }
+
+    /**
+     * STEP
+     * Plays one full turn without rendering, running frames until movement settles
+     * @param direction Direction to move
+     * @return True if any entity moved
+     */
+    public boolean step(Direction direction) {
+        settle();
+
+        boolean moved = move(direction);
+        settle();
+
+        return moved;
+    }
+
+    /**
+     * SETTLE
+     * Runs frames until no entity is moving and rules have been re-applied
+     */
+    public void settle() {
+        if (instantTurns) {
+            resolve();
+            return;
+        }
+
+        int frames = 0;
+
+        while ((isMoving() || entitiesWereMoving || !spawnQueue.isEmpty()) && frames < MAX_SETTLE_FRAMES) {
+            update();
+            frames++;
+        }
+    }
+
+    /**
+     * RESOLVE
+     * Lands every moving entity on its tile, runs touch effects and re-applies rules,
+     *  repeating while entities keep moving (SHIFT) or spawning
+     * Each pass matches the frame that ends a tile move in frame-based mode
+     * Called by move(), undo() and settle() when turns are instant
+     */
+    private void resolve() {
+        int passes = 0;
+
+        while ((isMoving() || entitiesWereMoving || !spawnQueue.isEmpty()) && passes < MAX_SETTLE_PASSES) {
+
+            // Landing counts as movement for the rule check below
+            if (isMoving()) {
+                entitiesWereMoving = true;
+            }
+
+            // Land all entities first so touch checks see the finished turn
+            landed.clear();
+            for (Entity e : entities) {
+                if (e.land()) {
+                    landed.add(e);
+                }
+            }
+
+            // Entities that moved forward touch what they landed on
+            for (Entity e : landed) {
+                if (e.getAlive()) {
+                    e.checkEntities();
+                }
+            }
+
+            addSpawnedEntities();
+            checkRules();
+
+            passes++;
+        }
+    }
+
+    private void checkRules() {
+
+        // Check if entities are currently moving
+        boolean movingNow = isMoving();
+
+        // An entity moved a tile
+        if (entitiesWereMoving && !movingNow) {
+
+            // Scan static rules if a word moved
+            if (wordMoved) {
+                lHandler.scanForRules();
+            }
+
+            // Re-apply rules where anything changed
+            lHandler.updateRules();
+
+            // Check for entity rules if not undo
+            if (!rewinding) {
+                for (Entity e : entities) {
+                    e.checkEntities();
+                }
+            }
+
+            wordMoved = false;
+            rewinding = false;
+        }
+
+        entitiesWereMoving = movingNow;
+    }
+
+    public boolean isMoving() {
+        for (Entity e : entities) {
+            if (e.getMoving() || e.getReversing()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+    public boolean hasMoveableEntities() {
+        for (Entity e : entities) {
+            if (e.has(YOU)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public void playSE(int category, int record) {
+        listener.playSE(category, record);
+    }
+}
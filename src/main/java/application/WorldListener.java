@@ -0,0 +1,37 @@
+package application;
+
+import entity.Entity;
+
+/**
+ * Receives events from a World so front-ends can react without the
+ * simulation depending on them
+ */
+public interface WorldListener {
+
+    /**
+     * PLAY SE
+     * @param category Sound library
+     * @param record Sound within the library
+     */
+    default void playSE(int category, int record) {}
+
+    /**
+     * ENTITY ADDED
+     * Called when an entity enters the world (placed, loaded, spawned or restored by undo)
+     * @param e Entity added
+     */
+    default void entityAdded(Entity e) {}
+
+    /**
+     * ENTITY REMOVED
+     * Called when an entity leaves the world (removed, killed or transformed)
+     * @param e Entity removed
+     */
+    default void entityRemoved(Entity e) {}
+
+    /**
+     * ENTITIES CLEARED
+     * Called when every entity is removed at once
+     */
+    default void entitiesCleared() {}
+}
@@ -0,0 +1,296 @@
+package data;
+
+import application.GamePanel;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs level storage calls off the game thread
+ * Each call returns a task the UI polls each frame, results are applied by the caller
+ * on the game thread so nothing else needs to be thread safe
+ * Long computations such as the solver get a thread of their own, so they never hold up storage calls
+ */
+public class AsyncStorage {
+
+    /**
+     * Receives progress of a running storage call
+     */
+    public interface Progress {
+        /**
+         * @param message What the call is doing now
+         * @param fraction Portion finished, 0 to 1
+         */
+        void update(String message, double fraction);
+    }
+
+    /**
+     * Storage call run on a storage thread
+     */
+    public interface Job<T> {
+        T run(Progress progress) throws Exception;
+    }
+
+    /**
+     * A submitted storage call
+     */
+    public static class Task<T> implements Progress {
+
+        private final String label;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final Runnable onChange;
+        private volatile Future<?> worker;
+
+        private volatile String message;
+        private volatile double fraction = 0;
+
+        private Task(String label, Runnable onChange) {
+            this.label = label;
+            this.message = label;
+            this.onChange = onChange;
+        }
+
+        @Override
+        public void update(String message, double fraction) {
+            this.message = message;
+            this.fraction = Math.clamp(fraction, 0, 1);
+            onChange.run();
+        }
+
+        public String getLabel() {
+            return label;
+        }
+        public String getMessage() {
+            return message;
+        }
+        public double getFraction() {
+            return fraction;
+        }
+        public CompletableFuture<T> getFuture() {
+            return future;
+        }
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        /**
+         * GET RESULT
+         * @return Result of the call, null if it is still running, failed or was cancelled
+         */
+        public T getResult() {
+            return future.isDone() && !future.isCompletedExceptionally() ? future.getNow(null) : null;
+        }
+
+        /**
+         * CANCEL
+         * Drops the call, interrupting it if it already started
+         */
+        public void cancel() {
+            future.cancel(false);
+
+            Future<?> running = worker;
+            if (running != null) running.cancel(true);
+        }
+    }
+
+    // Calls run at once, more only queue up behind the same connection
+    static final int THREADS = 2;
+
+    // Calls waiting for a thread, further ones are refused
+    static final int MAX_QUEUED = 8;
+
+    // Computations run one at a time, one more may wait while a cancelled one winds down
+    static final int COMPUTE_THREADS = 1;
+    static final int MAX_COMPUTE_QUEUED = 1;
+
+    private final GamePanel gp;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor computeExecutor;
+
+    // Told whenever a task changes, so the UI shows it
+    private final Runnable onChange;
+
+    /**
+     * CONSTRUCTOR
+     * Instance created by GamePanel
+     * @param gp GamePanel
+     */
+    public AsyncStorage(GamePanel gp) {
+        this(gp, gp::requestRedraw);
+    }
+
+    /**
+     * CONSTRUCTOR
+     * Without a GamePanel only submit() can be used
+     * @param onChange Told whenever a task changes
+     */
+    AsyncStorage(Runnable onChange) {
+        this(null, onChange);
+    }
+
+    private AsyncStorage(GamePanel gp, Runnable onChange) {
+        this.gp = gp;
+        this.onChange = onChange;
+
+        executor = createExecutor("storage", THREADS, MAX_QUEUED);
+        computeExecutor = createExecutor("compute", COMPUTE_THREADS, MAX_COMPUTE_QUEUED);
+    }
+
+    private static ThreadPoolExecutor createExecutor(String name, int threads, int queued) {
+        AtomicInteger count = new AtomicInteger();
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queued), r -> {
+                    Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    /**
+     * SUBMIT
+     * Queues a storage call
+     * @param label Description shown while the call runs
+     * @param job Storage call
+     * @return Task to poll or cancel
+     */
+    public <T> Task<T> submit(String label, Job<T> job) {
+        return submit(label, job, executor, "Too many storage requests waiting");
+    }
+
+    /**
+     * COMPUTE
+     * Queues a CPU-bound call, such as solving a level, on the compute thread
+     * @param label Description shown while the call runs
+     * @param job Computation, stopped by interrupting it when the task is cancelled
+     * @return Task to poll or cancel
+     */
+    public <T> Task<T> compute(String label, Job<T> job) {
+        return submit(label, job, computeExecutor, "A computation is already running");
+    }
+
+    private <T> Task<T> submit(String label, Job<T> job, ExecutorService executor, String refusal) {
+        Task<T> task = new Task<>(label, onChange);
+
+        task.future.whenComplete((result, e) -> {
+            if (e != null && !(e instanceof CancellationException)) {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                System.out.println("Error " + label.toLowerCase() + ": " + cause.getMessage());
+            }
+            onChange.run();
+        });
+
+        try {
+            task.worker = executor.submit(() -> {
+                // Cancelled while queued
+                if (task.future.isDone()) return;
+
+                try {
+                    task.future.complete(job.run(task));
+                }
+                catch (Throwable e) {
+                    task.future.completeExceptionally(e);
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            task.future.completeExceptionally(new IOException(refusal));
+        }
+
+        return task;
+    }
+
+    /**
+     * GET USERS
+     * Loads one page of the user directory, passing over pages left empty
+     *  by skipping the logged-in user
+     * @param pageToken Token of the page to load, null for the first page
+     * @return Task for the page shown
+     */
+    public Task<Firebase.UserPage> getUsers(String pageToken) {
+        return submit("Loading users", progress -> {
+            Firebase.UserPage page = gp.db.getUsers(pageToken);
+
+            int pages = 1;
+            while (page != null && page.users().isEmpty() && page.nextPageToken() != null) {
+                progress.update("Loading users (page " + ++pages + ")", 0);
+                page = gp.db.getUsers(page.nextPageToken());
+            }
+
+            if (page == null) throw new IOException("User directory could not be read");
+            return page;
+        });
+    }
+
+    /**
+     * GET USER LEVELS
+     * @param userId Owner of the levels
+     * @return Task for the level paths mapped to their display names
+     */
+    public Task<Map<String, String>> getUserLevels(String userId) {
+        return submit("Loading levels", progress -> {
+            Map<String, String> levels = gp.db.getUserLevels(userId, progress);
+            if (levels == null) throw new IOException("Level list could not be read");
+            return levels;
+        });
+    }
+
+    /**
+     * SAVE
+     * Captures the level now, on the calling thread, and uploads it in the background
+     * @param levelName Name given by the user
+     * @param fileName Path of the level to overwrite, empty for a new level
+     * @return Task for the path the level was saved to
+     */
+    public Task<String> save(String levelName, String fileName) {
+        gp.saveLoad.saveToData(levelName);
+        DataStorage ds = gp.levelProgress;
+
+        return submit("Saving level", progress -> {
+            progress.update("Uploading " + levelName, 0);
+
+            String path = gp.saveLoad.saveToFile(ds, fileName);
+            if (path == null) throw new IOException("Level was not saved");
+
+            gp.saveLoad.linkTimeline(path, ds);
+            return path;
+        });
+    }
+
+    /**
+     * LOAD
+     * Downloads and decodes a level, the caller builds it on the game thread
+     * @param fileName Full path of the level
+     * @return Task for the level data
+     */
+    public Task<DataStorage> load(String fileName) {
+        return submit("Loading level", progress -> {
+            DataStorage ds = gp.saveLoad.loadFile(fileName);
+            if (ds == null) throw new IOException("Level was not loaded");
+
+            gp.saveLoad.linkTimeline(fileName, ds);
+            return ds;
+        });
+    }
+
+    /**
+     * DELETE
+     * Deletes the level and its saved undo timeline, found by the link made when it was loaded or saved
+     * @param fileName Path of the level
+     * @return Task for the deleted path
+     */
+    public Task<String> delete(String fileName) {
+        return submit("Deleting level", progress -> {
+            if (!gp.dbConnected) throw new IOException("Level was not deleted");
+            if (!gp.db.deleteLevel(fileName)) throw new IOException("Level was not deleted");
+
+            gp.saveLoad.deleteTimeline(fileName);
+            return fileName;
+        });
+    }
+}
@@ -13,11 +13,19 @@ import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class Auth {
 
     private UserRecord user;
 
+    /* EMAIL CACHE */
+    private static final long EMAIL_TTL = TimeUnit.MINUTES.toMillis(10);
+    private record CachedEmail(String email, long expiresAt) {}
+    private final Map<String, CachedEmail> emailCache = new ConcurrentHashMap<>();
+
     public Auth() {
     }
 
@@ -98,6 +106,13 @@ public class Auth {
     }
 
     public String getEmailByUserID(String uid) {
+
+        // Recently looked up, skip the round trip
+        CachedEmail cached = emailCache.get(uid);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached.email();
+        }
+
         try {
             UserRecord user = FirebaseAuth.getInstance().getUser(uid);
 
@@ -105,6 +120,7 @@ public class Auth {
                 throw new Exception("User not found");
             }
 
+            emailCache.put(uid, new CachedEmail(user.getEmail(), System.currentTimeMillis() + EMAIL_TTL));
             return user.getEmail();
         }
         catch (Exception e) {
@@ -31,6 +31,10 @@ public class ConfigManager {
             bw.write("SE VOLUME\n" + gp.se.volumeScale);
             bw.newLine();
 
+            // TARGET FPS (0 for uncapped)
+            bw.write("TARGET FPS\n" + (gp.scheduler.getUncapped() ? 0 : gp.scheduler.getTargetFps()));
+            bw.newLine();
+
             // CLOSE FILE
             bw.close();
         }
@@ -62,6 +66,14 @@ public class ConfigManager {
             gp.se.volumeScale = Integer.parseInt(s);
             br.readLine();
 
+            // TARGET FPS (missing from older config files)
+            s = br.readLine();
+            if (s != null) {
+                int fps = Integer.parseInt(s);
+                gp.scheduler.setUncapped(fps == 0);
+                if (fps > 0) gp.scheduler.setTargetFps(fps);
+            }
+
             br.close();
         }
         catch (Exception e) {
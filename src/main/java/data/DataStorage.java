@@ -13,6 +13,11 @@ public class DataStorage implements Serializable {
     public String file_date;
     public int song;
 
+    // BOARD (world coordinates below are in this tile size)
+    public int tile_size = LevelFormat.DEFAULT_TILE_SIZE;
+    public int max_col = LevelFormat.DEFAULT_COLS;
+    public int max_row = LevelFormat.DEFAULT_ROWS;
+
     // ENTITY DATA ARRAYS
     public String[] names;
     public int[] worldX, worldY;
@@ -1,6 +1,6 @@
 package data;
 
-import application.GamePanel;
+import application.World;
 import entity.Entity;
 import entity.character.*;
 import entity.object.*;
@@ -9,13 +9,36 @@ import entity.tile_interactive.IT_Wall;
 import entity.tile_interactive.IT_Water;
 import entity.word.*;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
 
 public class EntityGenerator {
 
+    public enum Category {
+        CHARACTER,
+        OBJECT,
+        WORD_NOUN,
+        WORD_PREP,
+        WORD_PROP,
+        I_TILE
+    }
+
+    /**
+     * Static description of an entity name, shared by every lookup
+     * @param name Name of the entity
+     * @param category Factory the entity is built from
+     */
+    public record EntityInfo(String name, Category category) {
+        public boolean isWord() {
+            return category == Category.WORD_NOUN || category == Category.WORD_PREP || category == Category.WORD_PROP;
+        }
+    }
+
     public final Map<String, Supplier<Entity>> characterFactory = new LinkedHashMap<>();
     public final Map<String, Supplier<Entity>> objectFactory = new LinkedHashMap<>();
     public final Map<String, Supplier<Entity>> wordNounFactory = new LinkedHashMap<>();
@@ -23,65 +46,126 @@ public class EntityGenerator {
     public final Map<String, Supplier<Entity>> wordPropFactory = new LinkedHashMap<>();
     public final Map<String, BiFunction<Integer, Integer, Entity>> iTileFactory = new LinkedHashMap<>();
 
-    public EntityGenerator(GamePanel gp) {
+    // Every known name mapped to its info, filled once from the factories
+    private final Map<String, EntityInfo> registry = new HashMap<>();
+
+    public EntityGenerator(World world) {
         // Characters
-        characterFactory.put(CHR_Baba.chrName, () -> new CHR_Baba(gp, 0, 0));
-        characterFactory.put(CHR_Bat.chrName, () -> new CHR_Bat(gp, 0, 0));
-        characterFactory.put(CHR_Keke.chrName, () -> new CHR_Keke(gp, 0, 0));
+        characterFactory.put(CHR_Baba.chrName, () -> new CHR_Baba(world, 0, 0));
+        characterFactory.put(CHR_Bat.chrName, () -> new CHR_Bat(world, 0, 0));
+        characterFactory.put(CHR_Keke.chrName, () -> new CHR_Keke(world, 0, 0));
 
         // Objects
-        objectFactory.put(OBJ_Box.objName, () -> new OBJ_Box(gp, 0, 0));
-        objectFactory.put(OBJ_Door.objName, () -> new OBJ_Door(gp, 0, 0));
-        objectFactory.put(OBJ_Flag.objName, () -> new OBJ_Flag(gp, 0, 0));
-        objectFactory.put(OBJ_Key.objName, () -> new OBJ_Key(gp, 0, 0));
-        objectFactory.put(OBJ_Rock.objName, () -> new OBJ_Rock(gp, 0, 0));
-        objectFactory.put(OBJ_Skull.objName, () -> new OBJ_Skull(gp, 0, 0));
+        objectFactory.put(OBJ_Box.objName, () -> new OBJ_Box(world, 0, 0));
+        objectFactory.put(OBJ_Door.objName, () -> new OBJ_Door(world, 0, 0));
+        objectFactory.put(OBJ_Flag.objName, () -> new OBJ_Flag(world, 0, 0));
+        objectFactory.put(OBJ_Key.objName, () -> new OBJ_Key(world, 0, 0));
+        objectFactory.put(OBJ_Rock.objName, () -> new OBJ_Rock(world, 0, 0));
+        objectFactory.put(OBJ_Skull.objName, () -> new OBJ_Skull(world, 0, 0));
 
         // Word nouns
-        wordNounFactory.put(WORD_Baba.wordName, () -> new WORD_Baba(gp, 0, 0));
-        wordNounFactory.put(WORD_Bat.wordName, () -> new WORD_Bat(gp, 0, 0));
-        wordNounFactory.put(WORD_Belt.wordName, () -> new WORD_Belt(gp, 0, 0));
-        wordNounFactory.put(WORD_Box.wordName, () -> new WORD_Box(gp, 0, 0));
-        wordNounFactory.put(WORD_Door.wordName, () -> new WORD_Door(gp, 0, 0));
-        wordNounFactory.put(WORD_Flag.wordName, () -> new WORD_Flag(gp, 0, 0));
-        wordNounFactory.put(WORD_Keke.wordName, () -> new WORD_Keke(gp, 0, 0));
-        wordNounFactory.put(WORD_Key.wordName, () -> new WORD_Key(gp, 0, 0));
-        wordNounFactory.put(WORD_Rock.wordName, () -> new WORD_Rock(gp, 0, 0));
-        wordNounFactory.put(WORD_Skull.wordName, () -> new WORD_Skull(gp, 0, 0));
-        wordNounFactory.put(WORD_Text.wordName, () -> new WORD_Text(gp, 0, 0));
-        wordNounFactory.put(WORD_Wall.wordName, () -> new WORD_Wall(gp, 0, 0));
-        wordNounFactory.put(WORD_Water.wordName, () -> new WORD_Water(gp, 0, 0));
+        wordNounFactory.put(WORD_Baba.wordName, () -> new WORD_Baba(world, 0, 0));
+        wordNounFactory.put(WORD_Bat.wordName, () -> new WORD_Bat(world, 0, 0));
+        wordNounFactory.put(WORD_Belt.wordName, () -> new WORD_Belt(world, 0, 0));
+        wordNounFactory.put(WORD_Box.wordName, () -> new WORD_Box(world, 0, 0));
+        wordNounFactory.put(WORD_Door.wordName, () -> new WORD_Door(world, 0, 0));
+        wordNounFactory.put(WORD_Flag.wordName, () -> new WORD_Flag(world, 0, 0));
+        wordNounFactory.put(WORD_Keke.wordName, () -> new WORD_Keke(world, 0, 0));
+        wordNounFactory.put(WORD_Key.wordName, () -> new WORD_Key(world, 0, 0));
+        wordNounFactory.put(WORD_Rock.wordName, () -> new WORD_Rock(world, 0, 0));
+        wordNounFactory.put(WORD_Skull.wordName, () -> new WORD_Skull(world, 0, 0));
+        wordNounFactory.put(WORD_Text.wordName, () -> new WORD_Text(world, 0, 0));
+        wordNounFactory.put(WORD_Wall.wordName, () -> new WORD_Wall(world, 0, 0));
+        wordNounFactory.put(WORD_Water.wordName, () -> new WORD_Water(world, 0, 0));
 
         // Word prepositions
-        wordPrepFactory.put(WORD_Is.wordName, () -> new WORD_Is(gp, 0, 0));
-        wordPrepFactory.put(WORD_And.wordName, () -> new WORD_And(gp, 0, 0));
-        wordPrepFactory.put(WORD_Has.wordName, () -> new WORD_Has(gp, 0, 0));
-        wordPrepFactory.put(WORD_On.wordName, () -> new WORD_On(gp, 0, 0));
-        wordPrepFactory.put(WORD_Near.wordName, () -> new WORD_Near(gp, 0, 0));
-        wordPrepFactory.put(WORD_Next.wordName, () -> new WORD_Next(gp, 0, 0));
-        wordPrepFactory.put(WORD_Facing.wordName, () -> new WORD_Facing(gp, 0, 0));
-        wordPrepFactory.put(WORD_Seeing.wordName, () -> new WORD_Seeing(gp, 0, 0));
+        wordPrepFactory.put(WORD_Is.wordName, () -> new WORD_Is(world, 0, 0));
+        wordPrepFactory.put(WORD_And.wordName, () -> new WORD_And(world, 0, 0));
+        wordPrepFactory.put(WORD_Has.wordName, () -> new WORD_Has(world, 0, 0));
+        wordPrepFactory.put(WORD_On.wordName, () -> new WORD_On(world, 0, 0));
+        wordPrepFactory.put(WORD_Near.wordName, () -> new WORD_Near(world, 0, 0));
+        wordPrepFactory.put(WORD_Next.wordName, () -> new WORD_Next(world, 0, 0));
+        wordPrepFactory.put(WORD_Facing.wordName, () -> new WORD_Facing(world, 0, 0));
+        wordPrepFactory.put(WORD_Seeing.wordName, () -> new WORD_Seeing(world, 0, 0));
 
         // Word properties
-        wordPropFactory.put(WORD_Defeat.wordName, () -> new WORD_Defeat(gp, 0, 0));
-        wordPropFactory.put(WORD_Float.wordName, () -> new WORD_Float(gp, 0, 0));
-        wordPropFactory.put(WORD_Hot.wordName, () -> new WORD_Hot(gp, 0, 0));
-        wordPropFactory.put(WORD_Melt.wordName, () -> new WORD_Melt(gp, 0, 0));
-        wordPropFactory.put(WORD_Open.wordName, () -> new WORD_Open(gp, 0, 0));
-        wordPropFactory.put(WORD_Push.wordName, () -> new WORD_Push(gp, 0, 0));
-        wordPropFactory.put(WORD_Shift.wordName, () -> new WORD_Shift(gp, 0, 0));
-        wordPropFactory.put(WORD_Shut.wordName, () -> new WORD_Shut(gp, 0, 0));
-        wordPropFactory.put(WORD_Sink.wordName, () -> new WORD_Sink(gp, 0, 0));
-        wordPropFactory.put(WORD_Stop.wordName, () -> new WORD_Stop(gp, 0, 0));
-        wordPropFactory.put(WORD_Swap.wordName, () -> new WORD_Swap(gp, 0, 0));
-        wordPropFactory.put(WORD_Weak.wordName, () -> new WORD_Weak(gp, 0, 0));
-        wordPropFactory.put(WORD_Win.wordName, () -> new WORD_Win(gp, 0, 0));
-        wordPropFactory.put(WORD_You.wordName, () -> new WORD_You(gp, 0, 0));
+        wordPropFactory.put(WORD_Defeat.wordName, () -> new WORD_Defeat(world, 0, 0));
+        wordPropFactory.put(WORD_Float.wordName, () -> new WORD_Float(world, 0, 0));
+        wordPropFactory.put(WORD_Hot.wordName, () -> new WORD_Hot(world, 0, 0));
+        wordPropFactory.put(WORD_Melt.wordName, () -> new WORD_Melt(world, 0, 0));
+        wordPropFactory.put(WORD_Open.wordName, () -> new WORD_Open(world, 0, 0));
+        wordPropFactory.put(WORD_Push.wordName, () -> new WORD_Push(world, 0, 0));
+        wordPropFactory.put(WORD_Shift.wordName, () -> new WORD_Shift(world, 0, 0));
+        wordPropFactory.put(WORD_Shut.wordName, () -> new WORD_Shut(world, 0, 0));
+        wordPropFactory.put(WORD_Sink.wordName, () -> new WORD_Sink(world, 0, 0));
+        wordPropFactory.put(WORD_Stop.wordName, () -> new WORD_Stop(world, 0, 0));
+        wordPropFactory.put(WORD_Swap.wordName, () -> new WORD_Swap(world, 0, 0));
+        wordPropFactory.put(WORD_Weak.wordName, () -> new WORD_Weak(world, 0, 0));
+        wordPropFactory.put(WORD_Win.wordName, () -> new WORD_Win(world, 0, 0));
+        wordPropFactory.put(WORD_You.wordName, () -> new WORD_You(world, 0, 0));
 
         // I_Tiles
-        iTileFactory.put(IT_Belt.iName, (ori, _) -> new IT_Belt(gp, 0, 0, ori));
-        iTileFactory.put(IT_Wall.iName, (ori, side) -> new IT_Wall(gp, 0, 0, ori, side));
-        iTileFactory.put(IT_Water.iName, (ori, side) -> new IT_Water(gp, 0, 0, ori, side));
+        iTileFactory.put(IT_Belt.iName, (ori, _) -> new IT_Belt(world, 0, 0, ori));
+        iTileFactory.put(IT_Wall.iName, (ori, side) -> new IT_Wall(world, 0, 0, ori, side));
+        iTileFactory.put(IT_Water.iName, (ori, side) -> new IT_Water(world, 0, 0, ori, side));
+
+        // Name registry
+        register(characterFactory.keySet(), Category.CHARACTER);
+        register(objectFactory.keySet(), Category.OBJECT);
+        register(wordNounFactory.keySet(), Category.WORD_NOUN);
+        register(wordPrepFactory.keySet(), Category.WORD_PREP);
+        register(wordPropFactory.keySet(), Category.WORD_PROP);
+        register(iTileFactory.keySet(), Category.I_TILE);
+    }
+
+    private void register(Set<String> names, Category category) {
+        for (String name : names) {
+            registry.putIfAbsent(name, new EntityInfo(name, category));
+        }
+    }
+
+    /**
+     * GET INFO
+     * Looks up what the given name refers to without building an entity
+     * @param eName Name of the entity
+     * @return Info for the name, null if no factory builds it
+     */
+    public EntityInfo getInfo(String eName) {
+        return registry.get(eName);
+    }
+
+    /**
+     * GET NAMES
+     * @return Every name getEntity() can build
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(registry.keySet());
+    }
+
+    /**
+     * HAS ENTITY
+     * @param eName Name of the entity
+     * @return True if getEntity() can build the given name
+     */
+    public boolean hasEntity(String eName) {
+        return registry.containsKey(eName);
+    }
+
+    public boolean isNoun(String eName) {
+        return isCategory(eName, Category.WORD_NOUN);
+    }
+    public boolean isPreposition(String eName) {
+        return isCategory(eName, Category.WORD_PREP);
+    }
+    public boolean isProperty(String eName) {
+        return isCategory(eName, Category.WORD_PROP);
+    }
+    public boolean isITile(String eName) {
+        return isCategory(eName, Category.I_TILE);
+    }
+    private boolean isCategory(String eName, Category category) {
+        EntityInfo info = registry.get(eName);
+        return info != null && info.category() == category;
     }
 
     public Entity getEntity(String eName, int ori, int side) {
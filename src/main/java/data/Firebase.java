@@ -2,22 +2,35 @@ package data;
 
 import application.GamePanel;
 import com.google.auth.oauth2.GoogleCredentials;
-import com.google.cloud.storage.Storage;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 
-import com.google.cloud.storage.Bucket;
-import com.google.firebase.cloud.StorageClient;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import com.google.cloud.storage.Blob;
+public record Firebase(GamePanel gp, LevelBucket bucket, LevelCache cache) {
 
-import java.io.*;
+    // User folders listed per page of the browse menu
+    public static final int USERS_PAGE_SIZE = 10;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.*;
+    /* LEVEL CACHE */
+    private static final File CACHE_DIR = new File(System.getProperty("user.home") + "/baba-conf/cache/");
+    private static final long MAX_CACHE_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * One page of the user directory
+     * @param users User IDs mapped to emails
+     * @param pageToken Token of this page, null for the first page
+     * @param nextPageToken Token for the next page, null on the last page
+     */
+    public record UserPage(Map<String, String> users, String pageToken, String nextPageToken) {}
 
-public record Firebase(GamePanel gp) {
+    public Firebase(GamePanel gp) {
+        this(gp, new RetryingBucket(new FirebaseBucket()), new LevelCache(CACHE_DIR, MAX_CACHE_BYTES));
+    }
 
     public boolean init() {
         try {
@@ -44,39 +57,97 @@ public record Firebase(GamePanel gp) {
         }
     }
 
-    public void uploadLevel(Path tempFile) {
+    /**
+     * UPLOAD LEVEL
+     * Uploads an encoded level straight from memory and records it in the user's manifest
+     * @param fileName File name of the level, without its folder
+     * @param data Encoded level
+     * @param ds Level data the file was encoded from
+     * @return False on error
+     */
+    public boolean uploadLevel(String fileName, byte[] data, DataStorage ds) {
         try {
-            // Open the storage bucket
-            Bucket bucket = StorageClient.getInstance().bucket();
+            long start = System.nanoTime();
 
             // Save path to save file
-            String remotePath = gp.levelPath + tempFile;
+            String remotePath = gp.levelPath + fileName;
 
-            // Copy provided file into the Storage bucket
-            byte[] data = Files.readAllBytes(tempFile);
-            bucket.create(remotePath, data);
+            // Upload the buffer into the Storage bucket, keeping a copy for the next load
+            long generation = bucket.write(remotePath, data);
+            cache.put(remotePath, generation, data);
 
-            // Delete old file from memory
-            Files.delete(tempFile);
+            // Record the level in the user's manifest
+            LevelManifest.Entry entry = LevelManifest.createEntry(ds, data);
+            LevelManifest.update(bucket, gp.auth.getUserId(), manifest -> manifest.put(fileName, entry));
+
+            System.out.println("Uploaded " + fileName + ": " + data.length + " bytes in " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms");
+            return true;
         }
         catch (Exception e) {
             System.out.println("Error uploading file: " + e.getMessage());
+            return false;
         }
     }
 
+    /**
+     * DOWNLOAD LEVEL
+     * Serves the cached copy when its generation still matches the bucket,
+     *  which costs a metadata lookup instead of a full download
+     * While offline the last cached copy is served as is
+     * @param fileName Full path of the level
+     * @return File contents, null on error
+     */
     public byte[] downloadLevel(String fileName) {
         try {
-            // Open the storage bucket
-            Bucket bucket = StorageClient.getInstance().bucket();
+            long start = System.nanoTime();
+
+            if (!gp.dbConnected) {
+                return getCachedCopy(fileName);
+            }
 
-            // Attempt to open the file
-            Blob file = bucket.get(fileName);
-            if (file == null) {
+            // Check which generation the bucket holds
+            long generation;
+            try {
+                generation = bucket.getGeneration(fileName);
+            }
+            catch (RuntimeException e) {
+                System.out.println("Storage unreachable, loading cached level: " + e.getMessage());
+                return getCachedCopy(fileName);
+            }
+
+            if (generation == 0) {
+                cache.remove(fileName);
                 throw new IllegalStateException("File not found in Firebase Storage");
             }
 
+            // Kept copy is current
+            byte[] data = cache.get(fileName, generation);
+            if (data != null) {
+                System.out.println("Loaded " + fileName + " from cache in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+                return data;
+            }
+
+            // Download the generation just looked up
+            data = bucket.readGeneration(fileName, generation);
+
+            // Replaced in between, take whatever is there now
+            if (data == null) {
+                LevelBucket.Stored file = bucket.read(fileName);
+                if (file == null) {
+                    throw new IllegalStateException("File not found in Firebase Storage");
+                }
+
+                data = file.data();
+                generation = file.generation();
+            }
+
+            cache.put(fileName, generation, data);
+            System.out.println("Downloaded " + fileName + ": " + data.length + " bytes in " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms");
+
             // Return file contents
-            return file.getContent();
+            return data;
         }
         catch (Exception e) {
             System.out.println("Error downloading level: " + e.getMessage());
@@ -84,19 +155,28 @@ public record Firebase(GamePanel gp) {
         }
     }
 
+    private byte[] getCachedCopy(String fileName) {
+        byte[] data = cache.getAny(fileName);
+        if (data == null) {
+            throw new IllegalStateException("Level is not available offline");
+        }
+        return data;
+    }
+
     public boolean deleteLevel(String fileName) {
         try {
-            // Open the storage bucket
-            Bucket bucket = StorageClient.getInstance().bucket();
+            // Accept a full path or a bare file name
+            String name = LevelManifest.getFileName(fileName);
 
-            // Attempt to open the file
-            Blob file = bucket.get(gp.levelPath + fileName);
-            if (file == null) {
+            // Attempt to delete the file from Storage
+            cache.remove(gp.levelPath + name);
+            if (!bucket.delete(gp.levelPath + name)) {
                 throw new IllegalStateException("File not found in Firebase Storage");
             }
 
-            // Attempt to delete the file from Storage
-            return file.delete();
+            // Remove the level from the user's manifest
+            LevelManifest.update(bucket, gp.auth.getUserId(), manifest -> manifest.remove(name));
+            return true;
         }
         catch (Exception e) {
             System.out.println("Error deleting level: " + e.getMessage());
@@ -105,91 +185,64 @@ public record Firebase(GamePanel gp) {
     }
 
     public Map<String, String> getUserLevels(String userId) {
+        return getUserLevels(userId, (message, fraction) -> { });
+    }
+    public Map<String, String> getUserLevels(String userId, AsyncStorage.Progress progress) {
         try {
-            // String map to store save file names and dates
-            Map<String, String> fileNames = new LinkedHashMap<>();
-
-            // Open the storage bucket
-            Bucket bucket = StorageClient.getInstance().bucket();
-
-            // Parse over each file that has the same path as default
-            List<Blob> files = new ArrayList<>();
-            for (Blob file : bucket.list(Storage.BlobListOption.prefix("levels/" + userId + "/")).iterateAll()) {
-
-                // Ignore folders and non .dat files
-                if (file.isDirectory()) continue;
-                if (!file.getName().endsWith(".dat")) continue;
-
-                // Add to list
-                files.add(file);
-            }
+            // Single read of the user's level index
+            LevelManifest manifest = LevelManifest.load(bucket, userId);
 
-            // Sort by created time (DESC)
-            files.sort((b1, b2) -> b2.getCreateTimeOffsetDateTime().compareTo(b1.getCreateTimeOffsetDateTime()));
-
-            // Parse over each found save file
-            for (Blob file : files) {
-
-                // No content, continue
-                byte[] data = file.getContent();
-                if (data == null) continue;
-
-                // Read data
-                ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data));
-                DataStorage ds = (DataStorage) ois.readObject();
-
-                // Retrieve stored file_name value
-                String name = ds.toString();
-
-                // Add to Map (K: file ID, V: level name)
-                fileNames.put(file.getName(), name);
+            // Levels saved before the index existed, build it once
+            if (manifest == null) {
+                manifest = LevelManifest.rebuild(bucket, userId, progress);
             }
 
-            return fileNames;
+            // K: file ID, V: level name, newest first
+            return manifest.getLevels(userId);
         } catch (Exception e) {
             System.out.println("Error getting saved levels: " + e.getMessage());
             return null;
         }
     }
 
-    public Map<String, String> getAllUsers() {
+    /**
+     * GET USERS
+     * Lists one page of user folders and looks up their emails concurrently
+     * Only the folder names of one page are listed, so this costs the same for any bucket size
+     * @param pageToken Token from the previous page, null for the first page
+     * @return User IDs mapped to emails with the token for the next page, null on error
+     */
+    public UserPage getUsers(String pageToken) {
         try {
-            Map<String, String> folders = new LinkedHashMap<>();
-            Bucket bucket = StorageClient.getInstance().bucket();
-
-            Set<String> topLevelFolders = new LinkedHashSet<>();
+            LevelBucket.FolderPage page = bucket.listFolders("levels/", pageToken, USERS_PAGE_SIZE);
 
-            // Iterate over all blobs with prefix "levels/"
-            for (Blob blob : bucket.list(Storage.BlobListOption.prefix("levels/")).iterateAll()) {
-                String name = blob.getName();
+            // Folder "levels/<userId>/" to user ID, skipping the logged-in user
+            List<String> userIds = new ArrayList<>();
+            for (String folder : page.folders()) {
+                String userId = folder.substring("levels/".length(), folder.length() - 1);
 
-                // Remove "levels/" prefix
-                String remaining = name.substring("levels/".length());
-                if (remaining.isEmpty()) continue;
-
-                // Get the first part = top-level folder (userId)
-                String[] parts = remaining.split("/", 2);
-                String userId = parts[0];
-
-                // Collect unique top-level folders
-                topLevelFolders.add(userId);
+                if (userId.isEmpty() || userId.equals(gp.auth.getUserId())) continue;
+                userIds.add(userId);
             }
 
-            // Convert userId to email
-            for (String userId : topLevelFolders) {
-
-                // Skip logged-in user
-                if (userId.equals(gp.auth.getUserId())) continue;
+            // One blocking lookup per user, each on its own virtual thread
+            Map<String, Future<String>> lookups = new LinkedHashMap<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (String userId : userIds) {
+                    lookups.put(userId, executor.submit(() -> gp.auth.getEmailByUserID(userId)));
+                }
+            }
 
-                String email = gp.auth.getEmailByUserID(userId);
-                folders.put(userId, email);
+            Map<String, String> users = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<String>> lookup : lookups.entrySet()) {
+                users.put(lookup.getKey(), lookup.getValue().get());
             }
 
-            return folders;
+            return new UserPage(users, pageToken, page.nextPageToken());
         }
         catch (Exception e) {
-            System.out.println("Error getting saved levels: " + e.getMessage());
+            System.out.println("Error getting users: " + e.getMessage());
             return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,133 @@
+package data;
+
+import com.google.api.gax.paging.Page;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.Bucket;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
+import com.google.firebase.cloud.StorageClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FirebaseBucket implements LevelBucket {
+
+    // HTTP statuses Storage returns for a missing file and a failed generation precondition
+    private static final int NOT_FOUND = 404;
+    private static final int PRECONDITION_FAILED = 412;
+
+    // Attempts at reading a file that keeps changing between metadata and content
+    private static final int MAX_READ_ATTEMPTS = 5;
+
+    private Bucket bucket() {
+        return StorageClient.getInstance().bucket();
+    }
+
+    @Override
+    public Stored read(String path) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+
+            Blob file = bucket().get(path);
+            if (file == null) return null;
+
+            try {
+                // Only accept the content of the generation just looked up
+                byte[] data = file.getContent(Blob.BlobSourceOption.generationMatch());
+                return new Stored(data, file.getGeneration());
+            }
+            catch (StorageException e) {
+                if (e.getCode() != PRECONDITION_FAILED) throw e;
+            }
+        }
+
+        throw new IllegalStateException("File kept changing while reading: " + path);
+    }
+
+    @Override
+    public byte[] readGeneration(String path, long generation) {
+        Bucket bucket = bucket();
+
+        try {
+            return bucket.getStorage().readAllBytes(BlobId.of(bucket.getName(), path, generation));
+        }
+        catch (StorageException e) {
+            if (e.getCode() == NOT_FOUND) return null;
+            throw e;
+        }
+    }
+
+    @Override
+    public long write(String path, byte[] data) {
+        return generationOf(bucket().create(path, data));
+    }
+
+    @Override
+    public long getGeneration(String path) {
+        return generationOf(bucket().get(path, Storage.BlobGetOption.fields(Storage.BlobField.GENERATION)));
+    }
+    private static long generationOf(Blob file) {
+        return file == null || file.getGeneration() == null ? 0 : file.getGeneration();
+    }
+
+    @Override
+    public boolean writeIfUnchanged(String path, byte[] data, long generation) {
+        try {
+            bucket().create(path, data, generation == 0 ?
+                    Bucket.BlobTargetOption.doesNotExist() :
+                    Bucket.BlobTargetOption.generationMatch(generation));
+            return true;
+        }
+        catch (StorageException e) {
+            if (e.getCode() == PRECONDITION_FAILED) return false;
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean delete(String path) {
+        Blob file = bucket().get(path);
+        return file != null && file.delete();
+    }
+
+    @Override
+    public List<Listing> list(String prefix) {
+        List<Listing> files = new ArrayList<>();
+
+        for (Blob file : bucket().list(Storage.BlobListOption.prefix(prefix)).iterateAll()) {
+            if (file.isDirectory()) continue;
+
+            long size = file.getSize() == null ? 0 : file.getSize();
+            long created = file.getCreateTimeOffsetDateTime() == null ? 0 :
+                    file.getCreateTimeOffsetDateTime().toInstant().toEpochMilli();
+
+            files.add(new Listing(file.getName(), size, created));
+        }
+
+        return files;
+    }
+
+    @Override
+    public FolderPage listFolders(String prefix, String pageToken, int pageSize) {
+        List<Storage.BlobListOption> options = new ArrayList<>(List.of(
+                Storage.BlobListOption.prefix(prefix),
+                Storage.BlobListOption.currentDirectory(),
+                Storage.BlobListOption.pageSize(pageSize)));
+
+        if (pageToken != null) {
+            options.add(Storage.BlobListOption.pageToken(pageToken));
+        }
+
+        // Delimited listing returns one placeholder per sub-folder
+        Page<Blob> page = bucket().list(options.toArray(new Storage.BlobListOption[0]));
+
+        List<String> folders = new ArrayList<>();
+        for (Blob blob : page.getValues()) {
+            if (blob.isDirectory()) {
+                folders.add(blob.getName());
+            }
+        }
+
+        return new FolderPage(folders, page.hasNextPage() ? page.getNextPageToken() : null);
+    }
+}
@@ -0,0 +1,76 @@
+package data;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public final class LegacyLevelConverter {
+
+    // Tile size every legacy level was saved with
+    private static final int LEGACY_TILE_SIZE = 48;
+
+    // Only the classes a legacy DataStorage is made of may be deserialized
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+            "data.DataStorage;java.lang.String;[I;[Ljava.lang.String;maxdepth=4;maxarray=65536;maxbytes=16777216;!*");
+
+    private LegacyLevelConverter() {}
+
+    /**
+     * READ
+     * Reads a level saved with Java serialization, rejecting any other class
+     * @param in Legacy .dat contents
+     * @return Level data
+     */
+    public static DataStorage read(InputStream in) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(in)) {
+            ois.setObjectInputFilter(FILTER);
+            DataStorage ds = (DataStorage) ois.readObject();
+
+            // Not in the serialized class, so left at zero
+            ds.tile_size = LEGACY_TILE_SIZE;
+            ds.max_col = LevelFormat.DEFAULT_COLS;
+            ds.max_row = LevelFormat.DEFAULT_ROWS;
+
+            return ds;
+        }
+        catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a legacy level file", e);
+        }
+    }
+
+    /**
+     * CONVERT
+     * @param legacy Legacy .dat contents
+     * @return The same level in the binary format
+     */
+    public static byte[] convert(byte[] legacy) throws IOException {
+        return LevelFormat.encode(read(new ByteArrayInputStream(legacy)), LEGACY_TILE_SIZE);
+    }
+
+    /**
+     * MAIN
+     * Converts the given legacy .dat files in place, skipping ones already converted
+     * @param args Paths to level files
+     */
+    public static void main(String[] args) {
+        for (String arg : args) {
+            try {
+                Path path = Path.of(arg);
+                byte[] data = Files.readAllBytes(path);
+
+                if (!LevelFormat.isLegacy(data)) {
+                    System.out.println("Skipped " + path + ": not a legacy level");
+                    continue;
+                }
+
+                byte[] converted = convert(data);
+                Files.write(path, converted);
+
+                System.out.println("Converted " + path + " (" + data.length + " -> " + converted.length + " bytes)");
+            }
+            catch (IOException e) {
+                System.out.println("Error converting " + arg + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package data;
+
+import java.util.List;
+
+/**
+ * Storage the level files live in, a Firebase bucket in the game
+ * Kept behind an interface so saves can be exercised against a local copy
+ */
+public interface LevelBucket {
+
+    /**
+     * Contents of a stored file
+     * @param data File bytes
+     * @param generation Version of the file, changes on every write
+     */
+    record Stored(byte[] data, long generation) {}
+
+    /**
+     * A listed file, without its contents
+     * @param path Full path of the file
+     * @param size Size in bytes
+     * @param created Creation time in milliseconds
+     */
+    record Listing(String path, long size, long created) {}
+
+    /**
+     * One page of sub-folder names
+     * @param folders Folder paths on this page, each ending in "/"
+     * @param nextPageToken Token for the next page, null on the last page
+     */
+    record FolderPage(List<String> folders, String nextPageToken) {}
+
+    /**
+     * READ
+     * @param path Full path of the file
+     * @return File contents and generation, null if the file does not exist
+     */
+    Stored read(String path);
+
+    /**
+     * READ GENERATION
+     * Reads one known generation of a file in a single request
+     * @param path Full path of the file
+     * @param generation Generation to read
+     * @return File bytes, null if that generation no longer exists
+     */
+    byte[] readGeneration(String path, long generation);
+
+    /**
+     * WRITE
+     * Creates or replaces a file
+     * @param path Full path of the file
+     * @param data File bytes
+     * @return Generation of the written file
+     */
+    long write(String path, byte[] data);
+
+    /**
+     * GET GENERATION
+     * Looks up only the file's metadata, not its contents
+     * @param path Full path of the file
+     * @return Current generation, 0 if the file does not exist
+     */
+    long getGeneration(String path);
+
+    /**
+     * WRITE IF UNCHANGED
+     * Replaces a file only if it is still at the given generation
+     * @param path Full path of the file
+     * @param data File bytes
+     * @param generation Generation last read, 0 if the file must not exist yet
+     * @return False if another write got there first
+     */
+    boolean writeIfUnchanged(String path, byte[] data, long generation);
+
+    /**
+     * DELETE
+     * @param path Full path of the file
+     * @return True if a file was deleted
+     */
+    boolean delete(String path);
+
+    /**
+     * LIST
+     * @param prefix Path prefix to match
+     * @return Every file under the prefix, folders excluded
+     */
+    List<Listing> list(String prefix);
+
+    /**
+     * LIST FOLDERS
+     * Lists only the folders directly under the prefix, a page at a time,
+     *  without visiting the files inside them
+     * @param prefix Folder path ending in "/"
+     * @param pageToken Token from the previous page, null for the first page
+     * @param pageSize Maximum folders to return
+     * @return One page of folders
+     */
+    FolderPage listFolders(String prefix, String pageToken, int pageSize);
+}
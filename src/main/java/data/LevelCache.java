@@ -0,0 +1,224 @@
+package data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Copies of downloaded levels kept on disk, so a level opened again is only
+ * checked against its stored generation instead of downloaded in full
+ * Each file is named by the hash of its bucket path, its generation and a
+ * checksum of its contents:  <path hash>-<generation>-<crc32>.lvl
+ * The least recently used files are dropped once the cache grows past its cap
+ */
+public class LevelCache {
+
+    /**
+     * One cached level
+     * @param file Cache file
+     * @param generation Generation of the bucket file it was copied from
+     * @param checksum CRC32 of the contents
+     * @param size Size in bytes
+     */
+    private record Entry(File file, long generation, long checksum, long size) {}
+
+    private static final String EXTENSION = ".lvl";
+
+    private final File dir;
+    private final long maxBytes;
+
+    // Path hash to entry, least recently used first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    /* STATS */
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * CONSTRUCTOR
+     * Picks up the files left by earlier sessions, oldest use first
+     * @param dir Folder the cache lives in, created if missing
+     * @param maxBytes Size the cache is trimmed back to
+     */
+    public LevelCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            System.out.println("Error creating level cache: " + dir);
+            return;
+        }
+
+        File[] files = dir.listFiles();
+        if (files == null) return;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            String name = file.getName();
+
+            try {
+                if (!name.endsWith(EXTENSION)) throw new IllegalArgumentException(name);
+                String[] parts = name.substring(0, name.length() - EXTENSION.length()).split("-");
+
+                Entry entry = new Entry(file, Long.parseLong(parts[1]), Long.parseLong(parts[2], 16), file.length());
+                Entry old = entries.put(parts[0], entry);
+
+                // Two generations of one level, keep the one used last
+                if (old != null) drop(old);
+                totalBytes += entry.size();
+            }
+            catch (RuntimeException e) {
+                // Not a cache file, or one left half written
+                if (!file.delete()) System.out.println("Error removing stray cache file: " + file);
+            }
+        }
+
+        trim();
+    }
+
+    /**
+     * GET
+     * @param path Bucket path of the level
+     * @param generation Generation the bucket holds now
+     * @return Cached contents, null if missing, stale or damaged
+     */
+    public synchronized byte[] get(String path, long generation) {
+        Entry entry = entries.get(hash(path));
+
+        if (entry == null || entry.generation() != generation) {
+            misses++;
+            return null;
+        }
+
+        byte[] data = readEntry(path, entry);
+        if (data == null) misses++;
+        else hits++;
+
+        return data;
+    }
+
+    /**
+     * GET ANY
+     * Used while offline, when the current generation cannot be checked
+     * @param path Bucket path of the level
+     * @return Last cached contents of any generation, null if none
+     */
+    public synchronized byte[] getAny(String path) {
+        Entry entry = entries.get(hash(path));
+        return entry == null ? null : readEntry(path, entry);
+    }
+
+    /**
+     * PUT
+     * Replaces any older generation of the level, then trims the cache to its cap
+     * @param path Bucket path of the level
+     * @param generation Generation of the bucket file
+     * @param data Contents
+     */
+    public synchronized void put(String path, long generation, byte[] data) {
+        String key = hash(path);
+        long checksum = checksum(data);
+
+        File file = new File(dir, key + "-" + generation + "-" + Long.toHexString(checksum) + EXTENSION);
+        File temp = new File(dir, file.getName() + ".tmp");
+
+        try {
+            // Written aside and renamed, so a crash never leaves a partial file under a valid name
+            Files.write(temp.toPath(), data);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e) {
+            System.out.println("Error caching level: " + e.getMessage());
+            temp.delete();
+            return;
+        }
+
+        Entry old = entries.put(key, new Entry(file, generation, checksum, data.length));
+        if (old != null && !old.file().equals(file)) drop(old);
+        else if (old != null) totalBytes -= old.size();
+
+        totalBytes += data.length;
+        trim();
+    }
+
+    /**
+     * REMOVE
+     * @param path Bucket path of the level
+     */
+    public synchronized void remove(String path) {
+        Entry entry = entries.remove(hash(path));
+        if (entry != null) drop(entry);
+    }
+
+    public synchronized long getSize() {
+        return totalBytes;
+    }
+    public synchronized int getCount() {
+        return entries.size();
+    }
+    public synchronized long getHits() {
+        return hits;
+    }
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private byte[] readEntry(String path, Entry entry) {
+        try {
+            byte[] data = Files.readAllBytes(entry.file().toPath());
+
+            if (checksum(data) != entry.checksum()) {
+                throw new IOException("checksum mismatch");
+            }
+
+            // Recorded on disk so the order survives restarts
+            entry.file().setLastModified(System.currentTimeMillis());
+            return data;
+        }
+        catch (IOException e) {
+            System.out.println("Dropping damaged cache file for " + path + ": " + e.getMessage());
+            entries.remove(hash(path));
+            drop(entry);
+            return null;
+        }
+    }
+
+    private void trim() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Entry entry = it.next();
+            it.remove();
+            drop(entry);
+        }
+    }
+
+    private void drop(Entry entry) {
+        totalBytes -= entry.size();
+        if (entry.file().exists() && !entry.file().delete()) {
+            System.out.println("Error removing cache file: " + entry.file());
+        }
+    }
+
+    private static long checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    private static String hash(String path) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(path.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
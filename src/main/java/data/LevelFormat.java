@@ -0,0 +1,92 @@
+package data;
+
+import entity.tile_interactive.IT_Belt;
+import entity.tile_interactive.IT_Wall;
+import entity.tile_interactive.IT_Water;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary level file layout (version 2), all integers are varints
+ *  magic "BABA", version, tile size, columns and rows (version 2), level name, file date, song
+ *  string table: count, then per name its text and orientation kind
+ *  entities: count, then per entity (name index << 1 | unaligned),
+ *   col and row (or x and y in pixels when unaligned), then ori/side if its kind needs them
+ * Strings are stored as (UTF-8 length + 1) and bytes, 0 marks null
+ */
+public final class LevelFormat {
+
+    static final byte[] MAGIC = {'B', 'A', 'B', 'A'};
+    public static final int VERSION = 2;
+
+    /* BOARD (every level saved before version 2 was played on this one) */
+    public static final int DEFAULT_TILE_SIZE = 48;
+    public static final int DEFAULT_COLS = 33;
+    public static final int DEFAULT_ROWS = 18;
+
+    /* ORIENTATION KINDS (fields stored after each entity of that name) */
+    static final int KIND_PLAIN = 0;
+    static final int KIND_ORI = 1;
+    static final int KIND_ORI_SIDE = 2;
+
+    /* LIMITS (reject corrupt or hostile files before allocating) */
+    static final int MAX_ENTITIES = 1 << 16;
+    static final int MAX_NAMES = 1 << 12;
+    static final int MAX_STRING_BYTES = 1 << 12;
+    static final int MAX_BOARD_SIZE = 1 << 12;
+
+    private LevelFormat() {}
+
+    /**
+     * ENCODE
+     * @param ds Level data
+     * @param tileSize Size of one tile in the saved world coordinates
+     * @return Level data in the binary format
+     */
+    public static byte[] encode(DataStorage ds, int tileSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (LevelWriter writer = new LevelWriter(bytes, tileSize)) {
+            writer.write(ds);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * DECODE
+     * Reads a level in the binary format, or a legacy serialized .dat file
+     * @param data File contents
+     * @return Level data
+     */
+    public static DataStorage decode(byte[] data) throws IOException {
+        if (isLegacy(data)) {
+            return LegacyLevelConverter.read(new ByteArrayInputStream(data));
+        }
+
+        try (LevelReader reader = new LevelReader(new ByteArrayInputStream(data))) {
+            return reader.read();
+        }
+    }
+
+    /**
+     * IS LEGACY
+     * @param data File contents
+     * @return True if the data starts with the Java serialization header
+     */
+    public static boolean isLegacy(byte[] data) {
+        return data.length >= 2 && (data[0] & 0xFF) == 0xAC && (data[1] & 0xFF) == 0xED;
+    }
+
+    static int getKind(String name) {
+        if (name == null) return KIND_PLAIN;
+
+        return switch (name) {
+            case IT_Belt.iName -> KIND_ORI;
+            case IT_Wall.iName, IT_Water.iName -> KIND_ORI_SIDE;
+            default -> KIND_PLAIN;
+        };
+    }
+}
@@ -0,0 +1,247 @@
+package data;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Index of one user's saved levels, stored next to them as a single small file
+ * so the load menu can be listed without downloading every level
+ */
+public class LevelManifest {
+
+    /**
+     * Summary of one saved level
+     * @param levelName Name given by the user
+     * @param fileDate Date the level was saved (MM/dd/yyyy)
+     * @param size Size of the level file in bytes
+     * @param entityCount Number of entities in the level
+     * @param checksum CRC32 of the level file
+     * @param savedAt Time the level was saved in milliseconds
+     */
+    public record Entry(String levelName, String fileDate, long size, int entityCount, long checksum, long savedAt) {
+        public String toString() {
+            return levelName + " [" + fileDate + "]";
+        }
+    }
+
+    public static final String FILE_NAME = "manifest.idx";
+
+    private static final int MAGIC = 0x42494458; // "BIDX"
+    private static final int VERSION = 1;
+
+    // Most levels a manifest can list, a larger count means the file is corrupt
+    static final int MAX_LEVELS = 1 << 16;
+
+    // Attempts at replacing the manifest while other saves keep changing it
+    private static final int MAX_UPDATE_ATTEMPTS = 8;
+
+    // Level file name (not the full path) mapped to its summary
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public static String getPath(String userId) {
+        return "levels/" + userId + "/" + FILE_NAME;
+    }
+    public static String getFileName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * CREATE ENTRY
+     * @param ds Level data
+     * @param data Level file contents
+     * @return Summary of the level
+     */
+    public static Entry createEntry(DataStorage ds, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        int entityCount = 0;
+        if (ds.names != null) {
+            for (String name : ds.names) {
+                if (!"NULL".equals(name)) entityCount++;
+            }
+        }
+
+        return new Entry(ds.level_name, ds.file_date, data.length, entityCount, crc.getValue(), System.currentTimeMillis());
+    }
+
+    public void put(String fileName, Entry entry) {
+        entries.put(fileName, entry);
+    }
+    public void remove(String fileName) {
+        entries.remove(fileName);
+    }
+    public boolean contains(String fileName) {
+        return entries.containsKey(fileName);
+    }
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * GET LEVELS
+     * @param userId Owner of the manifest
+     * @return Level paths mapped to their display names, newest first
+     */
+    public Map<String, String> getLevels(String userId) {
+        List<Map.Entry<String, Entry>> sorted = new ArrayList<>(entries.entrySet());
+        sorted.sort((e1, e2) -> Long.compare(e2.getValue().savedAt(), e1.getValue().savedAt()));
+
+        Map<String, String> levels = new LinkedHashMap<>();
+        for (Map.Entry<String, Entry> e : sorted) {
+            levels.put("levels/" + userId + "/" + e.getKey(), e.getValue().toString());
+        }
+
+        return levels;
+    }
+    public Map<String, Entry> getEntries() {
+        return Collections.unmodifiableMap(entries);
+    }
+
+    /**
+     * LOAD
+     * @param bucket Storage holding the levels
+     * @param userId Owner of the manifest
+     * @return The user's manifest, null if none has been written yet
+     */
+    public static LevelManifest load(LevelBucket bucket, String userId) throws IOException {
+        LevelBucket.Stored stored = bucket.read(getPath(userId));
+        return stored == null ? null : decode(stored.data());
+    }
+
+    /**
+     * UPDATE
+     * Applies a change to the user's manifest and writes it back only if nobody
+     *  else wrote it in between, re-reading and retrying otherwise
+     * @param bucket Storage holding the levels
+     * @param userId Owner of the manifest
+     * @param change Change to apply, may run more than once
+     */
+    public static void update(LevelBucket bucket, String userId, Consumer<LevelManifest> change) throws IOException {
+        String path = getPath(userId);
+
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+
+            LevelBucket.Stored stored = bucket.read(path);
+            LevelManifest manifest = stored == null ? new LevelManifest() : decode(stored.data());
+
+            change.accept(manifest);
+
+            if (bucket.writeIfUnchanged(path, manifest.encode(), stored == null ? 0 : stored.generation())) {
+                return;
+            }
+        }
+
+        throw new IOException("Level manifest kept changing, gave up after " + MAX_UPDATE_ATTEMPTS + " attempts");
+    }
+
+    /**
+     * REBUILD
+     * Builds the manifest for levels saved before manifests existed,
+     *  downloading each level once
+     * Called the first time a user's levels are listed without a manifest
+     * @param bucket Storage holding the levels
+     * @param userId Owner of the levels
+     * @param progress Told after each level is read
+     * @return The manifest as written
+     */
+    public static LevelManifest rebuild(LevelBucket bucket, String userId, AsyncStorage.Progress progress) throws IOException {
+        Map<String, Entry> found = new HashMap<>();
+
+        List<LevelBucket.Listing> files = bucket.list("levels/" + userId + "/");
+        for (int i = 0; i < files.size(); i++) {
+            LevelBucket.Listing file = files.get(i);
+            progress.update("Indexing levels (" + (i + 1) + "/" + files.size() + ")", (double) i / files.size());
+
+            if (!file.path().endsWith(".dat")) continue;
+
+            LevelBucket.Stored stored = bucket.read(file.path());
+            if (stored == null) continue;
+
+            try {
+                DataStorage ds = LevelFormat.decode(stored.data());
+                Entry e = createEntry(ds, stored.data());
+
+                found.put(getFileName(file.path()), new Entry(e.levelName(), e.fileDate(),
+                        e.size(), e.entityCount(), e.checksum(), file.created()));
+            }
+            catch (IOException e) {
+                System.out.println("Skipping unreadable level " + file.path() + ": " + e.getMessage());
+            }
+        }
+
+        // Keep entries other saves added meanwhile
+        LevelManifest[] written = new LevelManifest[1];
+        update(bucket, userId, manifest -> {
+            found.forEach((fileName, entry) -> {
+                if (!manifest.contains(fileName)) manifest.put(fileName, entry);
+            });
+            written[0] = manifest;
+        });
+
+        return written[0];
+    }
+
+    /**
+     * ENCODE
+     * @return Manifest file contents
+     */
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+
+                out.writeUTF(e.getKey());
+                out.writeUTF(Objects.requireNonNullElse(entry.levelName(), ""));
+                out.writeUTF(Objects.requireNonNullElse(entry.fileDate(), ""));
+                out.writeLong(entry.size());
+                out.writeInt(entry.entityCount());
+                out.writeLong(entry.checksum());
+                out.writeLong(entry.savedAt());
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * DECODE
+     * @param data Manifest file contents
+     * @return Manifest
+     */
+    public static LevelManifest decode(byte[] data) throws IOException {
+        LevelManifest manifest = new LevelManifest();
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a level manifest");
+            }
+
+            int version = in.readInt();
+            if (version > VERSION) {
+                throw new IOException("Level manifest version " + version + " is newer than supported version " + VERSION);
+            }
+
+            int count = in.readInt();
+            if (count < 0 || count > MAX_LEVELS) {
+                throw new IOException("Corrupt level manifest: count " + count);
+            }
+
+            for (int i = 0; i < count; i++) {
+                String fileName = in.readUTF();
+                manifest.put(fileName, new Entry(
+                        in.readUTF(), in.readUTF(), in.readLong(), in.readInt(), in.readLong(), in.readLong()));
+            }
+        }
+
+        return manifest;
+    }
+}
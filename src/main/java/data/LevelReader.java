@@ -0,0 +1,202 @@
+package data;
+
+import entity.tile_interactive.IT_Belt;
+import entity.tile_interactive.IT_Wall;
+import entity.tile_interactive.IT_Water;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class LevelReader implements Closeable {
+
+    private final InputStream in;
+
+    // Bytes are read from the stream in blocks and unpacked from here
+    private final byte[] buffer = new byte[8192];
+    private int position = 0;
+    private int limit = 0;
+
+    /**
+     * CONSTRUCTOR
+     * @param in Stream holding a level in the binary format
+     */
+    public LevelReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * READ
+     * Reads one level written by LevelWriter
+     * @return Level data with the same arrays SaveLoad builds, -1 where a field is unused
+     */
+    public DataStorage read() throws IOException {
+
+        // HEADER
+        byte[] magic = new byte[LevelFormat.MAGIC.length];
+        readFully(magic);
+        if (!Arrays.equals(magic, LevelFormat.MAGIC)) {
+            throw new IOException("Not a level file");
+        }
+
+        int version = readVarInt();
+        if (version > LevelFormat.VERSION) {
+            throw new IOException("Level file version " + version + " is newer than supported version " + LevelFormat.VERSION);
+        }
+
+        int tileSize = readVarInt();
+        if (tileSize <= 0) {
+            throw new IOException("Corrupt level file: tile size " + tileSize);
+        }
+
+        DataStorage ds = new DataStorage();
+        ds.tile_size = tileSize;
+
+        // Older files were all played on the default board
+        if (version >= 2) {
+            ds.max_col = readVarInt();
+            ds.max_row = readVarInt();
+
+            if (ds.max_col <= 0 || ds.max_col > LevelFormat.MAX_BOARD_SIZE || ds.max_row <= 0 || ds.max_row > LevelFormat.MAX_BOARD_SIZE) {
+                throw new IOException("Corrupt level file: board " + ds.max_col + "x" + ds.max_row);
+            }
+        }
+
+        ds.level_name = readString();
+        ds.file_date = readString();
+        ds.song = readSignedVarInt();
+
+        // STRING TABLE
+        int tableSize = readCount(LevelFormat.MAX_NAMES);
+        String[] table = new String[tableSize];
+        int[] kinds = new int[tableSize];
+
+        for (int i = 0; i < tableSize; i++) {
+            table[i] = readString();
+            kinds[i] = readByte();
+        }
+
+        // ENTITIES
+        int size = readCount(LevelFormat.MAX_ENTITIES);
+
+        ds.names = new String[size];
+        ds.worldX = new int[size];
+        ds.worldY = new int[size];
+        ds.belt_ori = new int[size];
+        ds.wall_ori = new int[size];
+        ds.wall_side = new int[size];
+        ds.water_ori = new int[size];
+        ds.water_side = new int[size];
+
+        Arrays.fill(ds.belt_ori, -1);
+        Arrays.fill(ds.wall_ori, -1);
+        Arrays.fill(ds.wall_side, -1);
+        Arrays.fill(ds.water_ori, -1);
+        Arrays.fill(ds.water_side, -1);
+
+        for (int i = 0; i < size; i++) {
+
+            int key = readVarInt();
+            int index = key >>> 1;
+            boolean unaligned = (key & 1) != 0;
+
+            if (index >= tableSize) {
+                throw new IOException("Corrupt level file: name index " + index);
+            }
+
+            String name = table[index];
+            ds.names[i] = name;
+
+            int x = readSignedVarInt();
+            int y = readSignedVarInt();
+            ds.worldX[i] = unaligned ? x : x * tileSize;
+            ds.worldY[i] = unaligned ? y : y * tileSize;
+
+            // Orientation fields follow only for kinds that store them
+            int ori = -1, side = -1;
+            if (kinds[index] >= LevelFormat.KIND_ORI) ori = readSignedVarInt();
+            if (kinds[index] >= LevelFormat.KIND_ORI_SIDE) side = readSignedVarInt();
+
+            switch (name) {
+                case IT_Belt.iName -> ds.belt_ori[i] = ori;
+                case IT_Wall.iName -> {
+                    ds.wall_ori[i] = ori;
+                    ds.wall_side[i] = side;
+                }
+                case IT_Water.iName -> {
+                    ds.water_ori[i] = ori;
+                    ds.water_side[i] = side;
+                }
+                case null, default -> { }
+            }
+        }
+
+        return ds;
+    }
+
+    private int readCount(int max) throws IOException {
+        int count = readVarInt();
+        if (count < 0 || count > max) {
+            throw new IOException("Corrupt level file: count " + count);
+        }
+        return count;
+    }
+
+    private String readString() throws IOException {
+        int length = readVarInt();
+        if (length == 0) return null;
+
+        length--;
+        if (length > LevelFormat.MAX_STRING_BYTES) {
+            throw new IOException("Corrupt level file: string length " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+    private int readVarInt() throws IOException {
+        int value = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Corrupt level file: varint too long");
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+
+            if (limit <= 0) {
+                limit = 0;
+                throw new EOFException("Level file ended early");
+            }
+        }
+
+        return buffer[position++] & 0xFF;
+    }
+    private void readFully(byte[] bytes) throws IOException {
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) readByte();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
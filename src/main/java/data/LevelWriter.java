@@ -0,0 +1,152 @@
+package data;
+
+import entity.tile_interactive.IT_Belt;
+import entity.tile_interactive.IT_Wall;
+import entity.tile_interactive.IT_Water;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LevelWriter implements Closeable {
+
+    private final OutputStream out;
+    private final int tileSize;
+
+    // Bytes are packed here and handed to the stream in blocks
+    private final byte[] buffer = new byte[8192];
+    private int position = 0;
+
+    /**
+     * CONSTRUCTOR
+     * @param out Stream the level is written to
+     * @param tileSize Size of one tile in the saved world coordinates
+     */
+    public LevelWriter(OutputStream out, int tileSize) {
+        this.out = out;
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * WRITE
+     * Writes the level in the binary format described in LevelFormat
+     * @param ds Level data
+     */
+    public void write(DataStorage ds) throws IOException {
+
+        // HEADER
+        writeBytes(LevelFormat.MAGIC);
+        writeVarInt(LevelFormat.VERSION);
+        writeVarInt(tileSize);
+        writeVarInt(ds.max_col);
+        writeVarInt(ds.max_row);
+        writeString(ds.level_name);
+        writeString(ds.file_date);
+        writeSignedVarInt(ds.song);
+
+        // STRING TABLE
+        String[] names = ds.names == null ? new String[0] : ds.names;
+
+        Map<String, Integer> table = new LinkedHashMap<>();
+        for (String name : names) {
+            table.putIfAbsent(name, table.size());
+        }
+
+        writeVarInt(table.size());
+        for (String name : table.keySet()) {
+            writeString(name);
+            writeByte(LevelFormat.getKind(name));
+        }
+
+        // ENTITIES
+        writeVarInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+
+            int x = ds.worldX[i];
+            int y = ds.worldY[i];
+            boolean unaligned = x % tileSize != 0 || y % tileSize != 0;
+
+            writeVarInt(table.get(names[i]) << 1 | (unaligned ? 1 : 0));
+
+            if (unaligned) {
+                writeSignedVarInt(x);
+                writeSignedVarInt(y);
+            }
+            else {
+                writeSignedVarInt(x / tileSize);
+                writeSignedVarInt(y / tileSize);
+            }
+
+            // Orientation only for i-tiles that use it
+            switch (names[i]) {
+                case IT_Belt.iName -> writeSignedVarInt(ds.belt_ori[i]);
+                case IT_Wall.iName -> {
+                    writeSignedVarInt(ds.wall_ori[i]);
+                    writeSignedVarInt(ds.wall_side[i]);
+                }
+                case IT_Water.iName -> {
+                    writeSignedVarInt(ds.water_ori[i]);
+                    writeSignedVarInt(ds.water_side[i]);
+                }
+                case null, default -> { }
+            }
+        }
+
+        flush();
+    }
+
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            writeVarInt(0);
+            return;
+        }
+
+        // LevelReader rejects longer strings, so the level could not be loaded again
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > LevelFormat.MAX_STRING_BYTES) {
+            throw new IOException("String of " + bytes.length + " bytes is longer than " + LevelFormat.MAX_STRING_BYTES);
+        }
+
+        writeVarInt(bytes.length + 1);
+        writeBytes(bytes);
+    }
+
+    private void writeSignedVarInt(int value) throws IOException {
+        // Zigzag so small negatives (-1 filler) stay one byte
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (position == buffer.length) flush();
+        buffer[position++] = (byte) b;
+    }
+    private void writeBytes(byte[] bytes) throws IOException {
+        for (byte b : bytes) {
+            writeByte(b);
+        }
+    }
+
+    /**
+     * FLUSH
+     * Hands the packed bytes to the stream
+     */
+    public void flush() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
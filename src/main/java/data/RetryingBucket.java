@@ -0,0 +1,115 @@
+package data;
+
+import com.google.cloud.storage.StorageException;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Level storage that retries calls failing for transient reasons
+ * (dropped connections, rate limits, server errors) with exponential backoff
+ */
+public class RetryingBucket implements LevelBucket {
+
+    // Tries per call, the first included
+    private static final int MAX_ATTEMPTS = 4;
+
+    // Wait before the first retry, doubled after each failure
+    private static final long BASE_DELAY = 250;
+    private static final long MAX_DELAY = 4000;
+
+    private final LevelBucket bucket;
+
+    /**
+     * CONSTRUCTOR
+     * @param bucket Storage the calls are passed on to
+     */
+    public RetryingBucket(LevelBucket bucket) {
+        this.bucket = bucket;
+    }
+
+    @Override
+    public Stored read(String path) {
+        return retry("read " + path, () -> bucket.read(path));
+    }
+
+    @Override
+    public byte[] readGeneration(String path, long generation) {
+        return retry("read " + path, () -> bucket.readGeneration(path, generation));
+    }
+
+    @Override
+    public long write(String path, byte[] data) {
+        return retry("write " + path, () -> bucket.write(path, data));
+    }
+
+    @Override
+    public long getGeneration(String path) {
+        return retry("look up " + path, () -> bucket.getGeneration(path));
+    }
+
+    @Override
+    public boolean writeIfUnchanged(String path, byte[] data, long generation) {
+        // A write that landed before its reply was lost fails the precondition on retry,
+        //  which callers already handle by re-reading
+        return retry("write " + path, () -> bucket.writeIfUnchanged(path, data, generation));
+    }
+
+    @Override
+    public boolean delete(String path) {
+        return retry("delete " + path, () -> bucket.delete(path));
+    }
+
+    @Override
+    public List<Listing> list(String prefix) {
+        return retry("list " + prefix, () -> bucket.list(prefix));
+    }
+
+    @Override
+    public FolderPage listFolders(String prefix, String pageToken, int pageSize) {
+        return retry("list " + prefix, () -> bucket.listFolders(prefix, pageToken, pageSize));
+    }
+
+    /**
+     * RETRY
+     * Runs a call until it succeeds, fails for good or runs out of attempts
+     * Waits are interrupted when the storage request is cancelled
+     * @param action Description of the call for the log
+     * @param call Storage call
+     * @return Result of the call
+     */
+    private <T> T retry(String action, Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            }
+            catch (RuntimeException e) {
+                if (attempt >= MAX_ATTEMPTS || !isTransient(e)) throw e;
+
+                // Random half of the delay added so clients that failed together spread out
+                long delay = Math.min(MAX_DELAY, BASE_DELAY << (attempt - 1));
+                delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+
+                System.out.println("Retrying " + action + " in " + delay + " ms: " + e.getMessage());
+
+                try {
+                    Thread.sleep(delay);
+                }
+                catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Cancelled while retrying " + action);
+                }
+            }
+        }
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        if (e instanceof StorageException se) {
+            return se.isRetryable();
+        }
+        return e instanceof UncheckedIOException;
+    }
+}
@@ -1,30 +1,23 @@
 package data;
 
 import application.GamePanel;
+import application.World;
 import entity.Entity;
 import entity.tile_interactive.IT_Belt;
 import entity.tile_interactive.IT_Wall;
 import entity.tile_interactive.IT_Water;
 
-import java.awt.*;
-import java.io.*;
-import java.nio.file.Path;
 import java.sql.Date;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.TimeZone;
 import java.util.UUID;
 
 public record SaveLoad(GamePanel gp) {
 
     public void resetData() {
-        gp.entities.clear();
+        gp.world.clear();
     }
 
-    public void save(String levelName, String fileName) {
-        saveToData(levelName);
-        saveToFile(fileName);
-    }
     public void saveToData(String levelName) {
         try {
             DataStorage ds = new DataStorage();
@@ -38,8 +31,12 @@ public record SaveLoad(GamePanel gp) {
 
             ds.song = gp.song;
 
+            ds.tile_size = gp.tileSize;
+            ds.max_col = gp.world.maxWorldCol;
+            ds.max_row = gp.world.maxWorldRow;
+
             // Initialize entity data lists
-            int size = gp.entities.size();
+            int size = gp.world.entities.size();
 
             ds.names = new String[size];
             ds.worldX = new int[size];
@@ -55,7 +52,7 @@ public record SaveLoad(GamePanel gp) {
             // Parse over each entity
             for (int i = 0; i < size; i++) {
 
-                Entity e = gp.entities.get(i);
+                Entity e = gp.world.entities.get(i);
 
                 // Entity not present
                 if (e == null) {
@@ -98,103 +95,94 @@ public record SaveLoad(GamePanel gp) {
             System.out.println("Error saving level: " + e.getMessage());
         }
     }
-    private void saveToFile(String fileName) {
+    /**
+     * SAVE TO FILE
+     * Writes and uploads a level, safe to run off the game thread
+     * @param ds Level data
+     * @param fileName Path of the level to overwrite, empty for a new level
+     * @return Path the level was saved to, null on error
+     */
+    public String saveToFile(DataStorage ds, String fileName) {
         try {
-            if (!gp.dbConnected || gp.levelProgress == null) return;
+            if (!gp.dbConnected || ds == null) return null;
 
             // Create new save or overwrite existing one
-            String fileID = fileName.isEmpty() ? UUID.randomUUID() + ".dat" : fileName;
+            String fileID = fileName.isEmpty() ? UUID.randomUUID() + ".dat" : LevelManifest.getFileName(fileName);
 
-            Path tempFile = Path.of(fileID);
-            ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(tempFile.toFile()));
-
-            // Write to the DS object
-            oos.writeObject(gp.levelProgress);
-            oos.close();
+            // Encode the DS object in the binary level format, in memory
+            byte[] data = LevelFormat.encode(ds, gp.tileSize);
 
             // Upload to Firebase storage
-            gp.db.uploadLevel(tempFile);
+            if (!gp.db.uploadLevel(fileID, data, ds)) return null;
 
-            // Update stored save files
-            gp.saveFiles = gp.db.getUserLevels(gp.auth.getUserId());
+            return gp.levelPath + fileID;
         }
         catch (Exception e) {
             System.out.println("Error saving level: " + e.getMessage());
+            return null;
         }
     }
 
-    public void load(String fileName) {
-        loadFile(fileName);
-        loadFromData();
-    }
-    private void loadFile(String fileName) {
+    /**
+     * LOAD FILE
+     * Downloads and decodes a level, safe to run off the game thread
+     * @param fileName Full path of the level
+     * @return Level data, null on error
+     */
+    public DataStorage loadFile(String fileName) {
         try {
-            if (!gp.dbConnected) return;
-
-            // Get save file from Firebase storage
+            // Get save file from Firebase storage, or the local cache while offline
             byte[] data = gp.db.downloadLevel(fileName);
-            if (data == null) return;
-
-            // Read saved file
-            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data));
-
-            // Load data to the DS object
-            gp.levelProgress = (DataStorage) ois.readObject();
+            if (data == null) return null;
 
-            // Close file
-            ois.close();
+            // Load data to the DS object (binary or legacy format)
+            return LevelFormat.decode(data);
         }
         catch (Exception e) {
             System.out.println("Error loading level: " + e.getMessage());
+            return null;
         }
     }
+
+    /**
+     * LINK TIMELINE
+     * Names the saved undo timeline of a level by its file name, found by building its starting
+     *  board in a world of its own, safe to run off the game thread
+     * Called by AsyncStorage when the level is loaded or saved
+     * @param fileName Path of the level
+     * @param ds Level data
+     */
+    public void linkTimeline(String fileName, DataStorage ds) {
+        World world = new World(gp.tileSize, gp.world.maxWorldCol, gp.world.maxWorldRow);
+        world.setTimelineDir(GamePanel.TIMELINE_DIR);
+        world.loadLevel(ds);
+        world.linkTimeline(LevelManifest.getFileName(fileName));
+    }
+
+    /**
+     * DELETE TIMELINE
+     * Deletes the saved undo timeline linked to a level, without reading the level
+     * Called by AsyncStorage when the level is deleted
+     * @param fileName Path of the level
+     */
+    public void deleteTimeline(String fileName) {
+        World world = new World(gp.tileSize, gp.world.maxWorldCol, gp.world.maxWorldRow);
+        world.setTimelineDir(GamePanel.TIMELINE_DIR);
+        world.deleteTimeline(LevelManifest.getFileName(fileName));
+    }
+
     public void loadFromData() {
         try {
             // Load data to the DS object
             DataStorage ds = gp.levelProgress;
 
-            // Parse over each entity
-            ArrayList<Entity> entities = gp.entities;
-            entities.clear();
-
             gp.song = ds.song;
 
-            for (int i = 0; i < ds.names.length; i++) {
-
-                // Grab saved name from file
-                String name = ds.names[i];
-
-                // No data, skip
-                if ("NULL".equals(name)) {
-                    continue;
-                }
-
-                // Get type if iTile
-                Entity e = switch (name) {
-                    case (IT_Belt.iName) -> gp.eGenerator.getEntity(name, ds.belt_ori[i], 0);
-                    case IT_Wall.iName -> gp.eGenerator.getEntity(name, ds.wall_ori[i], ds.wall_side[i]);
-                    case IT_Water.iName -> gp.eGenerator.getEntity(name, ds.water_ori[i], ds.water_side[i]);
-                    default -> gp.eGenerator.getEntity(name, -1, -1);
-                };
-
-                if (e == null) continue;
-
-                e.setPoint(new Point(ds.worldX[i], ds.worldY[i]));
-
-                // Assign to GamePanel entity list
-                entities.add(e);
-            }
+            // Build entities from saved data
+            gp.world.loadLevel(ds);
         }
         catch (Exception e) {
             System.out.println("Error loading level: " + e.getMessage());
         }
     }
-
-    public void delete(String fileName) {
-        if (!gp.dbConnected) return;
-
-        if (gp.db.deleteLevel(fileName)) {
-            gp.saveFiles = gp.db.getUserLevels(gp.auth.getUserId());
-        }
-    }
 }
\ No newline at end of file
@@ -1,23 +1,20 @@
 package entity;
 
-import application.GamePanel;
-
-import java.awt.*;
+import application.World;
 
 public abstract class CharacterEntity extends Entity {
 
-    public CharacterEntity(GamePanel gp, int col, int row, String name) {
-        super(gp);
+    public CharacterEntity(World world, int col, int row, String name) {
+        super(world);
 
-        this.point = new Point(col * gp.tileSize, row * gp.tileSize);
+        point.setLocation(col * world.tileSize, row * world.tileSize);
         setPreviousPoint(point);
         this.name = name;
-        this.direction = GamePanel.Direction.RIGHT;
-
-        getImages(name);
+        this.direction = World.Direction.RIGHT;
     }
 
-    protected void getImages(String name) {
+    @Override
+    protected void setImages() {
         String fileName = name.toLowerCase();
 
         image = setupImage("/characters/" + fileName);
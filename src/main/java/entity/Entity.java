@@ -1,37 +1,49 @@
 package entity;
 
-import application.GamePanel;
-import application.GamePanel.Direction;
+import application.SpriteAtlas;
+import application.World;
+import application.World.Direction;
 import entity.word.*;
 import rules.Properties;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static application.GamePanel.Direction.*;
+import static application.World.Direction.*;
 
 public class Entity {
 
     // Empty enum list to hold properties
     private final EnumSet<Properties> properties = EnumSet.noneOf(Properties.class);
 
-    protected GamePanel gp;
+    // Walked in enum order instead of iterating the set, which allocates
+    private static final Properties[] PROPERTIES = Properties.values();
 
-    private static int NEXT_ID = 0;
+    protected World world;
+
+    // Shared by every world, solver threads build entities at the same time
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
     private int id;
 
     /* GENERAL ATTRIBUTES */
-    protected Point point, previousPoint;
+    // Updated in place, never replaced, callers holding either see it change
+    protected final Point point = new Point(), previousPoint = new Point();
     protected String name;
     protected int ori, side;
     private boolean alive = true;
 
+    /* TILE GRID VALUES */
+    private boolean onGrid = false;
+    private int gridCell = -1;
+
+    // Order of entry into the entity list, sorts tile stacks into entity list order
+    private long listOrder = 0;
+
     /* MOVEMENT VALUES */
-    protected GamePanel.Direction direction = DOWN;
+    protected World.Direction direction = DOWN;
     private final int speed = 6;
     private boolean moving = false;
     private boolean reversing = false;
@@ -48,48 +60,48 @@ public class Entity {
     protected BufferedImage left2;
     protected BufferedImage right1;
     protected BufferedImage right2;
+    private boolean imagesLoaded = false;
 
     /* ANIMATION VALUES */
     protected int spriteNum = 1;
     protected int spriteCounter = 0;
     private int pixelCounter = 0;
 
+    /* TWEEN VALUES */
+    private final Point tweenFrom = new Point();
+    private final Point drawPoint = new Point();
+    private int tweenCounter = 0;
+
     /**
      * CONSTRUCTOR
-     * @param gp GamePanel
+     * @param world World
      */
-    public Entity(GamePanel gp) {
-        this.gp = gp;
-        this.id = NEXT_ID++;
-        setImages();
+    public Entity(World world) {
+        this.world = world;
+        this.id = NEXT_ID.getAndIncrement();
     }
 
     /* CHILD FUNCTIONS */
     /**
-     * GET IMAGE
+     * SET IMAGES
+     * Assigns the sprites, loaded on first draw so the simulation never touches images
      */
     protected void setImages() { }
 
+    private void loadImages() {
+        if (imagesLoaded) return;
+
+        setImages();
+        imagesLoaded = true;
+    }
+
     /**
      * SETUP IMAGE
      * @param imagePath Path to image file
      * @return Scaled image
      */
     protected BufferedImage setupImage(String imagePath) {
-
-        BufferedImage image = null;
-
-        try {
-            image = ImageIO.read(Objects.requireNonNull(
-                    getClass().getResourceAsStream(imagePath + ".png")
-            ));
-            image = GamePanel.utility.scaleImage(image, gp.tileSize, gp.tileSize);
-        }
-        catch (IOException e) {
-            System.out.println("Error loading image:" + e.getMessage());
-        }
-
-        return image;
+        return SpriteAtlas.getInstance(world.tileSize).getSprite(imagePath);
     }
 
     public boolean isSameFloat(Entity other) {
@@ -103,7 +115,7 @@ public class Entity {
     /**
      * UPDATE
      * Updates the entity
-     * Called every frame by GamePanel
+     * Called every frame by World
      */
     public void update() {
         if (moving) {
@@ -126,13 +138,14 @@ public class Entity {
             case LEFT -> point.x -= speed;
             case RIGHT-> point.x += speed;
         }
+        world.tileGrid.update(this);
 
         if (this instanceof CharacterEntity) {
             cycleSprites();
         }
 
         pixelCounter += speed;
-        if (pixelCounter >= gp.tileSize) {
+        if (pixelCounter >= world.tileSize) {
             resetMovement();
             checkEntities();
         }
@@ -143,34 +156,86 @@ public class Entity {
         else if (previousPoint.x < point.x) point.x -= speed;
         else if (previousPoint.y > point.y) point.y += speed;
         else if (previousPoint.y < point.y) point.y -= speed;
+        world.tileGrid.update(this);
 
         if (this instanceof CharacterEntity) {
             cycleSprites();
         }
 
         pixelCounter += speed;
-        if (pixelCounter >= gp.tileSize) {
+        if (pixelCounter >= world.tileSize) {
             resetMovement();
         }
     }
 
+    /**
+     * LAND
+     * Places the entity on the tile it is moving to in one step
+     * The sprite slides there at render time through animate()
+     * Called by World when a turn resolves instantly
+     * @return True if the entity moved forward, false if it reversed or stood still
+     */
+    public boolean land() {
+        if (!moving && !reversing) return false;
+
+        boolean forward = moving;
+
+        // Slide from where the sprite is currently drawn
+        tweenFrom.setLocation(getDrawPoint());
+        tweenCounter = world.tileSize;
+
+        if (moving) {
+            int remaining = world.tileSize - pixelCounter;
+            switch (direction) {
+                case UP -> point.y -= remaining;
+                case DOWN -> point.y += remaining;
+                case LEFT -> point.x -= remaining;
+                case RIGHT-> point.x += remaining;
+            }
+        }
+        else {
+            point.setLocation(previousPoint);
+        }
+        world.tileGrid.update(this);
+
+        resetMovement();
+
+        return forward;
+    }
+
+    /**
+     * ANIMATE
+     * Advances the visual slide toward the entity's tile
+     * Does not change the entity's position in the world
+     * Called every frame by GamePanel
+     */
+    public void animate() {
+        if (tweenCounter == 0) return;
+
+        tweenCounter = Math.max(0, tweenCounter - speed);
+
+        if (this instanceof CharacterEntity) {
+            spriteNum = tweenCounter > 0 ? 2 : 1;
+        }
+    }
+
     public void checkEntities() {
         if (has(Properties.DEFEAT) && has(Properties.YOU)) {
             kill();
             return;
         }
 
-        ArrayList<Entity> targets = gp.cChecker.checkEntity(this);
-
-        if (targets.isEmpty()) return;
+        List<Entity> targets = world.cChecker.checkEntity(this);
 
-        for (Entity e : targets) {
-            e.onTouch(this);
+        for (int i = 0; i < targets.size(); i++) {
+            targets.get(i).onTouch(this);
         }
     }
     private void onTouch(Entity other) {
-        for (Properties p : properties) {
-            p.onTouch(this, other);
+        for (Properties p : PROPERTIES) {
+            if (properties.contains(p)) {
+                p.onTouch(this, other);
+            }
         }
     }
 
@@ -187,7 +252,7 @@ public class Entity {
         spriteCounter = 0;
 
         if (this instanceof WordEntity) {
-            gp.wordMoved = true;
+            world.wordMoved = true;
         }
     }
 
@@ -197,17 +262,19 @@ public class Entity {
      * Called by move()
      * @param entity Entity that wants to move
      * @param dir The direction the entity is moving
+     * @param moveSet Entities pushed along, an entity may be added more than once
      * @return True if not able to move, false if able
      */
-    public boolean cantMove(Entity entity, GamePanel.Direction dir, Set<Entity> moveSet) {
+    public boolean cantMove(Entity entity, World.Direction dir, List<Entity> moveSet) {
 
-        if (gp.cChecker.isOutOfBounds(entity, dir)) {
+        if (world.cChecker.isOutOfBounds(entity, dir)) {
             return true;
         }
 
         // Get all entities sitting on the next tile
-        List<Entity> stack = gp.cChecker.getEntitiesAtNextTile(entity, dir);
-        for (Entity e : stack) {
+        List<Entity> stack = world.cChecker.getEntitiesAtNextTile(entity, dir);
+        for (int i = 0; i < stack.size(); i++) {
+            Entity e = stack.get(i);
 
             // Can't move
             if (e.blocks(entity, dir)) {
@@ -228,9 +295,9 @@ public class Entity {
 
         return false;
     }
-    private boolean blocks(Entity mover, GamePanel.Direction dir) {
-        for (Properties p : properties) {
-            if (p.blocksMovement(this, mover, dir)) {
+    private boolean blocks(Entity mover, World.Direction dir) {
+        for (Properties p : PROPERTIES) {
+            if (properties.contains(p) && p.blocksMovement(this, mover, dir)) {
                 return true;
             }
         }
@@ -241,8 +308,8 @@ public class Entity {
             return true;
         }
 
-        for (Properties p : properties) {
-            if (p.allowsPush(this)) {
+        for (Properties p : PROPERTIES) {
+            if (properties.contains(p) && p.allowsPush(this)) {
                 return true;
             }
         }
@@ -250,7 +317,7 @@ public class Entity {
         return false;
     }
 
-    public void move(GamePanel.Direction dir) {
+    public void move(World.Direction dir) {
         this.direction = dir;
         this.moving = true;
         setPreviousPoint(point);
@@ -267,7 +334,7 @@ public class Entity {
                 }
                 else {
                     e.setPoint(point);
-                    gp.spawnQueue.add(e);
+                    world.spawnQueue.add(e);
                 }
             }
         }
@@ -275,17 +342,44 @@ public class Entity {
         if (stayAlive) return;
 
         alive = false;
+        world.tileGrid.remove(this);
         resetMovement();
     }
     public void transform(Entity newForm) {
         newForm.setPoint(point);
-        gp.spawnQueue.add(newForm);
+        world.spawnQueue.add(newForm);
 
         alive = false;
+        world.tileGrid.remove(this);
         resetMovement();
     }
+    /**
+     * REVIVE
+     * Returns a removed entity to the level in the state of a newly built one,
+     *  keeping its ID and loaded sprites
+     * Called by StateHandler when an undo brings the entity back
+     * @param point Tile to place the entity on
+     * @param direction Direction to face
+     */
+    public void revive(Point point, World.Direction direction) {
+        alive = true;
+        moving = false;
+        reversing = false;
+        pixelCounter = 0;
+        spriteNum = 1;
+        spriteCounter = 0;
+
+        // Rules give these back on the next check, as they would to a new entity
+        properties.clear();
+        heldEntities.clear();
+        lockTransformation = false;
+
+        setPoint(point);
+        setPreviousPoint(point);
+        this.direction = direction;
+    }
     public void win() {
-        gp.win = true;
+        world.win = true;
     }
 
     /**
@@ -293,7 +387,7 @@ public class Entity {
      * Changes the animation counter for draw to render the correct sprite
      */
     private void cycleSprites() {
-        if (pixelCounter > 0 && pixelCounter < gp.tileSize) {
+        if (pixelCounter > 0 && pixelCounter < world.tileSize) {
             spriteNum = 2;
         }
         else  {
@@ -309,10 +403,20 @@ public class Entity {
     public void draw(Graphics2D g2) {
 
         // Match image to sprite direction
-        image = getSprite();
+        image = getDrawImage();
 
         // Draw sprite
-        g2.drawImage(image, point.x, point.y, null);
+        Point drawPoint = getDrawPoint();
+        g2.drawImage(image, drawPoint.x, drawPoint.y, null);
+    }
+
+    /**
+     * GET DRAW IMAGE
+     * @return Sprite draw() would render this frame
+     */
+    public BufferedImage getDrawImage() {
+        loadImages();
+        return getSprite();
     }
 
     /** GET CURRENT SPRITE TO DRAW **/
@@ -342,12 +446,26 @@ public class Entity {
     public void addProperty(Properties property) {
         properties.add(property);
     }
+    public void addProperties(EnumSet<Properties> properties) {
+        this.properties.addAll(properties);
+    }
     public void clearProperties() {
         properties.clear();
     }
 
     public void playSE(int category, int record) {
-        gp.playSE(category, record);
+        world.playSE(category, record);
+    }
+
+    /**
+     * RESERVE IDS
+     * Skips IDs so no new entity is given them, for entities restored under IDs of their own
+     * Called by StateHandler when a saved undo timeline is read
+     * @param count Number of IDs
+     * @return First reserved ID
+     */
+    public static int reserveIds(int count) {
+        return NEXT_ID.getAndAdd(count);
     }
 
     /* GETTERS AND SETTERS */
@@ -362,14 +480,40 @@ public class Entity {
         return point;
     }
     public void setPoint(Point point) {
-        this.point = new Point(point);
+        setPoint(point.x, point.y);
+    }
+    public void setPoint(int x, int y) {
+        point.setLocation(x, y);
+        tweenCounter = 0;
+        world.tileGrid.update(this);
+    }
+
+    /**
+     * GET DRAW POINT
+     * @return Point the sprite is drawn at, between tiles while a slide plays,
+     *  reused by the next call
+     */
+    public Point getDrawPoint() {
+        if (tweenCounter == 0) return point;
+
+        drawPoint.setLocation(
+                point.x + (tweenFrom.x - point.x) * tweenCounter / world.tileSize,
+                point.y + (tweenFrom.y - point.y) * tweenCounter / world.tileSize
+        );
+        return drawPoint;
+    }
+    public boolean getTweening() {
+        return tweenCounter > 0;
     }
 
     public Point getPreviousPoint() {
         return previousPoint;
     }
     public void setPreviousPoint(Point previousPoint) {
-        this.previousPoint = new Point(previousPoint);
+        setPreviousPoint(previousPoint.x, previousPoint.y);
+    }
+    public void setPreviousPoint(int x, int y) {
+        previousPoint.setLocation(x, y);
     }
 
     public String getName() {
@@ -413,6 +557,27 @@ public class Entity {
         return heldEntities;
     }
 
+    public boolean getOnGrid() {
+        return onGrid;
+    }
+    public void setOnGrid(boolean onGrid) {
+        this.onGrid = onGrid;
+    }
+
+    public int getGridCell() {
+        return gridCell;
+    }
+    public void setGridCell(int gridCell) {
+        this.gridCell = gridCell;
+    }
+
+    public long getListOrder() {
+        return listOrder;
+    }
+    public void setListOrder(long listOrder) {
+        this.listOrder = listOrder;
+    }
+
     public boolean getTransformationLock() {
         return lockTransformation;
     }
@@ -421,6 +586,7 @@ public class Entity {
     }
 
     public BufferedImage getImage() {
+        loadImages();
         return image;
     }
 }
@@ -1,20 +1,21 @@
 package entity;
 
-import application.GamePanel;
-
-import java.awt.*;
+import application.World;
 
 public abstract class ITileEntity extends Entity {
 
-    public ITileEntity(GamePanel gp, int col, int row, String name, int ori, int side) {
-        super(gp);
+    public ITileEntity(World world, int col, int row, String name, int ori, int side) {
+        super(world);
 
-        this.point = new Point(col * gp.tileSize, row * gp.tileSize);
+        point.setLocation(col * world.tileSize, row * world.tileSize);
         setPreviousPoint(point);
         this.name = name;
         this.ori = ori;
         this.side = side;
+    }
 
+    @Override
+    protected void setImages() {
         image = up1 = down1 = left1 = right1 = setupImage("/i_tiles/" + name.toLowerCase() + "_" + ori + "_" + side);
     }
 }
\ No newline at end of file
@@ -1,18 +1,19 @@
 package entity;
 
-import application.GamePanel;
-
-import java.awt.*;
+import application.World;
 
 public abstract class ObjectEntity extends Entity {
 
-    public ObjectEntity(GamePanel gp, int col, int row, String name) {
-        super(gp);
+    public ObjectEntity(World world, int col, int row, String name) {
+        super(world);
 
-        this.point = new Point(col * gp.tileSize, row * gp.tileSize);
+        point.setLocation(col * world.tileSize, row * world.tileSize);
         setPreviousPoint(point);
         this.name = name;
+    }
 
+    @Override
+    protected void setImages() {
         image = up1 = down1 = left1 = right1 = setupImage("/objects/" + name.toLowerCase());
     }
 }
\ No newline at end of file
@@ -1,11 +1,9 @@
 package entity;
 
 import application.GamePanel;
+import application.SpriteAtlas;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.util.Objects;
 
 public class UIEntity {
 
@@ -33,16 +31,7 @@ public class UIEntity {
      * @param imagePath Path to image file
      */
     private void setupImage(String imagePath, GamePanel gp) {
-        try {
-            image = ImageIO.read(Objects.requireNonNull(
-                    getClass().getResourceAsStream(imagePath + ".png")
-            ));
-
-            image = GamePanel.utility.scaleImage(image, gp.tileSize, gp.tileSize);
-        }
-        catch (IOException e) {
-            System.out.println("Error loading image:" + e.getMessage());
-        }
+        image = SpriteAtlas.getInstance(gp.tileSize).getSprite(imagePath);
     }
 
     public String getName() {
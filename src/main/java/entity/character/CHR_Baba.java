@@ -1,13 +1,13 @@
 package entity.character;
 
-import application.GamePanel;
+import application.World;
 import entity.CharacterEntity;
 
 public class CHR_Baba extends CharacterEntity {
 
     public static final String chrName = "BABA";
 
-    public CHR_Baba(GamePanel gp, int col, int row) {
-        super(gp, col, row, chrName);
+    public CHR_Baba(World world, int col, int row) {
+        super(world, col, row, chrName);
     }
 }
\ No newline at end of file
@@ -1,13 +1,13 @@
 package entity.character;
 
-import application.GamePanel;
+import application.World;
 import entity.CharacterEntity;
 
 public class CHR_Bat extends CharacterEntity {
 
     public static final String chrName = "BAT";
 
-    public CHR_Bat(GamePanel gp, int col, int row) {
-        super(gp, col, row, chrName);
+    public CHR_Bat(World world, int col, int row) {
+        super(world, col, row, chrName);
     }
 }
\ No newline at end of file
@@ -1,13 +1,13 @@
 package entity.character;
 
-import application.GamePanel;
+import application.World;
 import entity.CharacterEntity;
 
 public class CHR_Keke extends CharacterEntity {
 
     public static final String chrName = "KEKE";
 
-    public CHR_Keke(GamePanel gp, int col, int row) {
-        super(gp, col, row, chrName);
+    public CHR_Keke(World world, int col, int row) {
+        super(world, col, row, chrName);
     }
 }
\ No newline at end of file
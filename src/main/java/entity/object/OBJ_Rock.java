@@ -1,13 +1,13 @@
 package entity.object;
 
-import application.GamePanel;
+import application.World;
 import entity.ObjectEntity;
 
 public class OBJ_Rock extends ObjectEntity {
 
     public static final String objName = "ROCK";
 
-    public OBJ_Rock(GamePanel gp, int col, int row) {
-        super(gp, col, row, objName);
+    public OBJ_Rock(World world, int col, int row) {
+        super(world, col, row, objName);
     }
 }
\ No newline at end of file
@@ -1,19 +1,22 @@
 package entity.tile_interactive;
 
-import application.GamePanel;
+import application.World;
 import entity.ITileEntity;
 
 public class IT_Belt extends ITileEntity {
     public static final String iName = "BELT";
 
-    public IT_Belt(GamePanel gp, int col, int row, int ori) {
-        super(gp, col, row, iName, ori, 0);
+    public IT_Belt(World world, int col, int row, int ori) {
+        super(world, col, row, iName, ori, 0);
 
-        if (ori == 0) direction = GamePanel.Direction.UP;
-        else if (ori == 1) direction = GamePanel.Direction.DOWN;
-        else if (ori == 2) direction = GamePanel.Direction.LEFT;
-        else direction = GamePanel.Direction.RIGHT;
+        if (ori == 0) direction = World.Direction.UP;
+        else if (ori == 1) direction = World.Direction.DOWN;
+        else if (ori == 2) direction = World.Direction.LEFT;
+        else direction = World.Direction.RIGHT;
+    }
 
+    @Override
+    protected void setImages() {
         image = up1 = setupImage("/i_tiles/" + name.toLowerCase() + "_0_0");
         down1 = setupImage("/i_tiles/" + name.toLowerCase() + "_1_0");
         left1 = setupImage("/i_tiles/" + name.toLowerCase() + "_2_0");
@@ -1,12 +1,12 @@
 package entity.tile_interactive;
 
-import application.GamePanel;
+import application.World;
 import entity.ITileEntity;
 
 public class IT_Wall extends ITileEntity {
     public static final String iName = "WALL";
 
-    public IT_Wall(GamePanel gp, int col, int row, int ori, int side) {
-        super(gp, col, row, iName, ori, side);
+    public IT_Wall(World world, int col, int row, int ori, int side) {
+        super(world, col, row, iName, ori, side);
     }
 }
@@ -1,12 +1,12 @@
 package entity.tile_interactive;
 
-import application.GamePanel;
+import application.World;
 import entity.ITileEntity;
 
 public class IT_Water extends ITileEntity {
     public static final String iName = "WATER";
 
-    public IT_Water(GamePanel gp, int col, int row, int ori, int side) {
-        super(gp, col, row, iName, ori, side);
+    public IT_Water(World world, int col, int row, int ori, int side) {
+        super(world, col, row, iName, ori, side);
     }
 }
\ No newline at end of file
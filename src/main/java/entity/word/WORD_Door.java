@@ -1,13 +1,13 @@
 package entity.word;
 
-import application.GamePanel;
+import application.World;
 import entity.WordEntity;
 
 public class WORD_Door extends WordEntity {
 
     public static final String wordName = "WORD_DOOR";
 
-    public WORD_Door(GamePanel gp, int col, int row) {
-        super(gp, col, row, wordName);
+    public WORD_Door(World world, int col, int row) {
+        super(world, col, row, wordName);
     }
 }
\ No newline at end of file
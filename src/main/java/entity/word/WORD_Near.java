@@ -1,13 +1,13 @@
 package entity.word;
 
-import application.GamePanel;
+import application.World;
 import entity.WordEntity;
 
 public class WORD_Near extends WordEntity {
 
     public static final String wordName = "WORD_NEAR";
 
-    public WORD_Near(GamePanel gp, int col, int row) {
-        super(gp, col, row, wordName);
+    public WORD_Near(World world, int col, int row) {
+        super(world, col, row, wordName);
     }
 }
\ No newline at end of file
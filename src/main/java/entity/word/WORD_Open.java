@@ -1,13 +1,13 @@
 package entity.word;
 
-import application.GamePanel;
+import application.World;
 import entity.WordEntity;
 
 public class WORD_Open extends WordEntity {
 
     public static final String wordName = "WORD_OPEN";
 
-    public WORD_Open(GamePanel gp, int col, int row) {
-        super(gp, col, row, wordName);
+    public WORD_Open(World world, int col, int row) {
+        super(world, col, row, wordName);
     }
 }
\ No newline at end of file
@@ -1,13 +1,13 @@
 package entity.word;
 
-import application.GamePanel;
+import application.World;
 import entity.WordEntity;
 
 public class WORD_Text extends WordEntity {
 
     public static final String wordName = "WORD_TEXT";
 
-    public WORD_Text(GamePanel gp, int col, int row) {
-        super(gp, col, row, wordName);
+    public WORD_Text(World world, int col, int row) {
+        super(world, col, row, wordName);
     }
 }
\ No newline at end of file
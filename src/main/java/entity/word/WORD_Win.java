@@ -1,13 +1,13 @@
 package entity.word;
 
-import application.GamePanel;
+import application.World;
 import entity.WordEntity;
 
 public class WORD_Win extends WordEntity {
 
     public static final String wordName = "WORD_WIN";
 
-    public WORD_Win(GamePanel gp, int col, int row) {
-        super(gp, col, row, wordName);
+    public WORD_Win(World world, int col, int row) {
+        super(world, col, row, wordName);
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package rules;
 
-import application.GamePanel;
+import application.NounIndex;
+import application.World;
 import entity.Entity;
 import entity.WordEntity;
 import entity.word.*;
@@ -30,191 +31,516 @@ public class LogicHandler {
                     Map.entry(WORD_Win.wordName, WIN)
             );
 
-    private static final ArrayList<String> linkingVerbs = new ArrayList<>(
-            Arrays.asList(
-                    WORD_Is.wordName,
-                    WORD_Has.wordName
-            )
+    private static final Set<String> linkingVerbs = Set.of(
+            WORD_Is.wordName,
+            WORD_Has.wordName
     );
 
-    private static final ArrayList<String> prepositions = new ArrayList<>(
-            Arrays.asList(
-                    WORD_On.wordName,
-                    WORD_Near.wordName,
-                    WORD_Next.wordName,
-                    WORD_Facing.wordName,
-                    WORD_Seeing.wordName
-            )
+    private static final Set<String> prepositions = Set.of(
+            WORD_On.wordName,
+            WORD_Near.wordName,
+            WORD_Next.wordName,
+            WORD_Facing.wordName,
+            WORD_Seeing.wordName
     );
 
-    private final GamePanel gp;
+    private final World world;
     public boolean rulesInitialized = false;
 
     private final Set<Rule> activeRules = new HashSet<>();
     private final Set<Rule> staticRules = new HashSet<>();
     private final Set<Rule> conditionalRules = new HashSet<>();
 
-    public LogicHandler(GamePanel gp) {
-        this.gp = gp;
+    // The same rules in set order, walked by index every pass without an iterator
+    private final List<Rule> staticRuleOrder = new ArrayList<>();
+    private final List<Rule> conditionalRuleOrder = new ArrayList<>();
+
+    // Rules found on each column and row during the last scan of that line
+    private final ArrayList<Set<Rule>> columnRules = new ArrayList<>();
+    private final ArrayList<Set<Rule>> rowRules = new ArrayList<>();
+
+    // Number of lines each active rule was found on
+    private final Map<Rule, Integer> ruleCounts = new HashMap<>();
+
+    /* INCREMENTAL PASSES */
+    // Rules differ from the ones applied by the last pass, every entity is checked again
+    private boolean rulesChanged = true;
+
+    // A SEEING rule could see through an entity another conditional rule changes mid-pass,
+    //  only a pass over every entity gives the same result
+    private boolean orderDependent = false;
+
+    // Check every entity each pass, kept to test the incremental passes against
+    private boolean incremental = true;
+
+    // Entities added to the world since the last pass, given rule states from scratch
+    private final List<Entity> added = new ArrayList<>();
+
+    // Properties static rules give entities of each name
+    private final Map<String, EnumSet<Properties>> staticProperties = new HashMap<>();
+
+    // Direction each FACING or SEEING subject had when its conditions were last checked
+    private static final int MAX_DIRECTIONS = 4096;
+    private final Map<Entity, World.Direction> directions = new IdentityHashMap<>();
+
+    /* SCRATCH */
+    private final List<Entity> fresh = new ArrayList<>();
+    private final Set<Entity> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final BitSet cells = new BitSet();
+    private final BitSet cols = new BitSet();
+    private final BitSet rows = new BitSet();
+
+    public LogicHandler(World world) {
+        this.world = world;
     }
 
     public void clearRules() {
         activeRules.clear();
         conditionalRules.clear();
+        conditionalRuleOrder.clear();
         rulesInitialized = false;
+
+        rulesChanged = true;
+        added.clear();
+        directions.clear();
+    }
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+    public Set<Rule> getActiveRules() {
+        return Collections.unmodifiableSet(activeRules);
     }
 
+    /**
+     * ENTITY ADDED
+     * Called by World whenever an entity joins the entity list
+     * @param e Entity added, spawned or revived
+     */
+    public void entityAdded(Entity e) {
+        added.add(e);
+    }
+
+    /**
+     * SCAN FOR RULES
+     * Re-parses the columns and rows a word entered or left since the last scan
+     * and merges the result into the active rules
+     * Falls back to a full rescan when rules are not initialized
+     */
     public void scanForRules() {
 
-        Set<Rule> newRules = new HashSet<>();
-        Set<Rule> newStaticRules = new HashSet<>();
-        Set<Rule> newConditionalRules = new HashSet<>();
+        // Rules reset or world resized, rebuild every line
+        if (!rulesInitialized || columnRules.size() != world.maxWorldCol || rowRules.size() != world.maxWorldRow) {
+            resetLineRules();
+            world.tileGrid.markAllDirty();
+        }
 
-        // Scan all rows and columns
-        scanColumnRules(newRules);
-        scanRowRules(newRules);
+        Set<Rule> previousRules = new HashSet<>(activeRules);
+
+        // Scan changed rows and columns
+        scanColumnRules(world.tileGrid.getDirtyCols());
+        scanRowRules(world.tileGrid.getDirtyRows());
+        world.tileGrid.clearDirty();
+
+        activeRules.clear();
+        activeRules.addAll(ruleCounts.keySet());
+
+        if (!activeRules.equals(previousRules)) {
+            rulesChanged = true;
+        }
 
         // Separate static vs conditional
-        for (Rule r : newRules) {
+        staticRules.clear();
+        conditionalRules.clear();
+        boolean seeing = false, changesSight = false;
+        for (Rule r : activeRules) {
             if (isConditional(r.getPreposition())) {
-                newConditionalRules.add(r);
+                conditionalRules.add(r);
+
+                seeing |= r.getPreposition().equals(WORD_Seeing.wordName);
+                changesSight |= r.getProperty() == STOP || r.getProperty() == PUSH || !r.getTransformation().isEmpty();
             }
             else {
-                newStaticRules.add(r);
+                staticRules.add(r);
             }
         }
+        orderDependent = seeing && changesSight;
 
-        boolean newRuleAppeared = rulesInitialized && newRules.stream().anyMatch(r -> !activeRules.contains(r));
+        staticRuleOrder.clear();
+        staticRuleOrder.addAll(staticRules);
+        conditionalRuleOrder.clear();
+        conditionalRuleOrder.addAll(conditionalRules);
+
+        boolean newRuleAppeared = rulesInitialized && activeRules.stream().anyMatch(r -> !previousRules.contains(r));
         if (newRuleAppeared) {
             playRuleSound();
         }
 
-        staticRules.clear();
-        staticRules.addAll(newStaticRules);
+        rulesInitialized = true;
+    }
 
-        conditionalRules.clear();
-        conditionalRules.addAll(newConditionalRules);
+    private void resetLineRules() {
+        columnRules.clear();
+        for (int col = 0; col < world.maxWorldCol; col++) {
+            columnRules.add(new HashSet<>());
+        }
 
-        activeRules.clear();
-        activeRules.addAll(newRules);
+        rowRules.clear();
+        for (int row = 0; row < world.maxWorldRow; row++) {
+            rowRules.add(new HashSet<>());
+        }
 
-        rulesInitialized = true;
+        ruleCounts.clear();
+    }
+
+    /**
+     * REPLACE LINE RULES
+     * Swaps the rules of one line for its freshly parsed rules
+     * @param lineRules Rules previously found on the line
+     * @param newRules Rules now found on the line
+     */
+    private void replaceLineRules(Set<Rule> lineRules, Set<Rule> newRules) {
+
+        for (Rule r : lineRules) {
+            ruleCounts.computeIfPresent(r, (_, count) -> count > 1 ? count - 1 : null);
+        }
+        for (Rule r : newRules) {
+            ruleCounts.merge(r, 1, Integer::sum);
+        }
+
+        lineRules.clear();
+        lineRules.addAll(newRules);
     }
 
     private void playRuleSound() {
-        gp.playSE(3, 0);
+        world.playSE(3, 0);
     }
 
     public void resetEntityRuleStates() {
-        for (Entity e : gp.entities) {
+        for (Entity e : world.entities) {
             e.clearProperties();
             e.setTransformationLock(false);
         }
     }
 
+    /**
+     * APPLY STATIC RULES
+     * Each rule only visits the entities named by its subject
+     */
     public void applyStaticRules() {
 
-        for (Rule rule : staticRules) {
-            if (rule.getTransformation() != null) {
-                for (Entity e : gp.entities) {
-                    if ((e.getName().equals(rule.getSubject()) || (rule.getSubject().equals("TEXT") && e instanceof WordEntity)) &&
-                            e.getName().equals(rule.getTransformation())) {
-                        e.setTransformationLock(true);
-                    }
+        // X IS X keeps X from transforming
+        for (int r = 0; r < staticRuleOrder.size(); r++) {
+            Rule rule = staticRuleOrder.get(r);
+            List<Entity> subjects = world.nounIndex.getSubjects(rule.getSubject());
+
+            for (int i = 0; i < subjects.size(); i++) {
+                Entity e = subjects.get(i);
+                if (e.getName().equals(rule.getTransformation())) {
+                    e.setTransformationLock(true);
                 }
             }
         }
 
-        for (Rule rule : staticRules) {
-            for (Entity e : gp.entities) {
-                if (e.getName().equals(rule.getSubject()) || (rule.getSubject().equals("TEXT") && e instanceof WordEntity)) {
-                    rule.runRule(e);
-                }
+        for (int r = 0; r < staticRuleOrder.size(); r++) {
+            Rule rule = staticRuleOrder.get(r);
+            List<Entity> subjects = world.nounIndex.getSubjects(rule.getSubject());
+
+            for (int i = 0; i < subjects.size(); i++) {
+                rule.runRule(subjects.get(i));
             }
         }
     }
 
     public void applyConditionalRules() {
-        for (Rule rule : conditionalRules) {
-            for (Entity e : gp.entities) {
-                if (e.getName().equals(rule.getSubject()) || (rule.getSubject().equals("TEXT") && e instanceof WordEntity)) {
-                    rule.runRule(e);
-                }
+        for (int r = 0; r < conditionalRuleOrder.size(); r++) {
+            Rule rule = conditionalRuleOrder.get(r);
+            List<Entity> subjects = world.nounIndex.getSubjects(rule.getSubject());
+
+            for (int i = 0; i < subjects.size(); i++) {
+                rule.runRule(subjects.get(i));
             }
         }
     }
 
     public void initRules() {
         scanForRules();
+        applyAllRules();
+    }
+
+    /**
+     * UPDATE RULES
+     * Brings the rule states of every entity up to date after a turn
+     * Unless the rules changed, only entities added since the last pass and subjects of
+     *  conditional rules whose surroundings changed are checked again, the rest keep the
+     *  states a full pass would give them again
+     * Called by World once movement settles
+     */
+    public void updateRules() {
+        if (!incremental || rulesChanged || orderDependent) {
+            applyAllRules();
+            return;
+        }
+
+        // Marks made from here on count for the next pass
+        takeTouched();
+
+        // New entities in entity list order, a revived entity counts from its last add
+        fresh.clear();
+        dirty.clear();
+        for (int i = added.size() - 1; i >= 0; i--) {
+            Entity e = added.get(i);
+            if (e.getAlive() && dirty.add(e)) {
+                fresh.add(e);
+            }
+        }
+        Collections.reverse(fresh);
+        added.clear();
+
+        // Static rules for new entities, in the order a full pass applies them
+        if (!fresh.isEmpty()) {
+            for (Entity e : fresh) {
+                e.clearProperties();
+                e.setTransformationLock(false);
+            }
+            for (Rule rule : staticRuleOrder) {
+                for (Entity e : fresh) {
+                    if (isSubject(rule, e) && e.getName().equals(rule.getTransformation())) {
+                        e.setTransformationLock(true);
+                    }
+                }
+            }
+            for (Rule rule : staticRuleOrder) {
+                for (Entity e : fresh) {
+                    if (isSubject(rule, e)) {
+                        rule.runRule(e);
+                    }
+                }
+            }
+        }
+
+        // Subjects whose surroundings changed drop their conditional properties
+        for (int r = 0; r < conditionalRuleOrder.size(); r++) {
+            Rule rule = conditionalRuleOrder.get(r);
+            List<Entity> subjects = world.nounIndex.getSubjects(rule.getSubject());
+
+            for (int i = 0; i < subjects.size(); i++) {
+                Entity e = subjects.get(i);
+
+                if (!dirty.contains(e) && surroundingsChanged(e, rule)) {
+                    dirty.add(e);
+
+                    e.clearProperties();
+                    e.addProperties(getStaticProperties(e));
+                }
+            }
+        }
+
+        if (dirty.isEmpty()) return;
+
+        for (int r = 0; r < conditionalRuleOrder.size(); r++) {
+            Rule rule = conditionalRuleOrder.get(r);
+            boolean directional = isDirectional(rule.getPreposition());
+            List<Entity> subjects = world.nounIndex.getSubjects(rule.getSubject());
+
+            for (int i = 0; i < subjects.size(); i++) {
+                Entity e = subjects.get(i);
+                if (!dirty.contains(e)) continue;
+
+                rule.runRule(e);
+                if (directional) {
+                    directions.put(e, e.getDirection());
+                }
+            }
+        }
+
+        if (directions.size() > MAX_DIRECTIONS) {
+            directions.keySet().removeIf(e -> !e.getAlive());
+        }
+    }
+
+    /**
+     * APPLY ALL RULES
+     * Clears and re-applies the rule states of every entity
+     * Called by initRules() and updateRules()
+     */
+    private void applyAllRules() {
+        takeTouched();
+        added.clear();
+        staticProperties.clear();
+        rulesChanged = false;
+
         resetEntityRuleStates();
         applyStaticRules();
         applyConditionalRules();
+
+        directions.clear();
+        for (Rule rule : conditionalRuleOrder) {
+            if (!isDirectional(rule.getPreposition())) continue;
+
+            for (Entity e : world.nounIndex.getSubjects(rule.getSubject())) {
+                directions.put(e, e.getDirection());
+            }
+        }
     }
 
     /**
-     * SCAN COLUMN RULES
-     * Scans each column to find valid rules
-     * Called by update()
+     * TAKE TOUCHED
+     * Moves the tiles touched since the last pass out of the tile grid
      */
-    private void scanColumnRules(Set<Rule> newRules) {
+    private void takeTouched() {
+        cells.clear();
+        cells.or(world.tileGrid.getTouchedCells());
+        cols.clear();
+        cols.or(world.tileGrid.getTouchedCols());
+        rows.clear();
+        rows.or(world.tileGrid.getTouchedRows());
+
+        world.tileGrid.clearTouched();
+    }
 
-        // Loop over each column (horizontally)
-        for (int col = 0; col < gp.maxWorldCol; col++) {
+    /**
+     * SURROUNDINGS CHANGED
+     * Checks if anything a conditional rule looks at changed since the last pass:
+     *  the 3x3 tiles around the subject, or the whole line it looks down for SEEING,
+     *  and its direction for FACING and SEEING
+     * @param e Subject of the rule
+     * @param rule Conditional rule
+     * @return True if the rule could give a different result
+     */
+    private boolean surroundingsChanged(Entity e, Rule rule) {
+        String preposition = rule.getPreposition();
 
-            // Create new array per column, fill with blanks
-            String[] colWords = new String[gp.maxWorldRow];
-            Arrays.fill(colWords, "");
+        if (isDirectional(preposition) && directions.get(e) != e.getDirection()) {
+            return true;
+        }
 
-            // Loop over all pre-existing words
-            for (Entity w : gp.entities) {
-                if (!(w instanceof WordEntity)) continue;
+        int col = Math.floorDiv(e.getPoint().x, world.tileSize);
+        int row = Math.floorDiv(e.getPoint().y, world.tileSize);
+        int gridCols = world.tileGrid.getCols();
+        int gridRows = world.tileGrid.getRows();
 
-                int x = w.getPoint().x / gp.tileSize;
-                int y = w.getPoint().y / gp.tileSize;
+        if (preposition.equals(WORD_Seeing.wordName)) {
+            return switch (e.getDirection()) {
+                case UP, DOWN -> col >= 0 && col < gridCols && cols.get(col);
+                case LEFT, RIGHT -> row >= 0 && row < gridRows && rows.get(row);
+            };
+        }
 
-                // Word's X matches column, add to corresponding Y (row) in list
-                if (x == col) {
-                    colWords[y] = w.getName();
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, gridRows - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, gridCols - 1); c++) {
+                if (cells.get(r * gridCols + c)) {
+                    return true;
                 }
             }
+        }
+
+        return false;
+    }
+
+    /**
+     * GET STATIC PROPERTIES
+     * @param e Entity
+     * @return Properties static rules give entities with its name, not to be modified
+     */
+    private EnumSet<Properties> getStaticProperties(Entity e) {
+        EnumSet<Properties> properties = staticProperties.get(e.getName());
+        if (properties != null) return properties;
+
+        properties = EnumSet.noneOf(Properties.class);
+        for (Rule rule : staticRuleOrder) {
+            if (rule.getProperty() != null && isSubject(rule, e)) {
+                properties.add(rule.getProperty());
+            }
+        }
+
+        staticProperties.put(e.getName(), properties);
+        return properties;
+    }
+
+    private boolean isSubject(Rule rule, Entity e) {
+        return e.getName().equals(rule.getSubject()) || (rule.getSubject().equals(NounIndex.TEXT) && e instanceof WordEntity);
+    }
+    private boolean isDirectional(String preposition) {
+        return preposition.equals(WORD_Facing.wordName) || preposition.equals(WORD_Seeing.wordName);
+    }
+
+    /**
+     * SCAN COLUMN RULES
+     * Scans the given columns to find valid rules
+     * Called by scanForRules()
+     * @param cols Columns to scan
+     */
+    private void scanColumnRules(BitSet cols) {
+
+        // Words found in the column, blank if none
+        String[] colWords = new String[world.maxWorldRow];
+        Set<Rule> newRules = new HashSet<>();
+
+        // Loop over each changed column (horizontally)
+        for (int col = cols.nextSetBit(0); col >= 0 && col < world.maxWorldCol; col = cols.nextSetBit(col + 1)) {
+
+            // Word on each tile of the column
+            for (int row = 0; row < world.maxWorldRow; row++) {
+                colWords[row] = getWordAt(col, row);
+            }
 
             // Check if any rules are active
+            newRules.clear();
             checkRules(colWords, newRules);
+            replaceLineRules(columnRules.get(col), newRules);
         }
     }
 
     /**
      * SCAN ROW RULES
-     * Scans each row to find valid rules
-     * Called by update()
+     * Scans the given rows to find valid rules
+     * Called by scanForRules()
+     * @param rows Rows to scan
      */
-    private void scanRowRules(Set<Rule> newRules) {
-
-        // Loop over each row (vertically)
-        for (int row = 0; row < gp.maxWorldRow; row++) {
-
-            // Create new array per row, fill with blanks
-            String[] rowWords = new String[gp.maxWorldCol];
-            Arrays.fill(rowWords, "");
+    private void scanRowRules(BitSet rows) {
 
-            // Loop over all pre-existing words
-            for (Entity w : gp.entities) {
-                if (!(w instanceof WordEntity)) continue;
+        // Words found in the row, blank if none
+        String[] rowWords = new String[world.maxWorldCol];
+        Set<Rule> newRules = new HashSet<>();
 
-                int x = w.getPoint().x / gp.tileSize;
-                int y = w.getPoint().y / gp.tileSize;
+        // Loop over each changed row (vertically)
+        for (int row = rows.nextSetBit(0); row >= 0 && row < world.maxWorldRow; row = rows.nextSetBit(row + 1)) {
 
-                // Word is on same row, add to corresponding X (column) in list
-                if (y == row) {
-                    rowWords[x] = w.getName();
-                }
+            // Word on each tile of the row
+            for (int col = 0; col < world.maxWorldCol; col++) {
+                rowWords[col] = getWordAt(col, row);
             }
 
             // Check if any rules are active
+            newRules.clear();
             checkRules(rowWords, newRules);
+            replaceLineRules(rowRules.get(row), newRules);
         }
     }
 
+    /**
+     * GET WORD AT
+     * A tile stack is kept in arrival order, the word latest in the entity list wins
+     * @param col Tile column
+     * @param row Tile row
+     * @return Name of the top word on the tile, blank if none
+     */
+    private String getWordAt(int col, int row) {
+
+        Entity word = null;
+
+        List<Entity> stack = world.tileGrid.getEntitiesAt(col, row);
+        for (int i = 0; i < stack.size(); i++) {
+            Entity e = stack.get(i);
+
+            if (e instanceof WordEntity && (word == null || e.getListOrder() > word.getListOrder())) {
+                word = e;
+            }
+        }
+
+        return word != null ? word.getName() : "";
+    }
+
     /**
      * PARSE RULES
      * Parses through given array string and assigns properties where applicable
@@ -289,18 +615,18 @@ public class LogicHandler {
                 String predicate = words[j];
                 Properties property = PROPERTY_MAP.get(predicate);
 
-                // Potential new form to apply
+                // Potential new form to apply, checked without building the entity
                 String newFormName = predicate.replace("WORD_", "");
-                Entity newForm = gp.eGenerator.getEntity(newFormName, 0, 0);
+                boolean isNewForm = world.eGenerator.hasEntity(newFormName);
 
                 for (String subject : subjects) {
 
                     Rule rule;
                     if (property != null) {
-                        rule = new Rule(gp, subject, preposition, target, property, null);
+                        rule = new Rule(world, subject, preposition, target, property, null);
                     }
-                    else if (newForm != null) {
-                        rule = new Rule(gp, subject, preposition, target, null, newFormName);
+                    else if (isNewForm) {
+                        rule = new Rule(world, subject, preposition, target, null, newFormName);
                     }
                     else {
                         continue;
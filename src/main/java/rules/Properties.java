@@ -1,11 +1,9 @@
 package rules;
 
-import application.GamePanel;
+import application.World;
 import entity.Entity;
 import entity.WordEntity;
 
-import java.awt.*;
-
 public enum Properties {
     DEFEAT {
         @Override
@@ -52,7 +50,7 @@ public enum Properties {
     },
     SHUT {
         @Override
-        public boolean blocksMovement(Entity self, Entity mover, GamePanel.Direction dir) {
+        public boolean blocksMovement(Entity self, Entity mover, World.Direction dir) {
             return !mover.has(OPEN);
         }
     },
@@ -69,19 +67,17 @@ public enum Properties {
     },
     STOP {
         @Override
-        public boolean blocksMovement(Entity self, Entity mover, GamePanel.Direction dir) {
+        public boolean blocksMovement(Entity self, Entity mover, World.Direction dir) {
             return !self.has(SHUT) || !mover.has(OPEN);
         }
     },
     SWAP {
         @Override
-        public boolean blocksMovement(Entity self, Entity mover, GamePanel.Direction dir) {
-            Point otherPoint = mover.getPoint();
-
+        public boolean blocksMovement(Entity self, Entity mover, World.Direction dir) {
             mover.setPreviousPoint(self.getPoint());
             mover.setReversing(true);
 
-            self.setPreviousPoint(otherPoint);
+            self.setPreviousPoint(mover.getPoint());
             self.setReversing(true);
 
             return false;
@@ -109,7 +105,7 @@ public enum Properties {
     YOU;
 
     public void onTouch(Entity self, Entity other) {}
-    public boolean blocksMovement(Entity self, Entity mover, GamePanel.Direction dir) {
+    public boolean blocksMovement(Entity self, Entity mover, World.Direction dir) {
         return false;
     }
     public boolean allowsPush(Entity self) {
@@ -1,23 +1,21 @@
 package rules;
 
-import application.GamePanel;
+import application.World;
 import entity.Entity;
-import entity.WordEntity;
 import entity.word.*;
 
-import java.awt.*;
 import java.util.Objects;
 
 public class Rule {
-    private final GamePanel gp;
+    private final World world;
     private final String subject;
     private final String preposition;
     private final String target;
     private final Properties property;
     private final String transformation;
 
-    public Rule(GamePanel gp, String subject, String preposition, String target, Properties property, String transformation) {
-        this.gp = gp;
+    public Rule(World world, String subject, String preposition, String target, Properties property, String transformation) {
+        this.world = world;
         this.subject = subject;
         this.preposition = preposition;
         this.target = target;
@@ -29,15 +27,8 @@ public class Rule {
 
         // Rule needs to meet a condition
         if (conditional()) {
-            for (Entity e : gp.entities) {
-                // Entity is self or not required target
-                if (e == self || !target.equals(e.getName())) continue;
-
-                // Apply if condition is met
-                if (ruleApplies(self, e)) {
-                    applyRule(self);
-                    return;
-                }
+            if (conditionMet(self)) {
+                applyRule(self);
             }
         }
         else {
@@ -67,87 +58,34 @@ public class Rule {
                         .anyMatch(e -> e.getName().equals(transformation));
 
                 if (!alreadyHeld) {
-                    Entity newForm = gp.eGenerator.getEntity(transformation, 0, 0);
+                    Entity newForm = world.eGenerator.getEntity(transformation, 0, 0);
                     self.giveHeldEntity(newForm);
                 }
             }
             else {
                 if (self.getTransformationLock() || self.getName().equals(transformation)) return;
 
-                Entity newForm = gp.eGenerator.getEntity(transformation, 0, 0);
+                Entity newForm = world.eGenerator.getEntity(transformation, 0, 0);
                 self.transform(newForm);
             }
         }
     }
 
-    private boolean ruleApplies(Entity self, Entity t) {
+    /**
+     * CONDITION MET
+     * @param self Entity the rule is checked for
+     * @return True if another entity named as the target is where the preposition asks
+     */
+    private boolean conditionMet(Entity self) {
         return switch (preposition) {
-            case WORD_On.wordName -> on(self, t);
-            case WORD_Near.wordName -> near(self, t);
-            case WORD_Next.wordName -> next(self, t);
-            case WORD_Facing.wordName -> facing(self, t);
-            case WORD_Seeing.wordName -> seeing(self, t);
+            case WORD_On.wordName -> world.neighbors.isOn(self, target);
+            case WORD_Near.wordName -> world.neighbors.isNear(self, target);
+            case WORD_Next.wordName -> world.neighbors.isNext(self, target);
+            case WORD_Facing.wordName -> world.neighbors.isFacing(self, target);
+            case WORD_Seeing.wordName -> world.neighbors.isSeeing(self, target);
             default -> true;
         };
     }
-    private boolean on(Entity self, Entity t) {
-        return self.getPoint().equals(t.getPoint());
-    }
-    private boolean near(Entity self, Entity t) {
-        int dx = Math.abs(t.getPoint().x - self.getPoint().x);
-        int dy = Math.abs(t.getPoint().y - self.getPoint().y);
-
-        return dx <= gp.tileSize && dy <= gp.tileSize && !(dx == 0 && dy == 0);
-    }
-    private boolean next(Entity self, Entity t) {
-        int dx = Math.abs(t.getPoint().x - self.getPoint().x);
-        int dy = Math.abs(t.getPoint().y - self.getPoint().y);
-
-        return (dx == gp.tileSize && dy == 0) || (dy == gp.tileSize && dx == 0);
-    }
-    private boolean facing(Entity self, Entity t) {
-        Point p = switch (self.getDirection()) {
-            case UP -> new Point(self.getPoint().x, self.getPoint().y - gp.tileSize);
-            case DOWN -> new Point(self.getPoint().x, self.getPoint().y + gp.tileSize);
-            case LEFT -> new Point(self.getPoint().x - gp.tileSize, self.getPoint().y);
-            case RIGHT -> new Point(self.getPoint().x + gp.tileSize, self.getPoint().y);
-        };
-
-        return t.getPoint().equals(p);
-    }
-    private boolean seeing(Entity self, Entity t) {
-
-        int dx = 0;
-        int dy = 0;
-
-        switch (self.getDirection()) {
-            case UP -> dy = -gp.tileSize;
-            case DOWN -> dy = gp.tileSize;
-            case LEFT -> dx =- gp.tileSize;
-            case RIGHT -> dx = gp.tileSize;
-        }
-
-        int x = self.getPoint().x + dx;
-        int y = self.getPoint().y + dy;
-
-        while (!gp.cChecker.isOutOfBounds(x, y)) {
-            for (Entity e : gp.entities) {
-                if (e.getPoint().x == x && e.getPoint().y == y) {
-                    if (e.has(Properties.STOP) || e.has(Properties.PUSH) || e instanceof WordEntity) {
-                        return false;
-                    }
-                    if (e.getName().equals(t.getName())) {
-                        return true;
-                    }
-                }
-            }
-
-            x += dx;
-            y += dy;
-        }
-
-        return false;
-    }
 
     public String getSubject() {
         return subject;
@@ -155,6 +93,9 @@ public class Rule {
     public String getPreposition() {
         return preposition;
     }
+    public Properties getProperty() {
+        return property;
+    }
     public String getTransformation() {
         return transformation != null ? transformation : "";
     }
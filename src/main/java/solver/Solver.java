@@ -0,0 +1,588 @@
+package solver;
+
+import application.World;
+import data.AsyncStorage;
+import data.DataStorage;
+import data.LevelFormat;
+import entity.Entity;
+import entity.word.WORD_Win;
+import rules.Rule;
+import state.ReplayPlayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static rules.Properties.WIN;
+import static rules.Properties.YOU;
+
+/**
+ * Finds the fewest moves that win a level by playing every direction from every board reached
+ * Each thread plays turns on a world of its own, built from the level, sharing the set of boards already seen
+ * A board is stored as one long per entity, followed by one for each entity it HAS, and known by a Zobrist
+ *  hash of its entities, what they hold and its active rules:
+ *  the key of each name, position, direction and orientation, and of each rule, is mixed from the values
+ *  instead of read from a table, and keys are added rather than xor-ed so two equal entities on one tile
+ *  do not cancel out
+ * Only the 64-bit hashes of boards seen are kept, see StateSet: two boards with the same hash count as one,
+ *  so a search could miss a board reached that way, making a solution longer or "No solution" wrong
+ *  At the default limit of 2 million boards the chance of any such collision is about 1 in 10 million
+ */
+public class Solver {
+
+    public enum Search {
+        // Breadth first, one move deeper at a time, finds a shortest solution
+        BFS,
+        // Best first by moves made plus tiles between YOU and WIN, usually faster but not always shortest
+        A_STAR
+    }
+
+    /**
+     * Outcome of a search
+     * @param moves Moves that win the level, null if none were found
+     * @param verified True if the moves also win the level when played from the start as the game does
+     * @param states Boards expanded
+     * @param millis Time taken
+     * @param peakMemory Most heap in use during the search, in bytes
+     * @param complete True if every board reachable was searched, up to hash collisions
+     */
+    public record Result(List<World.Direction> moves, boolean verified, long states, long millis,
+                         long peakMemory, boolean complete) {
+
+        public boolean isSolved() {
+            return moves != null;
+        }
+        public long getStatesPerSecond() {
+            return states * 1000 / Math.max(1, millis);
+        }
+
+        @Override
+        public String toString() {
+            String outcome;
+            if (isSolved()) {
+                StringBuilder path = new StringBuilder();
+                for (World.Direction d : moves) path.append(d.name().charAt(0));
+
+                outcome = "Solved in " + moves.size() + " moves" + (verified ? "" : " (not verified)") + ": " + path;
+            }
+            else {
+                outcome = complete ? "No solution" : "No solution found within the limit";
+            }
+
+            return outcome + " | " + states + " states, " + getStatesPerSecond() + " states/s, " +
+                    millis + " ms, peak " + peakMemory / (1024 * 1024) + " MB";
+        }
+    }
+
+    // Boards expanded before giving up
+    public static final long DEFAULT_MAX_STATES = 2_000_000;
+
+    // Expansions between progress reports and memory samples
+    private static final int REPORT_INTERVAL = 4096;
+
+    /* ENTITY LAYOUT (bits of the long each entity is stored as, the top bit stays clear) */
+    private static final int NAME_SHIFT = 50;
+    private static final int X_SHIFT = 34;
+    private static final int Y_SHIFT = 18;
+    private static final int DIRECTION_SHIFT = 16;
+    private static final int ORI_SHIFT = 8;
+
+    // Set in the key of each rule, so no rule key equals an entity key
+    private static final long RULE_KEY = 1L << 63;
+
+    // Set in the long of an entity held by the entity stored before it
+    private static final long HELD = 1L << 63;
+
+    private static final World.Direction[] DIRECTIONS = World.Direction.values();
+
+    private final DataStorage level;
+    private final Search search;
+    private final int threads;
+    private final long maxStates;
+
+    // Every name an entity can have, stored as its index
+    private final String[] names;
+    private final Map<String, Integer> nameIndexes = new HashMap<>();
+
+    /* SEARCH STATE */
+    private StateSet seen;
+    private final AtomicLong expanded = new AtomicLong();
+    private final AtomicLong peakMemory = new AtomicLong();
+    private final AtomicReference<Node> goal = new AtomicReference<>();
+    private volatile boolean stopped;
+    private AsyncStorage.Progress progress;
+
+    /**
+     * One board reached during the search
+     * The entities are dropped once the board is expanded, the links back to the start are kept for the moves
+     */
+    private static final class Node {
+        final Node parent;
+        final int move;
+        final int depth;
+        final int estimate;
+        final long hash;
+        long[] state;
+
+        Node(Node parent, int move, int depth, int estimate, long hash, long[] state) {
+            this.parent = parent;
+            this.move = move;
+            this.depth = depth;
+            this.estimate = estimate;
+            this.hash = hash;
+            this.state = state;
+        }
+    }
+
+    /**
+     * CONSTRUCTOR
+     * @param level Level to solve
+     * @param search Search order
+     * @param threads Threads searching at once
+     * @param maxStates Boards expanded before giving up
+     */
+    public Solver(DataStorage level, Search search, int threads, long maxStates) {
+        this.level = level;
+        this.search = search;
+        this.threads = Math.max(1, threads);
+        this.maxStates = maxStates;
+
+        World world = ReplayPlayer.load(level, true);
+        names = world.eGenerator.getNames().stream().sorted().toArray(String[]::new);
+        for (int i = 0; i < names.length; i++) {
+            nameIndexes.put(names[i], i);
+        }
+    }
+    public Solver(DataStorage level) {
+        this(level, Search.BFS, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_STATES);
+    }
+
+    /**
+     * SOLVE
+     * @param progress Receives the number of boards searched, null for none
+     * @return Moves found and search statistics
+     */
+    public Result solve(AsyncStorage.Progress progress) throws InterruptedException {
+        this.progress = progress;
+        seen = new StateSet();
+        expanded.set(0);
+        peakMemory.set(0);
+        goal.set(null);
+        stopped = false;
+
+        long start = System.nanoTime();
+
+        World world = ReplayPlayer.load(level, true);
+        long[] state = encode(world);
+        long hash = hash(state, world);
+        seen.add(hash);
+
+        Node root = new Node(null, -1, 0, estimate(world), hash, state);
+        boolean complete;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "solver");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            complete = world.hasMoveableEntities() ?
+                    (search == Search.BFS ? breadthFirst(root, executor) : bestFirst(root, executor)) : true;
+        }
+        finally {
+            stopped = true;
+            executor.shutdownNow();
+        }
+
+        sampleMemory();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        List<World.Direction> moves = null;
+        boolean verified = false;
+
+        Node node = goal.get();
+        if (node != null) {
+            moves = new ArrayList<>();
+            for (; node.parent != null; node = node.parent) {
+                moves.add(DIRECTIONS[node.move]);
+            }
+            Collections.reverse(moves);
+
+            verified = verify(moves);
+        }
+
+        return new Result(moves, verified, expanded.get(), millis, peakMemory.get(), complete && goal.get() == null);
+    }
+
+    /**
+     * BREADTH FIRST
+     * Expands the boards one move deep at a time, splitting each depth across the threads
+     * @return True if every reachable board was searched
+     */
+    private boolean breadthFirst(Node root, ExecutorService executor) throws InterruptedException {
+        List<Node> frontier = List.of(root);
+
+        while (!frontier.isEmpty()) {
+            if (goal.get() != null || expanded.get() >= maxStates) return false;
+
+            List<Node> current = frontier;
+            int chunk = Math.max(1, (current.size() + threads * 4 - 1) / (threads * 4));
+
+            List<Callable<List<Node>>> tasks = new ArrayList<>();
+            for (int from = 0; from < current.size(); from += chunk) {
+                List<Node> slice = current.subList(from, Math.min(current.size(), from + chunk));
+
+                tasks.add(() -> {
+                    Worker worker = WORKERS.get().of(this);
+                    List<Node> children = new ArrayList<>();
+
+                    for (Node node : slice) {
+                        if (stopped || goal.get() != null || expanded.get() >= maxStates) break;
+                        worker.expand(node, children::add);
+                    }
+                    return children;
+                });
+            }
+
+            List<Node> next = new ArrayList<>();
+            for (Future<List<Node>> result : executor.invokeAll(tasks)) {
+                try {
+                    next.addAll(result.get());
+                }
+                catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+
+            frontier = next;
+        }
+
+        return true;
+    }
+
+    /**
+     * BEST FIRST
+     * Every thread takes the most promising board left, until a win is found or none are left
+     * @return True if every reachable board was searched
+     */
+    private boolean bestFirst(Node root, ExecutorService executor) throws InterruptedException {
+        PriorityBlockingQueue<Node> open = new PriorityBlockingQueue<>(1024,
+                Comparator.comparingInt((Node n) -> n.depth + n.estimate).thenComparingInt(n -> -n.depth));
+        open.add(root);
+
+        // Threads holding a board, the search is over once none do and none are left
+        AtomicLong busy = new AtomicLong();
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            tasks.add(() -> {
+                Worker worker = WORKERS.get().of(this);
+
+                while (!stopped && goal.get() == null && expanded.get() < maxStates) {
+                    busy.incrementAndGet();
+                    try {
+                        Node node = open.poll(10, TimeUnit.MILLISECONDS);
+
+                        if (node == null) {
+                            if (busy.get() == 1 && open.isEmpty()) break;
+                            continue;
+                        }
+                        worker.expand(node, open::add);
+                    }
+                    finally {
+                        busy.decrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        for (Future<Void> result : executor.invokeAll(tasks)) {
+            try {
+                result.get();
+            }
+            catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        return open.isEmpty() && goal.get() == null && expanded.get() < maxStates;
+    }
+
+    /**
+     * VERIFY
+     * Plays the moves on the level as ReplayPlayer does, entities keep the order the game gives them
+     * @return True if the level is won after the last move
+     */
+    private boolean verify(List<World.Direction> moves) {
+        World world = ReplayPlayer.load(level, true);
+
+        for (World.Direction direction : moves) {
+            world.move(direction);
+            world.settle();
+        }
+
+        return world.win;
+    }
+
+    /**
+     * World and scratch space of one solver thread, reused by later solves on the same thread
+     */
+    private static final class Worker {
+
+        private Solver solver;
+        private World world;
+
+        Worker of(Solver solver) {
+            if (this.solver != solver) {
+                this.solver = solver;
+                world = ReplayPlayer.load(solver.level, true);
+            }
+            return this;
+        }
+
+        /**
+         * EXPAND
+         * Plays each direction from the board, handing on the boards not seen before
+         * @param node Board to expand
+         * @param out Receives new boards worth expanding
+         */
+        void expand(Node node, Consumer<Node> out) {
+            boolean built = false;
+
+            for (int move = 0; move < DIRECTIONS.length; move++) {
+                if (!built) {
+                    solver.build(world, node.state);
+                    built = true;
+                }
+
+                boolean moved = world.move(DIRECTIONS[move]);
+                world.settle();
+
+                long[] state = solver.encode(world);
+                long hash = hash(state, world);
+                boolean won = world.win;
+
+                if (solver.seen.add(hash)) {
+                    Node child = new Node(node, move, node.depth + 1, solver.estimate(world), hash, state);
+
+                    if (won) {
+                        solver.goal.compareAndSet(null, child);
+                        break;
+                    }
+
+                    // Nothing left to move, no later move changes the board
+                    if (world.hasMoveableEntities()) out.accept(child);
+                }
+
+                // Step back to the board with undo, building it again only if that does not give the same board
+                if (moved) {
+                    world.undo();
+                    world.settle();
+                    world.win = false;
+
+                    hash = hash(solver.encode(world), world);
+                }
+                built = hash == node.hash;
+            }
+
+            node.state = null;
+            solver.count();
+        }
+    }
+    private static final ThreadLocal<Worker> WORKERS = ThreadLocal.withInitial(Worker::new);
+
+    /**
+     * BUILD
+     * Replaces the entities of the world with a stored board
+     * Entities held are given back before the rules, which only add what is not held yet
+     */
+    private void build(World world, long[] state) {
+        world.clear();
+
+        Entity holder = null;
+        for (long e : state) {
+            Entity entity = decode(world, e & ~HELD);
+
+            if ((e & HELD) != 0) {
+                holder.giveHeldEntity(entity);
+                continue;
+            }
+
+            world.addEntity(entity);
+            holder = entity;
+        }
+
+        world.setupLevel();
+    }
+    private Entity decode(World world, long e) {
+        int ori = (int) (e >>> ORI_SHIFT & 0xFF) - 1;
+        int side = (int) (e & 0xFF) - 1;
+
+        Entity entity = world.eGenerator.getEntity(names[(int) (e >>> NAME_SHIFT)], ori, side);
+        entity.setPoint((int) (e >>> X_SHIFT & 0xFFFF), (int) (e >>> Y_SHIFT & 0xFFFF));
+        entity.setDirection(DIRECTIONS[(int) (e >>> DIRECTION_SHIFT & 3)]);
+
+        return entity;
+    }
+
+    /**
+     * ENCODE
+     * HAS gives entities that stay held after the rule is broken, so they are part of the board
+     * @return Every living entity of the world in list order, one long each, each followed by
+     *  the entities it holds
+     */
+    private long[] encode(World world) {
+        int size = 0;
+        for (Entity e : world.entities) {
+            if (e.getAlive()) size += 1 + e.getHeldEntities().size();
+        }
+
+        long[] state = new long[size];
+        int count = 0;
+
+        for (Entity e : world.entities) {
+            if (!e.getAlive()) continue;
+
+            state[count++] = encode(e);
+            for (Entity held : e.getHeldEntities()) {
+                state[count++] = HELD | encode(held);
+            }
+        }
+
+        return state;
+    }
+    private long encode(Entity e) {
+        return (long) nameIndexes.get(e.getName()) << NAME_SHIFT |
+                (long) (e.getPoint().x & 0xFFFF) << X_SHIFT |
+                (long) (e.getPoint().y & 0xFFFF) << Y_SHIFT |
+                (long) e.getDirection().ordinal() << DIRECTION_SHIFT |
+                (long) (e.getOri() + 1 & 0xFF) << ORI_SHIFT |
+                (e.getSide() + 1 & 0xFF);
+    }
+
+    /**
+     * HASH
+     * @param state Stored board
+     * @param world World the board is on, for its active rules
+     * @return Zobrist hash of the board and its rules, the same for any order of its entities
+     */
+    private static long hash(long[] state, World world) {
+        long hash = 0;
+        long holder = 0;
+
+        for (long e : state) {
+
+            // The key of a held entity depends on its holder, one held by another entity is another board
+            if ((e & HELD) != 0) {
+                hash += mix(e ^ mix(holder));
+                continue;
+            }
+
+            hash += mix(e);
+            holder = e;
+        }
+        for (Rule rule : world.getActiveRules()) hash += mix(RULE_KEY | rule.hashCode() & 0xFFFFFFFFL);
+        return mix(hash);
+    }
+    private static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    /**
+     * ESTIMATE
+     * Moves left guessed from the board: tiles from a YOU entity to the nearest WIN entity,
+     *  or to the nearest WIN word plus one while nothing is WIN
+     * @return Estimate in moves, 0 when the board cannot tell
+     */
+    private int estimate(World world) {
+        if (search != Search.A_STAR) return 0;
+
+        int best = Integer.MAX_VALUE;
+        boolean anyWin = false;
+
+        for (Entity e : world.entities) {
+            if (e.getAlive() && e.has(WIN)) anyWin = true;
+        }
+
+        for (Entity you : world.entities) {
+            if (!you.getAlive() || !you.has(YOU)) continue;
+
+            for (Entity target : world.entities) {
+                if (!target.getAlive()) continue;
+                if (anyWin ? !target.has(WIN) : !target.getName().equals(WORD_Win.wordName)) continue;
+
+                int tiles = (Math.abs(you.getPoint().x - target.getPoint().x) +
+                        Math.abs(you.getPoint().y - target.getPoint().y)) / world.tileSize;
+                best = Math.min(best, anyWin ? tiles : tiles + 1);
+            }
+        }
+
+        return best == Integer.MAX_VALUE ? 0 : best;
+    }
+
+    private void count() {
+        long count = expanded.incrementAndGet();
+        if (count % REPORT_INTERVAL != 0) return;
+
+        sampleMemory();
+        if (progress != null) {
+            progress.update("Solving level (" + count + " states)", (double) count / maxStates);
+        }
+    }
+    private void sampleMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        peakMemory.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+    }
+
+    /**
+     * MAIN
+     * Solves level files given on the command line
+     * Options: --astar for best first search, --threads N, --max-states N
+     * @param args Options and level files
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Search search = Search.BFS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long maxStates = DEFAULT_MAX_STATES;
+        List<String> files = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--astar" -> search = Search.A_STAR;
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--max-states" -> maxStates = Long.parseLong(args[++i]);
+                default -> files.add(args[i]);
+            }
+        }
+
+        if (files.isEmpty()) {
+            System.out.println("Usage: Solver [--astar] [--threads N] [--max-states N] <level files>");
+            return;
+        }
+
+        for (String file : files) {
+            try {
+                DataStorage ds = LevelFormat.decode(Files.readAllBytes(new File(file).toPath()));
+
+                // Start the memory samples from live data only
+                System.gc();
+                Result result = new Solver(ds, search, threads, maxStates).solve(null);
+
+                System.out.println(file + ": " + result);
+            }
+            catch (IOException e) {
+                System.out.println("Error reading " + file + ": " + e.getMessage());
+            }
+        }
+    }
+}
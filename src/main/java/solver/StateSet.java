@@ -0,0 +1,96 @@
+package solver;
+
+/**
+ * Hashes of the board states already reached, shared by every solver thread
+ * Split into segments with a lock each, so threads adding different states rarely wait on each other
+ * Each segment is an open-addressing table of longs, 8 bytes per state at most half full
+ * Only hashes are kept, not the boards, so a new board whose hash collides with one already added
+ *  is taken as seen and pruned without notice; with n boards the chance of any collision is about
+ *  n * n / 2^65, 1 in 10 million for 2 million boards, against the hundreds of bytes a full board takes
+ */
+class StateSet {
+
+    private static final int SEGMENTS = 64;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    StateSet() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * ADD
+     * @param hash State hash
+     * @return True if the state was not in the set yet
+     */
+    boolean add(long hash) {
+        // 0 marks empty buckets
+        if (hash == 0) hash = 1;
+
+        return segments[(int) (hash >>> 58) & (SEGMENTS - 1)].add(hash);
+    }
+
+    /**
+     * SIZE
+     * @return Number of states in the set
+     */
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * MEMORY SIZE
+     * @return Approximate bytes held by the tables
+     */
+    long getMemorySize() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += 8L * segment.table.length;
+            }
+        }
+        return bytes;
+    }
+
+    private static final class Segment {
+
+        private long[] table = new long[1024];
+        private int size = 0;
+
+        synchronized boolean add(long hash) {
+            int mask = table.length - 1;
+
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                if (table[i] == hash) return false;
+
+                if (table[i] == 0) {
+                    table[i] = hash;
+                    if (++size * 2 > table.length) grow();
+                    return true;
+                }
+            }
+        }
+
+        private void grow() {
+            long[] old = table;
+            table = new long[old.length * 2];
+            int mask = table.length - 1;
+
+            for (long hash : old) {
+                if (hash == 0) continue;
+
+                int i = (int) hash & mask;
+                while (table[i] != 0) i = (i + 1) & mask;
+                table[i] = hash;
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package state;
+
+import application.World;
+import entity.Entity;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Inputs of one play of a level, enough to play it again exactly
+ * Binary layout (version 3), counts are varints
+ *  magic "BRPL", version, flags (1 = instant turns), level hash (8 bytes)
+ *  run count, then per run of one repeated input (length << 3 | input)
+ *  state hash (8 bytes)
+ *  timeline hash (8 bytes, 0 for none), version 2 held the timeline length and bytes instead
+ * Inputs 0 to 3 are moves in World.Direction order, then undo and redo
+ * Undo and redo follow the saved timeline the level was opened with, so it is kept too: once,
+ *  next to the replays, in a file named by its hash: <timeline hash>.rtl
+ * @param levelHash Hash of the board when play started
+ * @param instantTurns True if turns were resolved instantly
+ * @param inputs One input per turn
+ * @param stateHash Hash of the board when play stopped
+ * @param timeline Saved undo timeline play started with, empty if there was none
+ */
+public record Replay(long levelHash, boolean instantTurns, byte[] inputs, long stateHash, byte[] timeline) {
+
+    /* INPUTS */
+    public static final int UNDO = 4;
+    public static final int REDO = 5;
+
+    private static final byte[] MAGIC = {'B', 'R', 'P', 'L'};
+    private static final int VERSION = 3;
+    private static final int INSTANT_TURNS = 1;
+
+    // Reject corrupt files before allocating
+    private static final int MAX_INPUTS = 1 << 24;
+    private static final int MAX_TIMELINE_BYTES = 1 << 24;
+
+    public static final String EXTENSION = ".rpl";
+    public static final String TIMELINE_EXTENSION = ".rtl";
+
+    /**
+     * ENCODE
+     * @return Replay in the binary format
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(MAGIC);
+            writeVarInt(out, VERSION);
+            out.writeByte(instantTurns ? INSTANT_TURNS : 0);
+            out.writeLong(levelHash);
+
+            // Held keys repeat one input, so runs keep the file small
+            int runs = 0;
+            for (int i = 0; i < inputs.length; i++) {
+                if (i == 0 || inputs[i] != inputs[i - 1]) runs++;
+            }
+            writeVarInt(out, runs);
+
+            for (int start = 0, end; start < inputs.length; start = end) {
+                end = start + 1;
+                while (end < inputs.length && inputs[end] == inputs[start]) end++;
+
+                writeVarInt(out, (end - start) << 3 | inputs[start]);
+            }
+
+            out.writeLong(stateHash);
+            out.writeLong(timelineHash(timeline));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * DECODE
+     * @param data File contents
+     * @param dir Folder the replay was saved in, which holds its timeline
+     * @return Replay stored in the data
+     */
+    public static Replay decode(byte[] data, File dir) throws IOException {
+        if (!isReplay(data)) {
+            throw new IOException("Not a replay file");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, MAGIC.length, data.length - MAGIC.length));
+
+        int version = readVarInt(in);
+        if (version > VERSION) {
+            throw new IOException("Replay version " + version + " is newer than supported version " + VERSION);
+        }
+
+        boolean instant = (in.readByte() & INSTANT_TURNS) != 0;
+        long levelHash = in.readLong();
+
+        int runs = readVarInt(in);
+        byte[] inputs = new byte[Math.min(runs, MAX_INPUTS)];
+        int count = 0;
+
+        for (int i = 0; i < runs; i++) {
+            int run = readVarInt(in);
+            int length = run >>> 3;
+            int input = run & 7;
+
+            if (input > REDO || length <= 0 || length > MAX_INPUTS - count) {
+                throw new IOException("Corrupt replay: run " + run);
+            }
+
+            if (count + length > inputs.length) {
+                inputs = Arrays.copyOf(inputs, Math.max(count + length, inputs.length * 2));
+            }
+            Arrays.fill(inputs, count, count + length, (byte) input);
+            count += length;
+        }
+
+        long stateHash = in.readLong();
+
+        byte[] timeline = new byte[0];
+        if (version >= 3) {
+            long timelineHash = in.readLong();
+            if (timelineHash != 0) timeline = readTimeline(dir, timelineHash);
+        }
+        else if (version == 2) {
+            int length = readVarInt(in);
+            if (length < 0 || length > MAX_TIMELINE_BYTES) {
+                throw new IOException("Corrupt replay: timeline of " + length + " bytes");
+            }
+
+            timeline = new byte[length];
+            in.readFully(timeline);
+        }
+
+        return new Replay(levelHash, instant, Arrays.copyOf(inputs, count), stateHash, timeline);
+    }
+
+    /**
+     * IS REPLAY
+     * @param data File contents
+     * @return True if the data starts with the replay magic
+     */
+    public static boolean isReplay(byte[] data) {
+        return data.length >= MAGIC.length && Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * TIMELINE HASH
+     * @param timeline Saved undo timeline
+     * @return Hash naming the timeline's file, 0 for an empty timeline and never otherwise
+     */
+    public static long timelineHash(byte[] timeline) {
+        if (timeline.length == 0) return 0;
+
+        ByteBuffer buffer = ByteBuffer.wrap(timeline);
+        long hash = timeline.length;
+
+        while (buffer.remaining() >= Long.BYTES) hash = mix(hash + buffer.getLong());
+        while (buffer.hasRemaining()) hash = mix(hash + buffer.get());
+
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * TIMELINE FILE
+     * @param dir Folder replays are saved in
+     * @param timelineHash Hash of the timeline
+     * @return File the timeline is kept in, shared by every replay played on it
+     */
+    public static File timelineFile(File dir, long timelineHash) {
+        return new File(dir, String.format("%016x%s", timelineHash, TIMELINE_EXTENSION));
+    }
+
+    private static byte[] readTimeline(File dir, long timelineHash) throws IOException {
+        if (dir == null) throw new IOException("Replay timeline " + Long.toHexString(timelineHash) + " has no folder");
+
+        File file = timelineFile(dir, timelineHash);
+        if (!file.isFile()) throw new IOException("Replay timeline " + file.getName() + " is missing");
+        if (file.length() > MAX_TIMELINE_BYTES) throw new IOException("Corrupt replay timeline: " + file.length() + " bytes");
+
+        byte[] timeline = Files.readAllBytes(file.toPath());
+        if (timelineHash(timeline) != timelineHash) throw new IOException("Corrupt replay timeline " + file.getName());
+
+        return timeline;
+    }
+
+    /**
+     * HASH
+     * Hashes every entity on the board and whether the level is won
+     * Entity order and IDs are left out, as both change each time a level is built
+     * @param world World
+     * @return Hash of the board
+     */
+    public static long hash(World world) {
+        long hash = 0;
+
+        for (Entity e : world.entities) {
+            if (!e.getAlive()) continue;
+
+            long h = e.getName().hashCode();
+            h = h * 31 + e.getPoint().x;
+            h = h * 31 + e.getPoint().y;
+            h = h * 31 + e.getDirection().ordinal();
+            h = h * 31 + e.getOri();
+            h = h * 31 + e.getSide();
+
+            // Summed so the order of the list does not matter
+            hash += mix(h);
+        }
+
+        return mix(hash ^ (world.win ? 1 : 0));
+    }
+    private static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) return value;
+        }
+
+        throw new IOException("Corrupt replay: varint too long");
+    }
+}
@@ -0,0 +1,162 @@
+package state;
+
+import application.World;
+import data.DataStorage;
+import data.LevelFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Plays replays again without a window at full speed, checking each one ends on the board it was recorded with
+ * Used to check solutions, reproduce reported bugs and catch rule changes that break old games
+ */
+public final class ReplayPlayer {
+
+    private static final World.Direction[] DIRECTIONS = World.Direction.values();
+
+    private ReplayPlayer() {}
+
+    /**
+     * LOAD
+     * Builds a level the way GamePanel does before it is played, on the board it was saved with
+     * @param ds Level data
+     * @param instantTurns True to resolve turns instantly
+     * @return World ready to play
+     */
+    public static World load(DataStorage ds, boolean instantTurns) {
+        return load(ds, instantTurns, null);
+    }
+
+    /**
+     * LOAD
+     * Builds a level as it was when the replay was recorded, with the saved timeline it was played with
+     * @param ds Level data
+     * @param replay Replay about to be played
+     * @return World ready to play
+     */
+    public static World load(DataStorage ds, Replay replay) {
+        return load(ds, replay.instantTurns(), replay.timeline().length == 0 ? null : replay.timeline());
+    }
+
+    private static World load(DataStorage ds, boolean instantTurns, byte[] timeline) {
+        World world = new World(ds.tile_size, ds.max_col, ds.max_row);
+        world.setInstantTurns(instantTurns);
+        world.setTimelineData(timeline);
+
+        world.loadLevel(ds);
+        world.setupLevel();
+
+        return world;
+    }
+
+    /**
+     * PLAY
+     * Feeds every input of the replay to the world, letting each turn settle first
+     * @param world World set up by load() with the replay
+     * @param replay Replay to play
+     * @return Hash of the board after the last input
+     */
+    public static long play(World world, Replay replay) {
+        for (byte input : replay.inputs()) {
+            switch (input) {
+                case Replay.UNDO -> world.undo();
+                case Replay.REDO -> world.redo();
+                default -> world.move(DIRECTIONS[input]);
+            }
+            world.settle();
+        }
+
+        return Replay.hash(world);
+    }
+
+    /**
+     * PLAY ALL
+     * Plays every replay found against the levels found, matched by level hash
+     * @param paths Level and replay files or folders holding them, the replay and cache folders if none
+     * @return Number of replays that did not end where they were recorded, or could not be played
+     */
+    public static int playAll(String... paths) {
+        List<File> files = new ArrayList<>();
+
+        if (paths.length == 0) {
+            String conf = System.getProperty("user.home") + "/baba-conf/";
+            paths = new String[] { conf + "replays/", conf + "cache/" };
+        }
+        for (String path : paths) {
+            collect(new File(path), files);
+        }
+
+        // Levels by the hash of their starting board
+        Map<Long, DataStorage> levels = new HashMap<>();
+        List<File> replays = new ArrayList<>();
+
+        for (File file : files) {
+            // Timelines are read by the replays that use them
+            if (file.getName().endsWith(Replay.TIMELINE_EXTENSION)) continue;
+
+            try {
+                byte[] data = Files.readAllBytes(file.toPath());
+
+                if (Replay.isReplay(data)) {
+                    replays.add(file);
+                    continue;
+                }
+
+                DataStorage ds = LevelFormat.decode(data);
+                levels.put(Replay.hash(load(ds, true)), ds);
+            }
+            catch (IOException | RuntimeException e) {
+                System.out.println("Skipped " + file + ": " + e.getMessage());
+            }
+        }
+
+        int failed = 0;
+        long inputs = 0;
+        long start = System.nanoTime();
+
+        for (File file : replays) {
+            try {
+                Replay replay = Replay.decode(Files.readAllBytes(file.toPath()), file.getParentFile());
+
+                DataStorage ds = levels.get(replay.levelHash());
+                if (ds == null) {
+                    System.out.println("MISSING " + file.getName() + ": no level with hash " + Long.toHexString(replay.levelHash()));
+                    failed++;
+                    continue;
+                }
+
+                long hash = play(load(ds, replay), replay);
+                inputs += replay.inputs().length;
+
+                if (hash != replay.stateHash()) {
+                    System.out.println("FAILED " + file.getName() + " (" + replay.inputs().length + " inputs)");
+                    failed++;
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                System.out.println("Error playing " + file + ": " + e.getMessage());
+                failed++;
+            }
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Played " + replays.size() + " replays (" + inputs + " inputs) in " + millis + " ms, " + failed + " failed");
+
+        return failed;
+    }
+
+    private static void collect(File file, List<File> files) {
+        File[] children = file.listFiles();
+
+        if (children == null) {
+            if (file.isFile()) files.add(file);
+            return;
+        }
+
+        Arrays.sort(children);
+        for (File child : children) collect(child, files);
+    }
+}
@@ -0,0 +1,181 @@
+package state;
+
+import application.World;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Records the inputs of a level being played, handing them over as a replay once play stops
+ * Replays are named by the level hash and the time play stopped: <level hash>-<millis>.rpl
+ * The folder is kept under a cap, replays and timelines saved or used longest ago go first
+ */
+public class ReplayRecorder {
+
+    // Size of the replay folder, timelines included, before the oldest files are deleted
+    static final long MAX_DIR_BYTES = 64L << 20;
+
+    private final File dir;
+    private final long maxDirBytes;
+
+    private boolean recording = false;
+    private long levelHash;
+    private boolean instantTurns;
+    private byte[] timeline;
+
+    private byte[] inputs = new byte[256];
+    private int count = 0;
+
+    // Last move if it changed nothing but directions, repeating it changes nothing at all
+    private int blocked = -1;
+
+    /**
+     * CONSTRUCTOR
+     * @param dir Folder replays are saved in, created when the first one is saved
+     */
+    public ReplayRecorder(File dir) {
+        this(dir, MAX_DIR_BYTES);
+    }
+    ReplayRecorder(File dir, long maxDirBytes) {
+        this.dir = dir;
+        this.maxDirBytes = maxDirBytes;
+    }
+
+    /**
+     * START
+     * Starts a new replay from the board
+     * Called by GamePanel once a level is set up
+     * @param world World about to be played
+     */
+    public void start(World world) {
+        recording = true;
+        levelHash = Replay.hash(world);
+        instantTurns = world.getInstantTurns();
+
+        // Turns of earlier sessions, undo and redo can reach them
+        byte[] data = world.getTimelineData();
+        timeline = data == null ? new byte[0] : data;
+
+        count = 0;
+        blocked = -1;
+    }
+
+    /**
+     * RECORD MOVE
+     * @param direction Direction moved
+     * @param moved True if any entity started moving
+     */
+    public void recordMove(World.Direction direction, boolean moved) {
+        int input = direction.ordinal();
+
+        // Key held against a wall
+        if (!moved && input == blocked) return;
+
+        add(input);
+        blocked = moved ? -1 : input;
+    }
+    public void recordUndo() {
+        add(Replay.UNDO);
+        blocked = -1;
+    }
+    public void recordRedo() {
+        add(Replay.REDO);
+        blocked = -1;
+    }
+
+    /**
+     * STOP
+     * Ends the replay on the game thread, save() writes it
+     * Called by GamePanel when the level is left or set up again
+     * @param world World that was played
+     * @return Replay of the play, null if nothing was played
+     */
+    public Replay stop(World world) {
+        if (!recording) return null;
+        recording = false;
+
+        if (count == 0) return null;
+
+        // Finish the last turn, the player lets every input settle
+        world.settle();
+
+        return new Replay(levelHash, instantTurns, Arrays.copyOf(inputs, count), Replay.hash(world), timeline);
+    }
+
+    /**
+     * SAVE
+     * Writes the replay, and its timeline unless an earlier replay already did, then trims the folder
+     * Called by GamePanel on a storage thread
+     * @param replay Replay returned by stop()
+     * @return File the replay was saved to
+     */
+    public File save(Replay replay) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+
+        File timelineFile = null;
+        if (replay.timeline().length > 0) {
+            timelineFile = Replay.timelineFile(dir, Replay.timelineHash(replay.timeline()));
+            if (!timelineFile.isFile()) Files.write(timelineFile.toPath(), replay.timeline());
+        }
+
+        // Numbered when another replay of the level was saved in the same millisecond
+        String name = String.format("%016x-%d", replay.levelHash(), System.currentTimeMillis());
+        File file = new File(dir, name + Replay.EXTENSION);
+        for (int copy = 1; file.exists(); copy++) {
+            file = new File(dir, name + "-" + copy + Replay.EXTENSION);
+        }
+        Files.write(file.toPath(), replay.encode());
+
+        // Touched after the replay, so the replays using it are trimmed before it is
+        if (timelineFile != null && !timelineFile.setLastModified(System.currentTimeMillis())) {
+            System.out.println("Error touching replay timeline " + timelineFile.getName());
+        }
+        trim(file, timelineFile);
+
+        return file;
+    }
+
+    /**
+     * TRIM
+     * Deletes the replays and timelines saved or used longest ago until the folder is back under its cap
+     * A timeline is never older than a replay using it, so replays go before their timeline
+     * @param kept Replay and timeline just saved, never deleted
+     */
+    private void trim(File... kept) {
+        File[] files = dir.listFiles((folder, name) -> name.endsWith(Replay.EXTENSION) || name.endsWith(Replay.TIMELINE_EXTENSION));
+        if (files == null) return;
+
+        long total = 0;
+        for (File f : files) total += f.length();
+        if (total <= maxDirBytes) return;
+
+        // Replays first when saved in the same millisecond as a timeline
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified)
+                .thenComparing(f -> f.getName().endsWith(Replay.TIMELINE_EXTENSION)));
+
+        for (File f : files) {
+            if (total <= maxDirBytes) break;
+            if (Arrays.asList(kept).contains(f)) continue;
+
+            long size = f.length();
+            if (f.delete()) {
+                total -= size;
+            }
+            else {
+                System.out.println("Error deleting replay " + f.getName());
+            }
+        }
+    }
+
+    private void add(int input) {
+        if (!recording) return;
+
+        if (count == inputs.length) inputs = Arrays.copyOf(inputs, count * 2);
+        inputs[count++] = (byte) input;
+    }
+}
@@ -0,0 +1,205 @@
+package state;
+
+import java.util.Arrays;
+
+/**
+ * Entity states at one point in the undo history, kept in flat int arrays
+ * Entities are found by ID through an open-addressing index, so the
+ * snapshot can be compared with and patched from the live board without
+ * allocating per entity
+ */
+class Snapshot {
+
+    /* FIELDS PER ENTITY */
+    static final int ID = 0;
+    static final int NAME = 1;
+    static final int X = 2;
+    static final int Y = 3;
+    static final int DIRECTION = 4;
+    static final int ORI = 5;
+    static final int SIDE = 6;
+    static final int FIELDS = 7;
+
+    // Entity states, FIELDS ints per slot
+    private int[] data = new int[FIELDS * 64];
+    private int size = 0;
+
+    // ID hash to slot + 1, 0 for empty buckets
+    private int[] index = new int[128];
+
+    int size() {
+        return size;
+    }
+    int get(int slot, int field) {
+        return data[slot * FIELDS + field];
+    }
+
+    /**
+     * FIND
+     * @param id Entity ID
+     * @return Slot of the entity, -1 if it is not in the snapshot
+     */
+    int find(int id) {
+        int mask = index.length - 1;
+
+        for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+            int slot = index[i] - 1;
+            if (slot < 0) return -1;
+            if (data[slot * FIELDS + ID] == id) return slot;
+        }
+    }
+
+    /**
+     * PUT
+     * Adds an entity or overwrites the one with the same ID
+     */
+    void put(int id, int name, int x, int y, int direction, int ori, int side) {
+        int slot = find(id);
+
+        if (slot < 0) {
+            if (size * FIELDS == data.length) data = Arrays.copyOf(data, data.length * 2);
+            if ((size + 1) * 2 > index.length) rehash(index.length * 2);
+
+            slot = size++;
+            insert(id, slot);
+        }
+
+        int base = slot * FIELDS;
+        data[base + ID] = id;
+        data[base + NAME] = name;
+        data[base + X] = x;
+        data[base + Y] = y;
+        data[base + DIRECTION] = direction;
+        data[base + ORI] = ori;
+        data[base + SIDE] = side;
+    }
+
+    /**
+     * PUT
+     * Copies one entry of a delta array, an entry with name -1 removes the entity
+     * @param changes Delta array with FIELDS ints per entry
+     * @param offset Start of the entry
+     */
+    void put(int[] changes, int offset) {
+        int id = changes[offset + ID];
+
+        if (changes[offset + NAME] < 0) {
+            remove(id);
+            return;
+        }
+
+        put(id, changes[offset + NAME], changes[offset + X], changes[offset + Y],
+                changes[offset + DIRECTION], changes[offset + ORI], changes[offset + SIDE]);
+    }
+
+    /**
+     * COPY TO
+     * Appends the slot's values to a delta array
+     */
+    void copyTo(int slot, int[] changes, int offset) {
+        System.arraycopy(data, slot * FIELDS, changes, offset, FIELDS);
+    }
+
+    /**
+     * REMOVE
+     * Moves the last slot into the freed one, so slots past size() are never used
+     * @param id Entity ID
+     */
+    void remove(int id) {
+        int slot = find(id);
+        if (slot < 0) return;
+
+        erase(id);
+
+        int last = --size;
+        if (slot != last) {
+            int lastId = data[last * FIELDS + ID];
+            System.arraycopy(data, last * FIELDS, data, slot * FIELDS, FIELDS);
+
+            index[bucketOf(lastId)] = slot + 1;
+        }
+    }
+
+    void clear() {
+        size = 0;
+        Arrays.fill(index, 0);
+    }
+
+    /**
+     * TO ARRAY
+     * @return Every entity in slot order, FIELDS ints each
+     */
+    int[] toArray() {
+        return Arrays.copyOf(data, size * FIELDS);
+    }
+
+    /**
+     * LOAD
+     * Replaces the contents with entities from toArray()
+     * @param entities FIELDS ints per entity
+     */
+    void load(int[] entities) {
+        clear();
+        for (int i = 0; i < entities.length; i += FIELDS) {
+            put(entities, i);
+        }
+    }
+
+    /**
+     * MEMORY SIZE
+     * @return Approximate bytes held by the arrays
+     */
+    long getMemorySize() {
+        return 4L * (data.length + index.length);
+    }
+
+    private void insert(int id, int slot) {
+        int mask = index.length - 1;
+
+        int i = hash(id) & mask;
+        while (index[i] != 0) i = (i + 1) & mask;
+
+        index[i] = slot + 1;
+    }
+    private int bucketOf(int id) {
+        int mask = index.length - 1;
+
+        for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+            if (data[(index[i] - 1) * FIELDS + ID] == id) return i;
+        }
+    }
+
+    /**
+     * ERASE
+     * Empties the bucket and shifts later buckets of the same run back,
+     *  so lookups never stop early at the hole
+     */
+    private void erase(int id) {
+        int mask = index.length - 1;
+        int hole = bucketOf(id);
+
+        for (int i = (hole + 1) & mask; index[i] != 0; i = (i + 1) & mask) {
+            int home = hash(data[(index[i] - 1) * FIELDS + ID]) & mask;
+
+            // Entry may move back if the hole lies between its home bucket and where it sits
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                index[hole] = index[i];
+                hole = i;
+            }
+        }
+
+        index[hole] = 0;
+    }
+
+    private void rehash(int capacity) {
+        index = new int[capacity];
+        for (int slot = 0; slot < size; slot++) {
+            insert(data[slot * FIELDS + ID], slot);
+        }
+    }
+
+    private static int hash(int id) {
+        // Spread sequential IDs across the table
+        return id * 0x9E3779B9 >>> 7;
+    }
+}
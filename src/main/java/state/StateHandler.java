@@ -1,138 +1,871 @@
 package state;
 
-import application.GamePanel;
+import application.World;
 import entity.Entity;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashMap;
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.List;
 
 public class StateHandler {
 
-    private final GamePanel gp;
+    private final World world;
 
-    // Max number of redo-s allowed
-    private final static int MAX_UNDO = 75;
+    // Every turn played since the level started, kept until the level changes
+    private final Timeline timeline = new Timeline();
 
-    // Stack to hold Object of entity states
-    private final Deque<UndoFrame> undoStack = new ArrayDeque<>();
+    // Heap the timeline may take, past it the turns furthest from the board are dropped
+    static final long MAX_UNDO_BYTES = 8L << 20;
+    private long maxUndoBytes = MAX_UNDO_BYTES;
+
+    // Entity states at one turn of the timeline, moved between turns by their changes
+    private final Snapshot latest = new Snapshot();
+    private int cursor = -1;
+
+    // Turn the next undo returns to, -1 if there is nothing to undo
+    private int position = -1;
+
+    // Turn the board is at, -1 once a move took the board past the position
+    private int boardTurn = -1;
+
+    // Entity names stored as indexes into this list
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIndexes = new HashMap<>();
+
+    // Entities removed during play, revived by ID when an undo brings them back
+    private static final int MAX_RETIRED = 4096;
+    private final Map<Integer, Entity> retired = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entity> eldest) {
+            return size() > MAX_RETIRED;
+        }
+    };
+
+    /* PERSISTENCE */
+    private File timelineDir = null;
+    private byte[] timelineData = null;
+    private TimelineFile file = null;
+    private final Map<Integer, Integer> localIds = new HashMap<>();
+
+    // Index in the file of each turn in memory, the same until turns are dropped
+    private int[] fileTurns = new int[64];
+
+    /* SCRATCH BUFFERS */
+    private int[] changes = new int[Snapshot.FIELDS * 64];
+    private int[] redoChanges = new int[Snapshot.FIELDS * 64];
+    private int[] marks = new int[64];
+    private int mark = 0;
+    private int[] missing = new int[64];
+    private int[] path = new int[64];
+    private final List<Entity> spawned = new ArrayList<>();
+
+    private static final World.Direction[] DIRECTIONS = World.Direction.values();
 
     /**
      * CONSTRUCTOR
-     * @param pg GamePanel object
+     * @param world World
+     */
+    public StateHandler(World world) {
+        this.world = world;
+    }
+
+    /**
+     * SET TIMELINE DIR
+     * Turns are kept in memory only until a folder is set
+     * @param dir Folder undo timelines are saved in, null to keep them in memory only
      */
-    public StateHandler(GamePanel pg) {
-        this.gp = pg;
+    public void setTimelineDir(File dir) {
+        timelineDir = dir;
+    }
+
+    /**
+     * SET MAX UNDO BYTES
+     * @param bytes Heap the timeline may take before the turns furthest from the board are dropped
+     */
+    public void setMaxUndoBytes(long bytes) {
+        maxUndoBytes = bytes;
+    }
+
+    /**
+     * SET TIMELINE DATA
+     * Turns are read from the data instead of a folder, and kept in memory only
+     * @param data Timeline as getTimelineData() returned it, null for none
+     */
+    public void setTimelineData(byte[] data) {
+        timelineData = data;
+    }
+
+    /**
+     * GET TIMELINE DATA
+     * @return Saved turns the timeline started with, null if it was not read from anywhere
+     */
+    public byte[] getTimelineData() {
+        return file == null ? null : file.getStored();
     }
 
     /**
      * SAVE STATE
-     * Saves entity states to each set of entities
-     * Called by GamePanel when canSave is TRUE
+     * Records the board as a turn played from the last save, following the
+     *  turn already on the timeline if it is the same
+     * Called by World when entities start a move
      */
     public void saveState() {
-        HashMap<Integer, State> entityStateStack = saveEntityStates();
+        if (timeline.isEmpty()) open();
+
+        if (boardTurn >= 0) {
 
-        undoStack.push(new UndoFrame(entityStateStack));
+            // Board still at the turn an undo or redo left it on
+            moveTo(boardTurn);
+            if (matchesBoard()) {
+                position = boardTurn;
+                boardTurn = -1;
+                return;
+            }
 
-        // Keep stack under max undo limit
-        while (undoStack.size() > MAX_UNDO) {
-            undoStack.removeLast();
+            // Rules changed the board since, it becomes a turn of its own
+            if (position < 0) position = boardTurn;
         }
+
+        position = addTurn(position);
+        boardTurn = -1;
+
+        trim();
+    }
+
+    /**
+     * LOAD STATE
+     * Returns the entities to their states at the last save, then steps the
+     *  saved states back one move
+     * Called by World when an undo is requested
+     */
+    public void loadState() {
+        if (position < 0) return;
+
+        // Keep the board on the timeline so a redo can return to it
+        if (boardTurn < 0) addTurn(position);
+
+        restore(position);
+        boardTurn = position;
+        position = timeline.get(position).parent();
+
+        trim();
     }
 
     /**
-     * SAVE ENTITY STATES
-     * Iterates over the given entity array and saves the creates an
-     *  array list inside the given stack
-     * Called by saveState()
-     * @return ArrayList of entity states
+     * REDO STATE
+     * Returns the entities to the turn played, or last visited, after the current one
+     * Called by World when a redo is requested
      */
-    private HashMap<Integer, State> saveEntityStates() {
+    public void redoState() {
+        if (timeline.isEmpty()) open();
+        if (boardTurn < 0) return;
+
+        int next = timeline.getRedo(boardTurn);
+        if (next < 0) return;
 
-        HashMap<Integer, State> states = new HashMap<>();
+        restore(next);
+        position = boardTurn;
+        boardTurn = next;
+    }
 
-        for (Entity e : gp.entities) {
-            states.put(e.getId(), new State(
-                    e.getName(),
-                    e.getPoint(),
-                    e.getPreviousPoint(),
-                    e.getDirection(),
-                    e.getOri(),
-                    e.getSide()
-            ));
+    /**
+     * SEEK STATE
+     * Returns the entities to any turn on the timeline, making its branch the one redo follows
+     * Called by World
+     * @param turn Index of the turn, 0 for the start of the level
+     */
+    public void seekState(int turn) {
+        if (timeline.isEmpty()) open();
+        if (turn < 0 || turn >= timeline.size()) return;
+
+        if (boardTurn < 0 && position >= 0) addTurn(position);
+
+        restore(turn);
+        timeline.select(turn);
+        position = timeline.get(turn).parent();
+        boardTurn = turn;
+
+        trim();
+    }
+
+    /**
+     * OPEN
+     * Starts the timeline from the board, reading the turns saved for this start before
+     * Called by clearData() when a level is set up, or on first use if it never was
+     */
+    private void open() {
+        for (Entity e : world.entities) {
+            if (!e.getAlive()) continue;
+
+            latest.put(e.getId(), nameIndex(e.getName()), e.getPoint().x, e.getPoint().y,
+                    e.getDirection().ordinal(), e.getOri(), e.getSide());
         }
 
-        return states;
+        timeline.start(latest.toArray());
+        cursor = 0;
+        position = -1;
+        boardTurn = 0;
+
+        if (timelineDir != null || timelineData != null) openFile();
     }
 
     /**
-     * LOAD STATE
-     * Loads entity states from the stacks and assigns
-     *  the loaded values to each entity in each entity list
-     * Called by GamePanel when B is pressed
+     * OPEN FILE
+     * Finds the saved timeline by the starting board, or takes the one set in memory,
+     *  and replays its turns onto this one
+     * Entities of the level keep the IDs they have now, spawned ones get unused IDs
+     * Called by open()
      */
-    public void loadState() {
-        if (undoStack.isEmpty()) return;
+    private void openFile() {
+        try {
+            writeStart();
+
+            List<TimelineFile.Turn> turns = timelineData != null ? file.read(timelineData) : file.open(timelineDir);
+
+            int start = latest.size();
+            int[] liveIds = new int[file.getLocalIdCount()];
+            for (int slot = 0; slot < start; slot++) {
+                liveIds[slot] = latest.get(slot, Snapshot.ID);
+            }
+
+            int first = Entity.reserveIds(liveIds.length - start);
+            for (int local = start; local < liveIds.length; local++) {
+                liveIds[local] = first + local - start;
+                localIds.put(liveIds[local], local);
+            }
+
+            for (TimelineFile.Turn turn : turns) {
+
+                // The board is at the start, later turns stay on disk only
+                if (getMemorySize() > maxUndoBytes / 2) break;
+
+                int[] redo = turn.changes();
 
-        UndoFrame frame = undoStack.pop();
-        loadEntityStates(frame.entities());
+                for (int i = 0; i < redo.length; i += Snapshot.FIELDS) {
+                    redo[i + Snapshot.ID] = liveIds[redo[i + Snapshot.ID]];
+                    if (redo[i + Snapshot.NAME] >= 0) {
+                        redo[i + Snapshot.NAME] = nameIndex(file.getName(redo[i + Snapshot.NAME]));
+                    }
+                }
+
+                addLoadedTurn(turn.parent(), redo);
+            }
+        }
+        catch (IOException e) {
+            System.out.println("Error opening undo timeline: " + e.getMessage());
+            closeFile();
+        }
     }
 
-    private void loadEntityStates(HashMap<Integer, State> saved) {
+    /**
+     * WRITE START
+     * Starts a timeline file with the board the timeline starts from, which names the file
+     * Entities of the board get local IDs in slot order
+     * Called by openFile() and deleteTimeline()
+     */
+    private void writeStart() throws IOException {
+        file = new TimelineFile();
+
+        for (int slot = 0; slot < latest.size(); slot++) {
+            localIds.put(latest.get(slot, Snapshot.ID), slot);
+        }
+        file.writeTurn(-1, toFile(timeline.getKeyframe(0)), latest.size() * Snapshot.FIELDS);
+        setFileTurn(0, 0);
+    }
+
+    /**
+     * ADD TURN
+     * Records the board as a turn played from the given one
+     * @param parent Turn the board was played from
+     * @return New turn, or the one already played with the same changes
+     */
+    private int addTurn(int parent) {
+        moveTo(parent);
+
+        int length = saveChanges();
+        int[] redo = Arrays.copyOf(redoChanges, length);
+
+        int turn = timeline.findChild(parent, redo);
+        if (turn >= 0) {
+            timeline.select(turn);
+        }
+        else {
+            turn = timeline.add(new UndoFrame(parent, Arrays.copyOf(changes, length), redo), latest);
+            saveTurn(turn);
+        }
+
+        cursor = turn;
+        return turn;
+    }
+
+    /**
+     * ADD LOADED TURN
+     * Works out how to step back a turn read from disk from the turn it was played from
+     * Called by openFile()
+     */
+    private void addLoadedTurn(int parent, int[] redo) {
+        moveTo(parent);
+
+        int[] undo = new int[redo.length];
+        for (int i = 0; i < redo.length; i += Snapshot.FIELDS) {
+            int slot = latest.find(redo[i + Snapshot.ID]);
+
+            if (slot >= 0) {
+                latest.copyTo(slot, undo, i);
+            }
+            else {
+                Arrays.fill(undo, i, i + Snapshot.FIELDS, -1);
+                undo[i + Snapshot.ID] = redo[i + Snapshot.ID];
+            }
+        }
+
+        apply(redo);
+        cursor = timeline.add(new UndoFrame(parent, undo, redo), latest);
+        setFileTurn(cursor, cursor);
+    }
+
+    /**
+     * SAVE CHANGES
+     * Compares the board with the latest save, writing the saved values of every
+     *  entity that differs into the scratch buffer, their new values into the redo
+     *  buffer and updating the save to the board
+     * Called by addTurn()
+     * @return Ints written to each scratch buffer
+     */
+    private int saveChanges() {
+        int length = 0;
+        nextMark();
+
+        spawned.clear();
+        for (Entity e : world.entities) {
+            if (!e.getAlive()) continue;
+
+            int slot = latest.find(e.getId());
+            if (slot < 0) {
+                spawned.add(e);
+                continue;
+            }
+            marks[slot] = mark;
+
+            if (isUnchanged(e, slot)) continue;
 
-        for (Entity e : gp.entities) {
+            // Moved or transformed, keep the old values
+            length = reserve(length);
+            latest.copyTo(slot, changes, length);
 
-            State s = saved.get(e.getId());
+            latest.put(e.getId(), nameIndex(e.getName()), e.getPoint().x, e.getPoint().y,
+                    e.getDirection().ordinal(), e.getOri(), e.getSide());
+            latest.copyTo(slot, redoChanges, length);
+            length += Snapshot.FIELDS;
+        }
+
+        // Died, keep the old values (from the end, removing moves the last slot forward)
+        for (int slot = latest.size() - 1; slot >= 0; slot--) {
+            if (marks[slot] == mark) continue;
+
+            length = reserve(length);
+            latest.copyTo(slot, changes, length);
+            Arrays.fill(redoChanges, length, length + Snapshot.FIELDS, -1);
+            redoChanges[length + Snapshot.ID] = changes[length + Snapshot.ID];
+            length += Snapshot.FIELDS;
+
+            latest.remove(latest.get(slot, Snapshot.ID));
+        }
+
+        // Spawned, stepping back removes them
+        for (Entity e : spawned) {
+            length = reserve(length);
+            Arrays.fill(changes, length, length + Snapshot.FIELDS, -1);
+            changes[length + Snapshot.ID] = e.getId();
+
+            latest.put(e.getId(), nameIndex(e.getName()), e.getPoint().x, e.getPoint().y,
+                    e.getDirection().ordinal(), e.getOri(), e.getSide());
+            latest.copyTo(latest.find(e.getId()), redoChanges, length);
+            length += Snapshot.FIELDS;
+        }
+        spawned.clear();
+
+        return length;
+    }
+
+    /**
+     * MOVE TO
+     * Brings the latest save to the given turn, through the changes of a neighboring
+     *  turn or by replaying forward from the nearest keyframe
+     * @param turn Turn to move to
+     */
+    private void moveTo(int turn) {
+        if (turn == cursor) return;
+
+        int parent = timeline.get(turn).parent();
+
+        if (cursor >= 0 && timeline.get(cursor).parent() == turn) {
+            apply(timeline.get(cursor).undo());
+        }
+        else if (cursor >= 0 && parent == cursor) {
+            apply(timeline.get(turn).redo());
+        }
+        else {
+            int count = 0;
+            int keyframe = turn;
+
+            while (timeline.getKeyframe(keyframe) == null) {
+                if (count == path.length) path = Arrays.copyOf(path, count * 2);
+                path[count++] = keyframe;
+                keyframe = timeline.get(keyframe).parent();
+            }
+
+            latest.load(timeline.getKeyframe(keyframe));
+            for (int i = count - 1; i >= 0; i--) {
+                apply(timeline.get(path[i]).redo());
+            }
+        }
+
+        cursor = turn;
+    }
+    private void apply(int[] saved) {
+        for (int i = 0; i < saved.length; i += Snapshot.FIELDS) {
+            latest.put(saved, i);
+        }
+    }
+
+    /**
+     * RESTORE
+     * Brings the entities to the given turn
+     */
+    private void restore(int turn) {
+        moveTo(turn);
+        loadEntityStates();
+    }
+
+    /**
+     * LOAD ENTITY STATES
+     * Only entities that differ from the save are touched
+     * Called by restore()
+     */
+    private void loadEntityStates() {
+        nextMark();
 
-            if (s == null) {
+        for (Entity e : world.entities) {
+
+            // Killed but not yet taken off the list, brought back below if saved
+            if (!e.getAlive()) continue;
+
+            int slot = latest.find(e.getId());
+
+            if (slot < 0) {
                 e.setAlive(false);
+                world.tileGrid.remove(e);
                 continue;
             }
+            marks[slot] = mark;
+
+            if (isUnchanged(e, slot)) continue;
 
             // Entity changed forms since last redo
-            if (!e.getName().equals(s.name)) {
-                e.transform(gp.eGenerator.getEntity(s.name, s.ori, s.side));
+            if (!e.getName().equals(names.get(latest.get(slot, Snapshot.NAME)))) {
+                e.transform(world.eGenerator.getEntity(names.get(latest.get(slot, Snapshot.NAME)),
+                        latest.get(slot, Snapshot.ORI), latest.get(slot, Snapshot.SIDE)));
             }
 
-            e.setPreviousPoint(s.point);
-            e.setDirection(s.direction);
+            e.setPreviousPoint(latest.get(slot, Snapshot.X), latest.get(slot, Snapshot.Y));
+            e.setDirection(DIRECTIONS[latest.get(slot, Snapshot.DIRECTION)]);
 
-            // Entity placed on different tile, reverse to original tile
-            if (!e.getPoint().equals(e.getPreviousPoint())) {
+            // Entity placed on neighboring tile, reverse to original tile
+            Point p = e.getPoint();
+            int distance = Math.abs(p.x - e.getPreviousPoint().x) + Math.abs(p.y - e.getPreviousPoint().y);
+            if (distance == world.tileSize) {
                 e.setReversing(true);
             }
+
+            // Further away after a redo or seek, reversing only slides one tile
+            else if (distance > 0) {
+                e.setPoint(e.getPreviousPoint());
+            }
         }
 
-        for (Integer id : saved.keySet()) {
+        // Entities that died since the save come back, oldest ID first
+        int count = 0;
+        for (int slot = 0; slot < latest.size(); slot++) {
+            if (marks[slot] == mark) continue;
 
-            boolean found = false;
+            if (count == missing.length) missing = Arrays.copyOf(missing, count * 2);
+            missing[count++] = latest.get(slot, Snapshot.ID);
+        }
+        Arrays.sort(missing, 0, count);
 
-            for (Entity e : gp.entities) {
-                if (e.getId() == id) {
-                    found = true;
-                    break;
-                }
+        for (int i = 0; i < count; i++) {
+            Entity e = restoreEntity(latest.find(missing[i]));
+            if (e != null) world.addEntity(e);
+        }
+    }
+
+    /**
+     * RESTORE ENTITY
+     * Revives the removed instance with the saved ID when it is still kept,
+     *  building a new one only otherwise
+     * Called by loadEntityStates()
+     * @param slot Slot of the entity in the latest save
+     * @return Entity to add back to the world, null if the name is unknown
+     */
+    private Entity restoreEntity(int slot) {
+        int id = latest.get(slot, Snapshot.ID);
+        String name = names.get(latest.get(slot, Snapshot.NAME));
+        int ori = latest.get(slot, Snapshot.ORI);
+        int side = latest.get(slot, Snapshot.SIDE);
+
+        Point point = new Point(latest.get(slot, Snapshot.X), latest.get(slot, Snapshot.Y));
+        World.Direction direction = DIRECTIONS[latest.get(slot, Snapshot.DIRECTION)];
+
+        Entity e = retired.remove(id);
+        if (e != null && e.getName().equals(name) && e.getOri() == ori && e.getSide() == side) {
+            e.revive(point, direction);
+            return e;
+        }
+
+        e = world.eGenerator.getEntity(name, ori, side);
+        if (e == null) return null;
+
+        e.setAlive(true);
+        e.setId(id);
+
+        e.setPoint(point);
+        e.setDirection(direction);
+
+        return e;
+    }
+
+    /**
+     * RETIRE
+     * Keeps a removed entity so an undo can bring back the same instance
+     * Called by World when a dead entity leaves the entity list
+     * @param e Removed entity
+     */
+    public void retire(Entity e) {
+        if (!timeline.isEmpty()) retired.put(e.getId(), e);
+    }
+
+    /**
+     * CLEAR DATA
+     * Drops the undo history and starts a new timeline from the board
+     * Called by World when a level is set up
+     */
+    public void clearData() {
+        closeFile();
+        retired.clear();
+        timeline.clear();
+        latest.clear();
+        cursor = -1;
+        position = -1;
+        boardTurn = -1;
+
+        open();
+    }
+
+    /**
+     * DELETE TIMELINE
+     * Deletes the saved timeline that starts from the board as it is now
+     * Drops the undo history like clearData(), without reading the file first
+     * Called by World when a level is deleted
+     */
+    public void deleteTimeline() {
+        File saved = locateTimeline();
+
+        if (saved != null && saved.isFile() && !saved.delete()) {
+            System.out.println("Error deleting undo timeline: " + saved.getName());
+        }
+    }
+
+    /**
+     * LINK TIMELINE
+     * Records which saved timeline starts from the board as it is now under the level's file name,
+     *  so deleting the level finds it without reading the level again
+     * Drops the undo history like clearData()
+     * @param levelName File name of the level the board was loaded from
+     */
+    public void linkTimeline(String levelName) {
+        File saved = locateTimeline();
+        if (saved == null) return;
+
+        try {
+            if (!timelineDir.isDirectory() && !timelineDir.mkdirs()) {
+                throw new IOException("Could not create " + timelineDir);
             }
 
-            if (!found) {
+            Files.writeString(getLink(levelName).toPath(), saved.getName());
+        }
+        catch (IOException e) {
+            System.out.println("Error linking undo timeline: " + e.getMessage());
+        }
+    }
 
-                State s = saved.get(id);
-                Entity e = gp.eGenerator.getEntity(s.name, s.ori, s.side);
-                if (e == null) continue;
+    /**
+     * DELETE TIMELINE
+     * Deletes the saved timeline linked to the level's file name, and the link
+     * @param levelName File name of the level
+     */
+    public void deleteTimeline(String levelName) {
+        if (timelineDir == null) return;
 
-                e.setAlive(true);
-                e.setId(id);
+        File link = getLink(levelName);
+        if (!link.isFile()) return;
 
-                e.setPoint(s.point);
-                e.setDirection(s.direction);
+        try {
+            String name = Files.readString(link.toPath()).trim();
 
-                gp.entities.add(e);
+            // Only a timeline of the folder, whatever the link holds
+            File saved = new File(timelineDir, new File(name).getName());
+            if (name.endsWith(TimelineFile.EXTENSION) && saved.isFile() && !saved.delete()) {
+                System.out.println("Error deleting undo timeline: " + saved.getName());
             }
         }
+        catch (IOException e) {
+            System.out.println("Error deleting undo timeline: " + e.getMessage());
+        }
+
+        if (!link.delete()) {
+            System.out.println("Error deleting undo timeline link: " + link.getName());
+        }
     }
 
-    public void clearData() {
-        undoStack.clear();
+    /**
+     * LOCATE TIMELINE
+     * @return File the timeline of the board as it is now is saved in, null without a timeline folder
+     */
+    private File locateTimeline() {
+        if (timelineDir == null) return null;
+
+        File dir = timelineDir;
+        timelineDir = null;
+        clearData();
+        timelineDir = dir;
+
+        try {
+            writeStart();
+            return file.locate(timelineDir);
+        }
+        catch (IOException e) {
+            System.out.println("Error finding undo timeline: " + e.getMessage());
+            return null;
+        }
+        finally {
+            closeFile();
+        }
+    }
+    private File getLink(String levelName) {
+        return new File(timelineDir, new File(levelName).getName() + TimelineFile.LINK_EXTENSION);
+    }
+
+    /**
+     * GET UNDO COUNT
+     * @return Number of moves that can be undone
+     */
+    public int getUndoCount() {
+        return position < 0 ? 0 : timeline.getDepth(position) + 1;
+    }
+
+    /**
+     * GET TURN
+     * @return Turn the board is at or was last saved from, -1 before the first move
+     */
+    public int getTurn() {
+        return boardTurn >= 0 ? boardTurn : position;
+    }
+    public int getTurnCount() {
+        return timeline.size();
+    }
+
+    /**
+     * GET MEMORY SIZE
+     * @return Approximate bytes held by the timeline, the latest save included
+     */
+    public long getMemorySize() {
+        return timeline.isEmpty() ? 0 : timeline.getMemorySize() + latest.getMemorySize();
+    }
+
+    /**
+     * SAVE TURN
+     * Appends a new turn to the timeline file, giving spawned entities local IDs
+     * Called by addTurn()
+     */
+    private void saveTurn(int turn) {
+        if (file == null) return;
+
+        try {
+            UndoFrame frame = timeline.get(turn);
+            int fileTurn = file.getTurnCount();
+
+            file.writeTurn(fileTurns[frame.parent()], toFile(frame.redo()), frame.redo().length);
+            setFileTurn(turn, fileTurn);
+            file.flush();
+        }
+        catch (IOException e) {
+            System.out.println("Error saving undo timeline: " + e.getMessage());
+            closeFile();
+        }
+    }
+
+    private void setFileTurn(int turn, int fileTurn) {
+        if (turn >= fileTurns.length) fileTurns = Arrays.copyOf(fileTurns, Math.max(turn + 1, fileTurns.length * 2));
+        fileTurns[turn] = fileTurn;
+    }
+
+    /**
+     * TRIM
+     * Keeps the timeline under its memory budget, dropping down to half of it at once so trims stay rare
+     * The turns leading to the board are kept back to a new start, then the newest turns
+     *  played from there, the file keeps every turn
+     * Called by saveState(), loadState() and seekState()
+     */
+    private void trim() {
+        if (getMemorySize() <= maxUndoBytes) return;
+
+        int size = timeline.size();
+        long target = maxUndoBytes / 2;
+        int current = getTurn();
+
+        // Half for the turns leading to the board, the start among them holding a keyframe
+        long bytes = latest.getMemorySize() + timeline.getTurnMemorySize(current);
+        int start = current;
+        for (int parent = timeline.get(start).parent(); parent >= 0; parent = timeline.get(parent).parent()) {
+            bytes += timeline.getTurnMemorySize(parent);
+            if (bytes > target / 2) break;
+            start = parent;
+        }
+
+        boolean[] kept = new boolean[size];
+        for (int turn = current; turn != start; turn = timeline.get(turn).parent()) {
+            kept[turn] = true;
+        }
+        kept[start] = true;
+
+        // The other half for the newest turns, kept if the turn they were played from is
+        int cutoff = size;
+        while (cutoff > start + 1) {
+            if (!kept[cutoff - 1]) bytes += timeline.getTurnMemorySize(cutoff - 1);
+            if (bytes > target) break;
+            cutoff--;
+        }
+        for (int turn = cutoff; turn < size; turn++) {
+            int parent = timeline.get(turn).parent();
+            if (parent >= 0 && kept[parent]) kept[turn] = true;
+        }
+
+        moveTo(start);
+        int[] indexes = timeline.keep(kept, start, latest.toArray());
+
+        if (file != null) {
+            int[] oldFileTurns = fileTurns;
+            fileTurns = new int[Math.max(64, timeline.size())];
+            for (int turn = start; turn < size; turn++) {
+                if (indexes[turn] >= 0) fileTurns[indexes[turn]] = oldFileTurns[turn];
+            }
+        }
+
+        cursor = 0;
+        position = position < 0 ? -1 : indexes[position];
+        boardTurn = boardTurn < 0 ? -1 : indexes[boardTurn];
+    }
+
+    /**
+     * TO FILE
+     * @param saved Changes with entity IDs and name indexes of this session
+     * @return Copy of the changes with local IDs and file name indexes
+     */
+    private int[] toFile(int[] saved) {
+        int[] out = new int[saved.length];
+
+        for (int i = 0; i < saved.length; i += Snapshot.FIELDS) {
+            System.arraycopy(saved, i, out, i, Snapshot.FIELDS);
+
+            Integer local = localIds.get(saved[i + Snapshot.ID]);
+            if (local == null) {
+                local = localIds.size();
+                localIds.put(saved[i + Snapshot.ID], local);
+            }
+            out[i + Snapshot.ID] = local;
+
+            if (saved[i + Snapshot.NAME] >= 0) {
+                out[i + Snapshot.NAME] = file.nameIndex(names.get(saved[i + Snapshot.NAME]));
+            }
+        }
+
+        return out;
+    }
+
+    private void closeFile() {
+        if (file == null) return;
+
+        try {
+            file.close();
+        }
+        catch (IOException e) {
+            System.out.println("Error closing undo timeline: " + e.getMessage());
+        }
+        file = null;
+        localIds.clear();
+    }
+
+    /**
+     * MATCHES BOARD
+     * @return True if every entity on the board has the values in the latest save
+     */
+    private boolean matchesBoard() {
+        int count = 0;
+
+        for (Entity e : world.entities) {
+            if (!e.getAlive()) continue;
+
+            int slot = latest.find(e.getId());
+            if (slot < 0 || !isUnchanged(e, slot)) return false;
+            count++;
+        }
+        return count == latest.size();
+    }
+
+    /**
+     * IS UNCHANGED
+     * @return True if the entity still has the values saved in the slot
+     */
+    private boolean isUnchanged(Entity e, int slot) {
+        Point p = e.getPoint();
+
+        return p.x == latest.get(slot, Snapshot.X) &&
+                p.y == latest.get(slot, Snapshot.Y) &&
+                e.getDirection().ordinal() == latest.get(slot, Snapshot.DIRECTION) &&
+                e.getOri() == latest.get(slot, Snapshot.ORI) &&
+                e.getSide() == latest.get(slot, Snapshot.SIDE) &&
+                e.getName().equals(names.get(latest.get(slot, Snapshot.NAME)));
+    }
+
+    private int nameIndex(String name) {
+        Integer index = nameIndexes.get(name);
+
+        if (index == null) {
+            index = names.size();
+            names.add(name);
+            nameIndexes.put(name, index);
+        }
+
+        return index;
+    }
+
+    private int reserve(int length) {
+        if (length + Snapshot.FIELDS > changes.length) {
+            changes = Arrays.copyOf(changes, changes.length * 2);
+            redoChanges = Arrays.copyOf(redoChanges, changes.length);
+        }
+        return length;
+    }
+
+    private void nextMark() {
+        if (marks.length < latest.size()) {
+            marks = new int[Math.max(latest.size(), marks.length * 2)];
+            mark = 0;
+        }
+        mark++;
     }
 }
@@ -0,0 +1,239 @@
+package state;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Every turn played on a level, each stored as the changes from the turn it was played from
+ * Turns are only appended: an undo keeps the turns it steps back over for a redo,
+ *  and a move made after an undo starts a new branch beside them
+ * A full keyframe is kept once replaying the changes since the last one would cost
+ *  more than copying a keyframe, so reaching any turn loads one keyframe and
+ *  replays a bounded number of turns
+ * Past its memory budget StateHandler keeps only the newest turns, see keep()
+ */
+class Timeline {
+
+    // Turns replayed after a keyframe at most
+    private static final int MAX_REPLAY_TURNS = 256;
+
+    /* FIELDS PER TURN */
+    private static final int DEPTH = 0;
+    private static final int REPLAY_INTS = 1;
+    private static final int REPLAY_TURNS = 2;
+    private static final int REDO = 3;
+    private static final int FIRST_CHILD = 4;
+    private static final int NEXT_SIBLING = 5;
+    private static final int FIELDS = 6;
+
+    private static final int[] NONE = new int[0];
+
+    private final List<UndoFrame> turns = new ArrayList<>();
+
+    // Full entity states, null for turns reached by replaying
+    private final List<int[]> keyframes = new ArrayList<>();
+
+    // Links and replay costs, FIELDS ints per turn
+    private int[] data = new int[FIELDS * 64];
+
+    private long memorySize = 0;
+
+    int size() {
+        return turns.size();
+    }
+    boolean isEmpty() {
+        return turns.isEmpty();
+    }
+    UndoFrame get(int turn) {
+        return turns.get(turn);
+    }
+    int[] getKeyframe(int turn) {
+        return keyframes.get(turn);
+    }
+    int getDepth(int turn) {
+        return data[turn * FIELDS + DEPTH];
+    }
+
+    /**
+     * GET REDO
+     * @param turn Turn the board is at
+     * @return Turn a redo goes to, the branch played or visited last, -1 if none
+     */
+    int getRedo(int turn) {
+        return data[turn * FIELDS + REDO];
+    }
+
+    /**
+     * START
+     * Empties the timeline and adds the start of the level as turn 0
+     * @param keyframe Entity states at the start, Snapshot.FIELDS ints per entity
+     */
+    void start(int[] keyframe) {
+        clear();
+
+        turns.add(new UndoFrame(-1, NONE, NONE));
+        keyframes.add(keyframe);
+        link(0, -1, 0, 0, 0);
+
+        memorySize += 4L * keyframe.length;
+    }
+
+    /**
+     * ADD
+     * Appends a turn and makes it the one a redo from its parent goes to
+     * @param frame Changes of the turn
+     * @param state Entity states at the new turn, copied if a keyframe is due
+     * @return Index of the turn
+     */
+    int add(UndoFrame frame, Snapshot state) {
+        int turn = turns.size();
+        int parent = frame.parent();
+
+        int replayInts = data[parent * FIELDS + REPLAY_INTS] + frame.redo().length;
+        int replayTurns = data[parent * FIELDS + REPLAY_TURNS] + 1;
+
+        int[] keyframe = null;
+        if (replayInts > state.size() * Snapshot.FIELDS || replayTurns > MAX_REPLAY_TURNS) {
+            keyframe = state.toArray();
+            replayInts = 0;
+            replayTurns = 0;
+            memorySize += 4L * keyframe.length;
+        }
+
+        turns.add(frame);
+        keyframes.add(keyframe);
+        link(turn, parent, data[parent * FIELDS + DEPTH] + 1, replayInts, replayTurns);
+
+        memorySize += frame.getMemorySize();
+        return turn;
+    }
+
+    /**
+     * FIND CHILD
+     * Used to follow a turn already played instead of storing it twice
+     * @param parent Turn played from
+     * @param redo Changes of the new turn
+     * @return Existing turn with the same changes, -1 if none
+     */
+    int findChild(int parent, int[] redo) {
+        for (int child = data[parent * FIELDS + FIRST_CHILD]; child >= 0; child = data[child * FIELDS + NEXT_SIBLING]) {
+            if (Arrays.equals(turns.get(child).redo(), redo)) return child;
+        }
+        return -1;
+    }
+
+    /**
+     * SELECT
+     * Points redo along the turns leading to the given one, so the branch
+     *  it is on becomes the one redo follows
+     * @param turn Turn to select
+     */
+    void select(int turn) {
+        for (int parent = turns.get(turn).parent(); parent >= 0; parent = turns.get(turn).parent()) {
+            data[parent * FIELDS + REDO] = turn;
+            turn = parent;
+        }
+    }
+
+    /**
+     * KEEP
+     * Drops every turn not kept, numbering the kept ones again in the order they were played
+     * The start given becomes turn 0, holding its full entity states
+     * @param kept Turns kept, a kept turn's parent is kept too unless the turn is the new start
+     * @param start Turn that becomes the start of the timeline
+     * @param keyframe Entity states at that turn
+     * @return New index of each old turn, -1 for turns dropped
+     */
+    int[] keep(boolean[] kept, int start, int[] keyframe) {
+        int size = turns.size();
+        int[] indexes = new int[size];
+        Arrays.fill(indexes, -1);
+
+        List<UndoFrame> oldTurns = new ArrayList<>(turns);
+        List<int[]> oldKeyframes = new ArrayList<>(keyframes);
+        int[] oldData = data;
+        int startDepth = oldData[start * FIELDS + DEPTH];
+
+        turns.clear();
+        keyframes.clear();
+        data = new int[FIELDS * Math.max(64, size - start)];
+        memorySize = 0;
+
+        // Parents come before their turns, so every kept turn follows the start
+        for (int turn = start; turn < size; turn++) {
+            if (!kept[turn]) continue;
+
+            int index = turns.size();
+            indexes[turn] = index;
+            int base = turn * FIELDS;
+
+            if (turn == start) {
+                turns.add(new UndoFrame(-1, NONE, NONE));
+                keyframes.add(keyframe);
+                link(index, -1, 0, 0, 0);
+            }
+            else {
+                UndoFrame frame = oldTurns.get(turn);
+                turns.add(new UndoFrame(indexes[frame.parent()], frame.undo(), frame.redo()));
+                keyframes.add(oldKeyframes.get(turn));
+                link(index, indexes[frame.parent()], oldData[base + DEPTH] - startDepth,
+                        oldData[base + REPLAY_INTS], oldData[base + REPLAY_TURNS]);
+            }
+
+            memorySize += getTurnMemorySize(index);
+        }
+
+        // Redo keeps following the branch it did, where that branch is kept
+        for (int turn = start; turn < size; turn++) {
+            int redo = oldData[turn * FIELDS + REDO];
+            if (indexes[turn] >= 0 && redo >= 0 && indexes[redo] >= 0) {
+                data[indexes[turn] * FIELDS + REDO] = indexes[redo];
+            }
+        }
+
+        return indexes;
+    }
+
+    /**
+     * GET TURN MEMORY SIZE
+     * @param turn Turn on the timeline
+     * @return Approximate bytes held by the turn's changes and keyframe
+     */
+    long getTurnMemorySize(int turn) {
+        int[] keyframe = keyframes.get(turn);
+        return turns.get(turn).getMemorySize() + (keyframe == null ? 0 : 4L * keyframe.length);
+    }
+
+    void clear() {
+        turns.clear();
+        keyframes.clear();
+        memorySize = 0;
+    }
+
+    /**
+     * GET MEMORY SIZE
+     * @return Approximate bytes held by the turns and keyframes
+     */
+    long getMemorySize() {
+        return memorySize + 4L * data.length + 8L * turns.size();
+    }
+
+    private void link(int turn, int parent, int depth, int replayInts, int replayTurns) {
+        if ((turn + 1) * FIELDS > data.length) data = Arrays.copyOf(data, data.length * 2);
+
+        int base = turn * FIELDS;
+        data[base + DEPTH] = depth;
+        data[base + REPLAY_INTS] = replayInts;
+        data[base + REPLAY_TURNS] = replayTurns;
+        data[base + REDO] = -1;
+        data[base + FIRST_CHILD] = -1;
+        data[base + NEXT_SIBLING] = -1;
+
+        if (parent < 0) return;
+
+        data[base + NEXT_SIBLING] = data[parent * FIELDS + FIRST_CHILD];
+        data[parent * FIELDS + FIRST_CHILD] = turn;
+        data[parent * FIELDS + REDO] = turn;
+    }
+}
@@ -0,0 +1,464 @@
+package state;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Undo timeline of a level kept on disk, appended to as turns are played
+ * Binary layout (version 1), all integers are varints, signed ones zigzagged
+ *  magic "BTLN", version
+ *  then records to the end of the file, each starting with its type
+ *   NAME: UTF-8 length and bytes of the next entity name
+ *   TURN: parent + 1, count, then per entity its local ID and name index + 1,
+ *    followed by x, y, direction, ori and side unless the name is 0 (entity removed)
+ * The first TURN places every entity at the start of the level, each later one
+ *  holds the changes that step its parent forward
+ * Local IDs number the starting entities in board order, then spawned entities
+ *  as they first appear, as entity IDs change each time a level is built
+ * Files are named by a hash of everything up to the end of the first TURN, so
+ *  the timeline is found again from the starting board alone
+ * A file stops growing at its size cap, later turns are kept in memory only, and the
+ *  timelines of the levels opened longest ago are deleted once the folder passes its cap
+ * Replays store the bytes a timeline was opened with, read() plays them back without a folder
+ */
+class TimelineFile implements Closeable {
+
+    /**
+     * One stored turn
+     * @param parent Turn it was played from
+     * @param changes Snapshot.FIELDS ints per entity, with local IDs and file name indexes
+     */
+    record Turn(int parent, int[] changes) {}
+
+    private static final byte[] MAGIC = {'B', 'T', 'L', 'N'};
+    private static final int VERSION = 1;
+    static final String EXTENSION = ".tl";
+
+    // Names the timeline of a level file, see StateHandler.linkTimeline()
+    static final String LINK_EXTENSION = ".link";
+
+    /* RECORD TYPES */
+    private static final int NAME = 1;
+    private static final int TURN = 2;
+
+    /* LIMITS (reject corrupt records before allocating) */
+    private static final int MAX_ENTRIES = 1 << 20;
+    private static final int MAX_STRING_BYTES = 1 << 12;
+
+    /* DISK LIMITS */
+    static final long MAX_FILE_BYTES = 8L << 20;
+    static final long MAX_DIR_BYTES = 64L << 20;
+
+    private final long maxFileBytes;
+    private final long maxDirBytes;
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIndexes = new HashMap<>();
+    private int turnCount = 0;
+    private int localIdCount = 0;
+
+    // Records not yet handed to the file
+    private byte[] buffer = new byte[256];
+    private int position = 0;
+
+    // Null until open()
+    private OutputStream out;
+    private File file;
+
+    // Bytes in the file, appends stop once the next flush would pass maxFileBytes
+    private long length = 0;
+    private boolean full = false;
+
+    // Start and turns as they were when opened
+    private byte[] stored;
+
+    /* READING */
+    private byte[] data;
+    private int readPosition;
+
+    /**
+     * CONSTRUCTOR
+     * Starts the header, the caller adds the first turn before opening
+     */
+    TimelineFile() {
+        this(MAX_FILE_BYTES, MAX_DIR_BYTES);
+    }
+
+    /**
+     * CONSTRUCTOR
+     * @param maxFileBytes Size a file stops growing at
+     * @param maxDirBytes Size the folder is trimmed back to when a file is opened
+     */
+    TimelineFile(long maxFileBytes, long maxDirBytes) {
+        this.maxFileBytes = maxFileBytes;
+        this.maxDirBytes = maxDirBytes;
+
+        for (byte b : MAGIC) writeByte(b);
+        writeVarInt(VERSION);
+    }
+
+    /**
+     * NAME INDEX
+     * Adds a NAME record the first time a name is used
+     * @param name Entity name
+     * @return Index of the name in the file
+     */
+    int nameIndex(String name) {
+        Integer index = nameIndexes.get(name);
+
+        if (index == null) {
+            index = names.size();
+            names.add(name);
+            nameIndexes.put(name, index);
+
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(NAME);
+            writeVarInt(bytes.length);
+            for (byte b : bytes) writeByte(b);
+        }
+
+        return index;
+    }
+    String getName(int index) {
+        return names.get(index);
+    }
+
+    /**
+     * GET LOCAL ID COUNT
+     * @return Local IDs used so far, the next new entity gets this one
+     */
+    int getLocalIdCount() {
+        return localIdCount;
+    }
+
+    /**
+     * GET TURN COUNT
+     * @return Turns in the file, the start included, the next turn written gets this index
+     */
+    int getTurnCount() {
+        return turnCount;
+    }
+
+    /**
+     * WRITE TURN
+     * Adds a TURN record, names must already have their NAME records
+     * @param parent Turn played from, -1 for the start of the level
+     * @param changes Snapshot.FIELDS ints per entity, with local IDs and file name indexes
+     * @param length Ints used in the array
+     */
+    void writeTurn(int parent, int[] changes, int length) {
+        writeVarInt(TURN);
+        writeVarInt(parent + 1);
+        writeVarInt(length / Snapshot.FIELDS);
+
+        for (int i = 0; i < length; i += Snapshot.FIELDS) {
+            int id = changes[i + Snapshot.ID];
+            int name = changes[i + Snapshot.NAME];
+
+            localIdCount = Math.max(localIdCount, id + 1);
+
+            writeVarInt(id);
+            writeVarInt(name + 1);
+            if (name < 0) continue;
+
+            writeSignedVarInt(changes[i + Snapshot.X]);
+            writeSignedVarInt(changes[i + Snapshot.Y]);
+            writeVarInt(changes[i + Snapshot.DIRECTION]);
+            writeSignedVarInt(changes[i + Snapshot.ORI]);
+            writeSignedVarInt(changes[i + Snapshot.SIDE]);
+        }
+
+        turnCount++;
+    }
+
+    /**
+     * LOCATE
+     * Only valid before open(), while the level start is all that is written
+     * @param dir Folder timelines are kept in
+     * @return File the timeline of the level start written so far is kept in
+     */
+    File locate(File dir) {
+        return new File(dir, hash(Arrays.copyOf(buffer, position)) + EXTENSION);
+    }
+
+    /**
+     * OPEN
+     * Finds the file for the level start written so far and reads the turns stored after it,
+     *  or creates the file if there is none
+     * A damaged or half written end, as left by a crash, is cut off
+     * @param dir Folder timelines are kept in
+     * @return Turns after the start, in the order they were played
+     */
+    List<Turn> open(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+
+        byte[] start = Arrays.copyOf(buffer, position);
+        file = locate(dir);
+
+        List<Turn> turns = new ArrayList<>();
+
+        if (file.isFile()) {
+            data = Files.readAllBytes(file.toPath());
+
+            if (data.length >= start.length && Arrays.equals(data, 0, start.length, start, 0, start.length)) {
+                int end = readTurns(start.length, turns);
+
+                if (end < data.length) {
+                    System.out.println("Dropping damaged end of undo timeline " + file.getName());
+                    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                        raf.setLength(end);
+                    }
+                }
+
+                // Start already stored
+                stored = Arrays.copyOf(data, end);
+                length = end;
+                position = 0;
+            }
+            data = null;
+        }
+        if (stored == null) stored = start;
+
+        out = new FileOutputStream(file, position == 0);
+        flush();
+
+        // Opened now, so it is the last timeline trimmed
+        if (!file.setLastModified(System.currentTimeMillis())) {
+            System.out.println("Error touching undo timeline " + file.getName());
+        }
+        trim(dir);
+
+        return turns;
+    }
+
+    /**
+     * READ
+     * Reads the turns of a timeline held in memory, as a replay stores it, instead of opening its file
+     * Nothing is written, later turns are kept in memory only
+     * @param stored Start and turns, as returned by getStored()
+     * @return Turns after the start, in the order they were played
+     */
+    List<Turn> read(byte[] stored) throws IOException {
+        byte[] start = Arrays.copyOf(buffer, position);
+        if (stored.length < start.length || !Arrays.equals(stored, 0, start.length, start, 0, start.length)) {
+            throw new IOException("Stored timeline does not start from this board");
+        }
+
+        List<Turn> turns = new ArrayList<>();
+        data = stored;
+        int end = readTurns(start.length, turns);
+        data = null;
+
+        this.stored = Arrays.copyOf(stored, end);
+        full = true;
+        position = 0;
+
+        return turns;
+    }
+
+    /**
+     * GET STORED
+     * @return Start and turns the timeline held when it was opened, null before
+     */
+    byte[] getStored() {
+        return stored;
+    }
+
+    /**
+     * FLUSH
+     * Hands the records written since the last flush to the file
+     * Once the file is full the records are dropped, the turns stay in memory
+     */
+    void flush() throws IOException {
+        if (position == 0) return;
+
+        if (full) {
+            position = 0;
+            return;
+        }
+        if (out == null) return;
+
+        if (length + position > maxFileBytes) {
+            System.out.println("Undo timeline " + file.getName() + " is full, later turns are not saved");
+            full = true;
+            position = 0;
+            return;
+        }
+
+        out.write(buffer, 0, position);
+        out.flush();
+        length += position;
+        position = 0;
+    }
+
+    /**
+     * TRIM
+     * Deletes the timelines opened longest ago until the folder is back under its cap
+     * Called by open()
+     * @param dir Folder timelines are kept in
+     */
+    private void trim(File dir) {
+        File[] files = dir.listFiles((folder, name) -> name.endsWith(EXTENSION));
+        if (files == null) return;
+
+        long total = 0;
+        for (File f : files) total += f.length();
+        if (total <= maxDirBytes) return;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File f : files) {
+            if (total <= maxDirBytes) break;
+            if (f.equals(file)) continue;
+
+            long size = f.length();
+            if (f.delete()) {
+                total -= size;
+            }
+            else {
+                System.out.println("Error deleting undo timeline " + f.getName());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out == null) return;
+
+        try {
+            flush();
+        }
+        finally {
+            out.close();
+            out = null;
+        }
+    }
+
+    /**
+     * READ TURNS
+     * @param offset Where the records after the start begin
+     * @param turns List the turns are added to
+     * @return End of the last whole record
+     */
+    private int readTurns(int offset, List<Turn> turns) {
+        readPosition = offset;
+        int end = offset;
+
+        try {
+            while (readPosition < data.length) {
+                switch (readVarInt()) {
+                    case NAME -> {
+                        int length = readCount(MAX_STRING_BYTES);
+                        if (readPosition + length > data.length) throw new EOFException();
+
+                        String name = new String(data, readPosition, length, StandardCharsets.UTF_8);
+                        readPosition += length;
+
+                        nameIndexes.put(name, names.size());
+                        names.add(name);
+                    }
+                    case TURN -> turns.add(readTurn());
+                    default -> throw new IOException("unknown record");
+                }
+                end = readPosition;
+            }
+        }
+        catch (IOException e) {
+            // Everything after the last whole record is dropped
+        }
+
+        return end;
+    }
+    private Turn readTurn() throws IOException {
+        int parent = readVarInt() - 1;
+        if (parent < 0 || parent >= turnCount) throw new IOException("parent " + parent);
+
+        int count = readCount(MAX_ENTRIES);
+
+        // Every entry takes two bytes or more, a larger count is a cut off record
+        if (count * 2L > data.length - readPosition) throw new EOFException();
+
+        int[] changes = new int[count * Snapshot.FIELDS];
+        int localIds = localIdCount;
+
+        for (int i = 0; i < changes.length; i += Snapshot.FIELDS) {
+            Arrays.fill(changes, i, i + Snapshot.FIELDS, -1);
+
+            // Local IDs are handed out in order, so a new one is always the next
+            int id = readVarInt();
+            if (id > localIds) throw new IOException("local ID " + id);
+            if (id == localIds) localIds++;
+            changes[i + Snapshot.ID] = id;
+
+            int name = readVarInt() - 1;
+            if (name >= names.size()) throw new IOException("name " + name);
+            if (name < 0) continue;
+
+            changes[i + Snapshot.NAME] = name;
+            changes[i + Snapshot.X] = readSignedVarInt();
+            changes[i + Snapshot.Y] = readSignedVarInt();
+            changes[i + Snapshot.DIRECTION] = readVarInt();
+            changes[i + Snapshot.ORI] = readSignedVarInt();
+            changes[i + Snapshot.SIDE] = readSignedVarInt();
+        }
+
+        turnCount++;
+        localIdCount = localIds;
+        return new Turn(parent, changes);
+    }
+
+    private int readCount(int max) throws IOException {
+        int count = readVarInt();
+        if (count < 0 || count > max) throw new IOException("count " + count);
+        return count;
+    }
+    private int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+    private int readVarInt() throws IOException {
+        int value = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (readPosition >= data.length) throw new EOFException();
+
+            int b = data[readPosition++] & 0xFF;
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) return value;
+        }
+
+        throw new IOException("varint too long");
+    }
+
+    private void writeSignedVarInt(int value) {
+        // Zigzag so -1 fillers stay one byte
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+    private void writeByte(int b) {
+        if (position == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        buffer[position++] = (byte) b;
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,6 +1,20 @@
 package state;
 
-import java.util.HashMap;
-
-public record UndoFrame(HashMap<Integer, State> entities) {}
+/**
+ * One turn of the undo timeline, stored as the entities that changed
+ * Changes hold Snapshot.FIELDS ints per entity, a name of -1 marks an entity
+ *  that does not exist on that side of the turn
+ * @param parent Turn this one was played from, -1 for the start of the level
+ * @param undo Saved values that step the turn back to its parent
+ * @param redo Saved values that step the parent forward to the turn
+ */
+public record UndoFrame(int parent, int[] undo, int[] redo) {
 
+    /**
+     * GET MEMORY SIZE
+     * @return Approximate bytes held by the frame, object headers included
+     */
+    public long getMemorySize() {
+        return 56 + 4L * (undo.length + redo.length);
+    }
+}
@@ -0,0 +1,163 @@
+package application;
+
+import entity.Entity;
+import entity.WordEntity;
+import org.junit.jupiter.api.Test;
+import rules.Properties;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares every tile grid query with a scan of the whole entity list by point,
+ *  the way rules checked their conditions before the grid, on random boards with
+ *  stacked entities, dead entities not yet swept and entities between tiles
+ */
+class NeighborQueryTest {
+
+    /* BOARD */
+    private static final int TILE_SIZE = 48;
+    private static final int MAX_COL = 10;
+    private static final int MAX_ROW = 8;
+    private static final int ENTITIES = 60;
+    private static final int BOARDS = 300;
+
+    private static final String[] NAMES = { "BABA", "ROCK", "KEKE", "WORD_IS" };
+    private static final String[] TARGETS = { "BABA", "ROCK", "KEKE" };
+
+    @Test
+    void alignedBoards() {
+        for (int seed = 0; seed < BOARDS; seed++) {
+            check(build(seed, false, false), seed);
+        }
+    }
+
+    @Test
+    void boardsWithDeadEntities() {
+        for (int seed = 0; seed < BOARDS; seed++) {
+            check(build(seed, true, false), seed);
+        }
+    }
+
+    @Test
+    void boardsWithDeadAndMovingEntities() {
+        for (int seed = 0; seed < BOARDS; seed++) {
+            check(build(seed, true, true), seed);
+        }
+    }
+
+    private static void check(World world, int seed) {
+        for (Entity self : world.entities) {
+            for (String name : TARGETS) {
+                String at = "board " + seed + " " + self.getName() + "@" + self.getPoint().x + "," + self.getPoint().y
+                        + " " + self.getDirection() + " " + name;
+
+                assertEquals(scan(world, self, name, "ON"), world.neighbors.isOn(self, name), "ON " + at);
+                assertEquals(scan(world, self, name, "NEAR"), world.neighbors.isNear(self, name), "NEAR " + at);
+                assertEquals(scan(world, self, name, "NEXT"), world.neighbors.isNext(self, name), "NEXT " + at);
+                assertEquals(scan(world, self, name, "FACING"), world.neighbors.isFacing(self, name), "FACING " + at);
+                assertEquals(scan(world, self, name, "SEEING"), world.neighbors.isSeeing(self, name), "SEEING " + at);
+            }
+        }
+    }
+
+    /**
+     * BUILD
+     * Random names, tiles, directions and STOP/PUSH, the same for the same seed
+     * @param dead Kill a few entities without sweeping them
+     * @param moving Move a few entities between tiles
+     */
+    private static World build(long seed, boolean dead, boolean moving) {
+        World world = new World(TILE_SIZE, MAX_COL, MAX_ROW);
+        Random random = new Random(seed);
+
+        for (int i = 0; i < ENTITIES; i++) {
+            Entity e = world.eGenerator.getEntity(NAMES[random.nextInt(NAMES.length)], -1, -1);
+
+            e.setPoint(random.nextInt(MAX_COL) * TILE_SIZE, random.nextInt(MAX_ROW) * TILE_SIZE);
+            e.setDirection(World.Direction.values()[random.nextInt(World.Direction.values().length)]);
+            if (random.nextInt(5) == 0) e.addProperty(Properties.STOP);
+            if (random.nextInt(5) == 0) e.addProperty(Properties.PUSH);
+
+            world.addEntity(e);
+        }
+
+        if (dead || moving) {
+            for (Entity e : world.entities) {
+                switch (random.nextInt(10)) {
+                    case 0 -> {
+                        if (dead) e.kill();
+                    }
+                    case 1 -> {
+                        if (moving) {
+                            e.setPoint(e.getPoint().x + TILE_SIZE / 2, e.getPoint().y);
+                            world.tileGrid.update(e);
+                        }
+                    }
+                    default -> {}
+                }
+            }
+        }
+
+        return world;
+    }
+
+    /**
+     * SCAN
+     * A condition checked against every other entity with the name by point
+     */
+    private static boolean scan(World world, Entity self, String name, String preposition) {
+        for (Entity t : world.entities) {
+            if (t == self || !t.getName().equals(name)) continue;
+
+            int dx = Math.abs(t.getPoint().x - self.getPoint().x);
+            int dy = Math.abs(t.getPoint().y - self.getPoint().y);
+
+            boolean met = switch (preposition) {
+                case "ON" -> dx == 0 && dy == 0;
+                case "NEAR" -> dx <= TILE_SIZE && dy <= TILE_SIZE && !(dx == 0 && dy == 0);
+                case "NEXT" -> (dx == TILE_SIZE && dy == 0) || (dy == TILE_SIZE && dx == 0);
+                case "FACING" -> t.getPoint().x == self.getPoint().x + stepX(self) && t.getPoint().y == self.getPoint().y + stepY(self);
+                default -> seeing(world, self, name);
+            };
+            if (met) return true;
+        }
+
+        return false;
+    }
+
+    private static boolean seeing(World world, Entity self, String name) {
+        int x = self.getPoint().x + stepX(self);
+        int y = self.getPoint().y + stepY(self);
+
+        while (!world.cChecker.isOutOfBounds(x, y)) {
+            for (Entity e : world.entities) {
+                if (e.getPoint().x != x || e.getPoint().y != y) continue;
+
+                if (e.has(Properties.STOP) || e.has(Properties.PUSH) || e instanceof WordEntity) return false;
+                if (e.getName().equals(name)) return true;
+            }
+
+            x += stepX(self);
+            y += stepY(self);
+        }
+
+        return false;
+    }
+
+    private static int stepX(Entity e) {
+        return switch (e.getDirection()) {
+            case LEFT -> -TILE_SIZE;
+            case RIGHT -> TILE_SIZE;
+            default -> 0;
+        };
+    }
+    private static int stepY(Entity e) {
+        return switch (e.getDirection()) {
+            case UP -> -TILE_SIZE;
+            case DOWN -> TILE_SIZE;
+            default -> 0;
+        };
+    }
+}
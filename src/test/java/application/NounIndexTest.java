@@ -0,0 +1,68 @@
+package application;
+
+import entity.Entity;
+import entity.WordEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the entities the index hands to rules with a filter of the world entity list,
+ *  whose order rules are applied in, as entities are added, removed and brought back
+ */
+class NounIndexTest {
+
+    private static final int TILE_SIZE = 48;
+    private static final int STEPS = 2000;
+
+    private static final String[] NAMES = { "BABA", "ROCK", "WORD_BABA", "WORD_IS" };
+
+    @Test
+    void keepsEntityListOrder() {
+        World world = new World(TILE_SIZE, 10, 8);
+        Random random = new Random(0);
+        List<Entity> removed = new ArrayList<>();
+
+        for (int step = 0; step < STEPS; step++) {
+            switch (random.nextInt(3)) {
+                case 0 -> world.addEntity(world.eGenerator.getEntity(NAMES[random.nextInt(NAMES.length)], -1, -1));
+                case 1 -> {
+                    if (world.entities.isEmpty()) continue;
+
+                    Entity e = world.entities.get(random.nextInt(world.entities.size()));
+                    world.removeEntity(e);
+                    removed.add(e);
+                }
+                default -> {
+                    if (removed.isEmpty()) continue;
+
+                    // Brought back by an undo, it joins the end of the list again
+                    world.addEntity(removed.remove(random.nextInt(removed.size())));
+                }
+            }
+
+            if (step % 10 == 0) check(world, step);
+        }
+        check(world, STEPS);
+    }
+
+    private static void check(World world, int step) {
+        for (String name : NAMES) {
+            List<Entity> named = new ArrayList<>();
+            for (Entity e : world.entities) {
+                if (e.getName().equals(name)) named.add(e);
+            }
+            assertEquals(named, world.nounIndex.getSubjects(name), name + " at step " + step);
+        }
+
+        List<Entity> words = new ArrayList<>();
+        for (Entity e : world.entities) {
+            if (e instanceof WordEntity) words.add(e);
+        }
+        assertEquals(words, world.nounIndex.getSubjects(NounIndex.TEXT), "TEXT at step " + step);
+    }
+}
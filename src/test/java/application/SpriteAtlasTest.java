@@ -0,0 +1,23 @@
+package application;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Worlds of different tile sizes share an atlas only with worlds of their own size
+ */
+class SpriteAtlasTest {
+
+    @Test
+    void oneAtlasPerTileSize() {
+        SpriteAtlas large = SpriteAtlas.getInstance(48);
+        SpriteAtlas small = SpriteAtlas.getInstance(24);
+
+        assertSame(large, SpriteAtlas.getInstance(48));
+        assertNotSame(large, small);
+
+        assertEquals(48, large.getSprite("/objects/rock").getWidth());
+        assertEquals(24, small.getSprite("/objects/rock").getWidth());
+    }
+}
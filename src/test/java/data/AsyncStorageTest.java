@@ -0,0 +1,126 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Storage calls against a bucket that takes a while to answer
+ */
+class AsyncStorageTest {
+
+    private static final String PATH = "levels/user/level.dat";
+
+    @Test
+    void callsPastTheQueueAreRefused() throws Exception {
+        MemoryBucket bucket = new MemoryBucket();
+        bucket.write(PATH, new byte[] { 1, 2, 3 });
+        bucket.setLatency(200);
+
+        AsyncStorage storage = new AsyncStorage(() -> { });
+
+        // Every thread busy and every queue slot taken, then three more
+        List<AsyncStorage.Task<LevelBucket.Stored>> tasks = new ArrayList<>();
+        for (int i = 0; i < AsyncStorage.THREADS + AsyncStorage.MAX_QUEUED + 3; i++) {
+            tasks.add(storage.submit("Reading level", progress -> bucket.read(PATH)));
+        }
+
+        // Refused at once, without waiting for the bucket
+        for (AsyncStorage.Task<LevelBucket.Stored> task : tasks.subList(AsyncStorage.THREADS + AsyncStorage.MAX_QUEUED, tasks.size())) {
+            assertTrue(task.isDone());
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> task.getFuture().get());
+            assertInstanceOf(IOException.class, e.getCause());
+        }
+
+        for (AsyncStorage.Task<LevelBucket.Stored> task : tasks.subList(0, AsyncStorage.THREADS + AsyncStorage.MAX_QUEUED)) {
+            assertArrayEquals(new byte[] { 1, 2, 3 }, task.getFuture().get(10, TimeUnit.SECONDS).data());
+        }
+    }
+
+    @Test
+    void cancelDropsQueuedCallsAndFreesRunningOnes() throws Exception {
+        MemoryBucket bucket = new MemoryBucket();
+        bucket.write(PATH, new byte[] { 1 });
+        bucket.setLatency(5000);
+
+        AsyncStorage storage = new AsyncStorage(() -> { });
+        AtomicInteger started = new AtomicInteger();
+
+        AsyncStorage.Task<LevelBucket.Stored> running = storage.submit("Reading level", progress -> {
+            started.incrementAndGet();
+            return bucket.read(PATH);
+        });
+        storage.submit("Reading level", progress -> {
+            started.incrementAndGet();
+            return bucket.read(PATH);
+        });
+        AsyncStorage.Task<LevelBucket.Stored> queued = storage.submit("Reading level", progress -> {
+            started.incrementAndGet();
+            return bucket.read(PATH);
+        });
+
+        // Both threads inside the slow bucket
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (started.get() < AsyncStorage.THREADS && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        queued.cancel();
+        running.cancel();
+
+        assertTrue(running.getFuture().isCancelled());
+        assertNull(running.getResult());
+        assertTrue(queued.getFuture().isCancelled());
+
+        // The interrupted thread takes the next call long before the slow read would have ended
+        bucket.setLatency(0);
+        AsyncStorage.Task<LevelBucket.Stored> next = storage.submit("Reading level", progress -> {
+            started.incrementAndGet();
+            return bucket.read(PATH);
+        });
+        assertNotNull(next.getFuture().get(2, TimeUnit.SECONDS));
+
+        // The cancelled call never reached the bucket
+        assertEquals(AsyncStorage.THREADS + 1, started.get());
+    }
+
+    @Test
+    void computationsLeaveStorageThreadsFree() throws Exception {
+        MemoryBucket bucket = new MemoryBucket();
+        bucket.write(PATH, new byte[] { 1 });
+
+        AsyncStorage storage = new AsyncStorage(() -> { });
+        CountDownLatch release = new CountDownLatch(1);
+
+        // A long solve on the compute thread, and one waiting behind it
+        AsyncStorage.Task<Boolean> solving = storage.compute("Solving level", progress -> release.await(10, TimeUnit.SECONDS));
+        AsyncStorage.Task<Boolean> waiting = storage.compute("Solving level", progress -> true);
+
+        // Every storage thread still answers at once
+        List<AsyncStorage.Task<LevelBucket.Stored>> reads = new ArrayList<>();
+        for (int i = 0; i < AsyncStorage.THREADS; i++) {
+            reads.add(storage.submit("Reading level", progress -> bucket.read(PATH)));
+        }
+        for (AsyncStorage.Task<LevelBucket.Stored> read : reads) {
+            assertNotNull(read.getFuture().get(2, TimeUnit.SECONDS));
+        }
+
+        // Computations past the queue are refused
+        AsyncStorage.Task<Boolean> refused = storage.compute("Solving level", progress -> true);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> refused.getFuture().get());
+        assertInstanceOf(IOException.class, e.getCause());
+
+        assertFalse(solving.isDone());
+        release.countDown();
+        assertTrue(solving.getFuture().get(2, TimeUnit.SECONDS));
+        assertTrue(waiting.getFuture().get(2, TimeUnit.SECONDS));
+    }
+}
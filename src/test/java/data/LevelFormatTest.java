@@ -0,0 +1,59 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Levels with names at and just past the longest string the reader accepts
+ */
+class LevelFormatTest {
+
+    private static final int TILE_SIZE = 48;
+
+    @Test
+    void longestNamesRoundTrip() throws IOException {
+        String longest = "L".repeat(LevelFormat.MAX_STRING_BYTES);
+
+        DataStorage read = LevelFormat.decode(LevelFormat.encode(level(longest, longest), TILE_SIZE));
+
+        assertEquals(longest, read.level_name);
+        assertEquals(longest, read.names[1]);
+        assertEquals(TILE_SIZE, read.worldX[1]);
+    }
+
+    @Test
+    void longerNamesAreNotSaved() {
+        String longer = "L".repeat(LevelFormat.MAX_STRING_BYTES + 1);
+
+        assertThrows(IOException.class, () -> LevelFormat.encode(level(longer, "ROCK"), TILE_SIZE));
+        assertThrows(IOException.class, () -> LevelFormat.encode(level("Level", longer), TILE_SIZE));
+
+        // Counted in UTF-8 bytes, not characters
+        String wide = "é".repeat(LevelFormat.MAX_STRING_BYTES / 2 + 1);
+        assertThrows(IOException.class, () -> LevelFormat.encode(level(wide, "ROCK"), TILE_SIZE));
+    }
+
+    /**
+     * LEVEL
+     * @return Level with a ROCK and an entity of the given name beside it
+     */
+    private static DataStorage level(String levelName, String entityName) {
+        DataStorage ds = new DataStorage();
+        ds.level_name = levelName;
+        ds.file_date = "01/01/2026";
+        ds.max_col = 4;
+        ds.max_row = 4;
+        ds.names = new String[] { "ROCK", entityName };
+        ds.worldX = new int[] { 0, TILE_SIZE };
+        ds.worldY = new int[] { 0, 0 };
+        ds.belt_ori = new int[] { -1, -1 };
+        ds.wall_ori = new int[] { -1, -1 };
+        ds.wall_side = new int[] { -1, -1 };
+        ds.water_ori = new int[] { -1, -1 };
+        ds.water_side = new int[] { -1, -1 };
+        return ds;
+    }
+}
@@ -0,0 +1,122 @@
+package data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Manifests of hundreds of levels in a bucket held in memory
+ */
+class LevelManifestTest {
+
+    private static final String USER = "user";
+    private static final int LEVELS = 400;
+
+    @Test
+    void rebuildThenListInOneRead() throws IOException {
+        MemoryBucket bucket = new MemoryBucket();
+        for (int i = 0; i < LEVELS; i++) {
+            bucket.write("levels/" + USER + "/" + i + ".dat", LevelFormat.encode(level("Level " + i, 50), 48));
+        }
+
+        // Levels saved before manifests existed, read once each to build one
+        assertNull(LevelManifest.load(bucket, USER));
+        bucket.resetStatistics();
+
+        LevelManifest manifest = LevelManifest.rebuild(bucket, USER, (message, fraction) -> { });
+        assertEquals(LEVELS, manifest.size());
+        assertEquals(LEVELS, bucket.reads.get());
+        assertEquals(50, manifest.getEntries().get("7.dat").entityCount());
+
+        // Every later listing is a single read of the manifest
+        bucket.resetStatistics();
+        Map<String, String> levels = LevelManifest.load(bucket, USER).getLevels(USER);
+
+        assertEquals(1, bucket.reads.get());
+        assertEquals(LEVELS, levels.size());
+        assertTrue(levels.containsValue("Level 123 [01/01/2026]"));
+    }
+
+    @Test
+    void concurrentSavesAndDeletesKeepEveryEntry() throws Exception {
+        MemoryBucket bucket = new MemoryBucket();
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+
+        List<Future<?>> saves = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            saves.add(threads.submit(() -> {
+                for (int i = 0; i < LEVELS / 8; i++) {
+                    String fileName = thread + "_" + i + ".dat";
+                    LevelManifest.Entry entry = LevelManifest.createEntry(level(fileName, 1), new byte[] { 1 });
+
+                    LevelManifest.update(bucket, USER, manifest -> manifest.put(fileName, entry));
+
+                    // Every fifth level deleted right after it is saved
+                    if (i % 5 == 0) LevelManifest.update(bucket, USER, manifest -> manifest.remove(fileName));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> save : saves) save.get();
+        threads.shutdown();
+
+        LevelManifest manifest = LevelManifest.load(bucket, USER);
+        assertEquals(LEVELS - LEVELS / 5, manifest.size());
+        assertTrue(manifest.contains("3_1.dat"));
+        assertFalse(manifest.contains("3_0.dat"));
+    }
+
+    @Test
+    void decodeRoundTrip() throws IOException {
+        LevelManifest manifest = new LevelManifest();
+        for (int i = 0; i < LEVELS; i++) {
+            manifest.put(i + ".dat", new LevelManifest.Entry("Level " + i, "01/01/2026", 100 + i, i, i * 31L, i * 1000L));
+        }
+
+        assertEquals(manifest.getEntries(), LevelManifest.decode(manifest.encode()).getEntries());
+    }
+
+    @Test
+    void decodeRejectsCountPastMaxLevels() throws IOException {
+        byte[] data = new LevelManifest().encode();
+
+        // Count follows the magic number and version
+        ByteBuffer.wrap(data).putInt(8, LevelManifest.MAX_LEVELS + 1);
+
+        assertThrows(IOException.class, () -> LevelManifest.decode(data));
+    }
+
+    private static DataStorage level(String name, int entities) {
+        DataStorage ds = new DataStorage();
+        ds.level_name = name;
+        ds.file_date = "01/01/2026";
+        ds.names = new String[entities];
+        ds.worldX = new int[entities];
+        ds.worldY = new int[entities];
+        ds.belt_ori = new int[entities];
+        ds.wall_ori = new int[entities];
+        ds.wall_side = new int[entities];
+        ds.water_ori = new int[entities];
+        ds.water_side = new int[entities];
+
+        Arrays.fill(ds.names, "ROCK");
+        Arrays.fill(ds.belt_ori, -1);
+        Arrays.fill(ds.wall_ori, -1);
+        Arrays.fill(ds.wall_side, -1);
+        Arrays.fill(ds.water_ori, -1);
+        Arrays.fill(ds.water_side, -1);
+
+        for (int i = 0; i < entities; i++) {
+            ds.worldX[i] = (i % 30) * 48;
+            ds.worldY[i] = (i / 30) * 48;
+        }
+
+        return ds;
+    }
+}
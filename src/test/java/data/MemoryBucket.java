@@ -0,0 +1,129 @@
+package data;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Level bucket held in memory, standing in for Firebase in tests
+ * Every write gets a new generation like a real bucket, and each call can be
+ *  made to take a while to stand in for a slow network
+ */
+class MemoryBucket implements LevelBucket {
+
+    private final Map<String, Stored> files = new ConcurrentHashMap<>();
+    private final AtomicLong generations = new AtomicLong();
+
+    /* STATISTICS */
+    final AtomicInteger reads = new AtomicInteger();
+    final AtomicLong bytesRead = new AtomicLong();
+
+    // Time every call takes in milliseconds
+    private volatile long latency = 0;
+
+    void setLatency(long latency) {
+        this.latency = latency;
+    }
+
+    void resetStatistics() {
+        reads.set(0);
+        bytesRead.set(0);
+    }
+
+    @Override
+    public Stored read(String path) {
+        delay();
+
+        Stored stored = files.get(path);
+        if (stored != null) {
+            reads.incrementAndGet();
+            bytesRead.addAndGet(stored.data().length);
+        }
+        return stored;
+    }
+
+    @Override
+    public byte[] readGeneration(String path, long generation) {
+        Stored stored = read(path);
+        return stored != null && stored.generation() == generation ? stored.data() : null;
+    }
+
+    @Override
+    public long write(String path, byte[] data) {
+        delay();
+
+        long generation = generations.incrementAndGet();
+        files.put(path, new Stored(data, generation));
+        return generation;
+    }
+
+    @Override
+    public long getGeneration(String path) {
+        delay();
+
+        Stored stored = files.get(path);
+        return stored == null ? 0 : stored.generation();
+    }
+
+    @Override
+    public boolean writeIfUnchanged(String path, byte[] data, long generation) {
+        delay();
+
+        synchronized (this) {
+            if (getCurrentGeneration(path) != generation) return false;
+
+            files.put(path, new Stored(data, generations.incrementAndGet()));
+            return true;
+        }
+    }
+
+    @Override
+    public boolean delete(String path) {
+        delay();
+        return files.remove(path) != null;
+    }
+
+    @Override
+    public List<Listing> list(String prefix) {
+        delay();
+
+        List<Listing> listings = new ArrayList<>();
+        files.forEach((path, stored) -> {
+            if (path.startsWith(prefix)) listings.add(new Listing(path, stored.data().length, stored.generation()));
+        });
+        return listings;
+    }
+
+    @Override
+    public FolderPage listFolders(String prefix, String pageToken, int pageSize) {
+        delay();
+
+        SortedSet<String> folders = new TreeSet<>();
+        for (String path : files.keySet()) {
+            int slash = path.indexOf('/', prefix.length());
+            if (path.startsWith(prefix) && slash != -1) folders.add(path.substring(0, slash + 1));
+        }
+
+        List<String> page = new ArrayList<>(pageToken == null ? folders : folders.tailSet(pageToken));
+        if (page.size() <= pageSize) return new FolderPage(page, null);
+
+        return new FolderPage(page.subList(0, pageSize), page.get(pageSize));
+    }
+
+    private long getCurrentGeneration(String path) {
+        Stored stored = files.get(path);
+        return stored == null ? 0 : stored.generation();
+    }
+
+    private void delay() {
+        if (latency == 0) return;
+
+        try {
+            Thread.sleep(latency);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
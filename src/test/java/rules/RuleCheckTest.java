@@ -0,0 +1,154 @@
+package rules;
+
+import application.World;
+import entity.Entity;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Plays random inputs on random rule-heavy boards twice, once with incremental rule passes
+ *  and once checking every entity each pass, and compares the boards after every input
+ */
+class RuleCheckTest {
+
+    /* BOARD */
+    private static final int TILE_SIZE = 48;
+    private static final int MAX_COL = 14;
+    private static final int MAX_ROW = 10;
+
+    /* RUN */
+    private static final int BOARDS = 500;
+    private static final int INPUTS = 60;
+
+    // Some rule mixes multiply entities every turn, the board is dropped past this many
+    private static final int MAX_ENTITIES = 1000;
+
+    private static final String[] NOUNS = { "BABA", "KEKE", "ROCK", "BOX", "FLAG", "SKULL", "KEY", "DOOR" };
+    private static final String[] PROPERTIES = {
+            "YOU", "PUSH", "STOP", "WIN", "DEFEAT", "SINK", "FLOAT", "HOT", "MELT", "OPEN", "SHUT", "WEAK", "SHIFT", "SWAP" };
+    private static final String[] PREPOSITIONS = { "ON", "NEAR", "NEXT", "FACING", "SEEING" };
+
+    private static final World.Direction[] DIRECTIONS = World.Direction.values();
+
+    /**
+     * INCREMENTAL MATCHES FULL
+     * Fails at the first board that differs, naming the seed and input
+     */
+    @Test
+    void incrementalMatchesFull() {
+        for (int seed = 0; seed < BOARDS; seed++) {
+            boolean instantTurns = seed % 2 == 0;
+
+            World incremental = build(seed, instantTurns);
+            World full = build(seed, instantTurns);
+            full.setIncrementalRules(false);
+
+            Random random = new Random(seed * 31L);
+
+            for (int turn = 0; turn < INPUTS; turn++) {
+                int input = random.nextInt(10);
+                World.Direction direction = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+
+                for (World world : List.of(incremental, full)) {
+                    switch (input) {
+                        case 0, 1 -> world.undo();
+                        case 2 -> world.redo();
+                        default -> world.move(direction);
+                    }
+                    world.settle();
+                }
+
+                assertEquals(describe(full), describe(incremental),
+                        "board " + seed + " input " + turn + (instantTurns ? "" : " (frames)"));
+
+                if (full.entities.size() > MAX_ENTITIES) break;
+            }
+        }
+    }
+
+    /**
+     * BUILD
+     * Lays out BABA IS YOU, a few random rules (conditional, HAS and transforming ones
+     *  included) and random entities, the same for the same seed
+     */
+    private static World build(long seed, boolean instantTurns) {
+        World world = new World(TILE_SIZE, MAX_COL, MAX_ROW);
+        world.setInstantTurns(instantTurns);
+
+        Random random = new Random(seed);
+
+        place(world, List.of("WORD_BABA", "WORD_IS", "WORD_YOU"), 0, 0);
+        place(world, List.of("BABA"), 5, 5);
+
+        for (int i = 0; i < 4; i++) {
+            List<String> rule = new ArrayList<>();
+
+            rule.add("WORD_" + (random.nextInt(8) == 0 ? "TEXT" : pick(random, NOUNS)));
+            if (random.nextBoolean()) {
+                rule.add("WORD_" + pick(random, PREPOSITIONS));
+                rule.add("WORD_" + pick(random, NOUNS));
+            }
+            rule.add(random.nextInt(6) == 0 ? "WORD_HAS" : "WORD_IS");
+            rule.add("WORD_" + (random.nextInt(4) == 0 ? pick(random, NOUNS) : pick(random, PROPERTIES)));
+
+            place(world, rule, random.nextInt(MAX_COL - rule.size() + 1), 1 + 2 * i);
+        }
+
+        for (int i = 0; i < 40; i++) {
+            String name = switch (random.nextInt(4)) {
+                case 0 -> "WORD_" + pick(random, PROPERTIES);
+                case 1 -> "WORD_" + (random.nextBoolean() ? pick(random, NOUNS) : pick(random, PREPOSITIONS));
+                default -> pick(random, NOUNS);
+            };
+            place(world, List.of(name), random.nextInt(MAX_COL), 1 + random.nextInt(MAX_ROW - 1));
+        }
+
+        world.setupLevel();
+        return world;
+    }
+
+    private static void place(World world, List<String> names, int col, int row) {
+        for (String name : names) {
+            Entity e = world.eGenerator.getEntity(name, -1, -1);
+            if (e == null) continue;
+
+            e.setPoint(new Point(col++ * TILE_SIZE, row * TILE_SIZE));
+            world.addEntity(e);
+        }
+    }
+
+    private static String pick(Random random, String[] names) {
+        return names[random.nextInt(names.length)];
+    }
+
+    /**
+     * DESCRIBE
+     * @return Every entity with its tile, direction, rule states and held entities, and the win flag
+     */
+    private static String describe(World world) {
+        StringBuilder sb = new StringBuilder();
+
+        for (Entity e : world.entities) {
+            sb.append(e.getName()).append('@').append(e.getPoint().x / TILE_SIZE).append(',').append(e.getPoint().y / TILE_SIZE)
+                    .append(' ').append(e.getDirection());
+
+            for (Properties p : Properties.values()) {
+                if (e.has(p)) sb.append(' ').append(p);
+            }
+            if (e.getTransformationLock()) sb.append(" LOCKED");
+            if (!e.getAlive()) sb.append(" DEAD");
+            for (Entity held : e.getHeldEntities()) {
+                sb.append(" +").append(held.getName());
+            }
+
+            sb.append("; ");
+        }
+
+        return sb.append("win=").append(world.win).toString();
+    }
+}
@@ -0,0 +1,81 @@
+package rules;
+
+import application.World;
+import entity.Entity;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Moves random words around boards crowded with stacked words, rescanning only the
+ *  lines that changed, and compares the rules found with a full scan of the same
+ *  entities rebuilt in entity list order, where the top word of a stack is the last one
+ */
+class ScanForRulesTest {
+
+    /* BOARD */
+    private static final int TILE_SIZE = 48;
+    private static final int MAX_COL = 12;
+    private static final int MAX_ROW = 10;
+    private static final int WORDS = 90;
+
+    /* RUN */
+    private static final int BOARDS = 200;
+    private static final int MOVES = 30;
+
+    private static final String[] WORD_NAMES = {
+            "WORD_BABA", "WORD_KEKE", "WORD_ROCK", "WORD_TEXT", "WORD_IS", "WORD_IS", "WORD_IS", "WORD_HAS",
+            "WORD_ON", "WORD_NEAR", "WORD_FACING", "WORD_YOU", "WORD_PUSH", "WORD_STOP", "WORD_WIN" };
+
+    @Test
+    void incrementalScanMatchesFullScan() {
+        for (int seed = 0; seed < BOARDS; seed++) {
+            Random random = new Random(seed);
+
+            World world = new World(TILE_SIZE, MAX_COL, MAX_ROW);
+            for (int i = 0; i < WORDS; i++) {
+                place(world, WORD_NAMES[random.nextInt(WORD_NAMES.length)], random.nextInt(MAX_COL), random.nextInt(MAX_ROW));
+            }
+
+            LogicHandler lHandler = new LogicHandler(world);
+            lHandler.scanForRules();
+
+            for (int move = 0; move < MOVES; move++) {
+
+                // A few words pushed onto other tiles, often onto other words
+                for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                    Entity e = world.entities.get(random.nextInt(world.entities.size()));
+                    e.setPoint(random.nextInt(MAX_COL) * TILE_SIZE, random.nextInt(MAX_ROW) * TILE_SIZE);
+                }
+                lHandler.scanForRules();
+
+                assertEquals(fullScan(world), lHandler.getActiveRules(), "board " + seed + " move " + move);
+            }
+        }
+    }
+
+    /**
+     * FULL SCAN
+     * @return Rules of a fresh world holding the same words, added in entity list order
+     */
+    private static Set<Rule> fullScan(World world) {
+        World fresh = new World(TILE_SIZE, MAX_COL, MAX_ROW);
+        for (Entity e : world.entities) {
+            place(fresh, e.getName(), e.getPoint().x / TILE_SIZE, e.getPoint().y / TILE_SIZE);
+        }
+
+        LogicHandler lHandler = new LogicHandler(fresh);
+        lHandler.scanForRules();
+
+        return new HashSet<>(lHandler.getActiveRules());
+    }
+
+    private static void place(World world, String name, int col, int row) {
+        Entity e = world.eGenerator.getEntity(name, -1, -1);
+
+        e.setPoint(col * TILE_SIZE, row * TILE_SIZE);
+        world.addEntity(e);
+    }
+}
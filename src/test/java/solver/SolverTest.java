@@ -0,0 +1,113 @@
+package solver;
+
+import application.World;
+import data.DataStorage;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Solves of small levels drawn as text, walled in with STOP rocks
+ */
+class SolverTest {
+
+    private static final int TILE_SIZE = 48;
+
+    // Letters of the drawings, lower case for objects and upper case for words
+    private static final Map<Character, String> LEGEND = Map.ofEntries(
+            Map.entry('b', "BABA"), Map.entry('r', "ROCK"), Map.entry('o', "BOX"), Map.entry('x', "SKULL"),
+            Map.entry('B', "WORD_BABA"), Map.entry('R', "WORD_ROCK"), Map.entry('O', "WORD_BOX"),
+            Map.entry('X', "WORD_SKULL"), Map.entry('F', "WORD_FLAG"), Map.entry('=', "WORD_IS"),
+            Map.entry('H', "WORD_HAS"), Map.entry('Y', "WORD_YOU"), Map.entry('W', "WORD_WIN"),
+            Map.entry('P', "WORD_PUSH"), Map.entry('S', "WORD_STOP"), Map.entry('N', "WORD_SINK"));
+
+    @Test
+    void heldEntitiesOutliveTheirRule() throws InterruptedException {
+
+        // BOX HAS FLAG reads down the middle, BABA breaks it on the first push but the BOX keeps
+        //  its FLAG, which the SKULL sets free for BABA to walk onto
+        DataStorage level = level(
+                "rrrrrrrrrrrrr",
+                "rB=Y.R=S.O=Pr",
+                "rX=N.F=W....r",
+                "rrrrrrrrrrrrr",
+                "rrrOrrrrrrrrr",
+                "rb.H..o.x...r",
+                "rrrFrrrrrrrrr",
+                "rrrrrrrrrrrrr");
+
+        for (Solver.Search search : Solver.Search.values()) {
+            Solver.Result result = new Solver(level, search, 1, Solver.DEFAULT_MAX_STATES).solve(null);
+
+            assertTrue(result.isSolved(), search + ": " + result);
+            assertTrue(result.verified(), search + ": " + result);
+            assertEquals(Collections.nCopies(7, World.Direction.RIGHT), result.moves(), search + ": " + result);
+        }
+    }
+
+    @Test
+    void levelWithoutFlagHasNoSolution() throws InterruptedException {
+        DataStorage level = level(
+                "rrrrrrrrr",
+                "rB=Y.F=Wr",
+                "rR=S....r",
+                "rrrrrrrrr",
+                "rb..r...r",
+                "rrrrrrrrr");
+
+        // No FLAG at all, every board is searched
+        Solver.Result result = new Solver(level, Solver.Search.BFS, 1, Solver.DEFAULT_MAX_STATES).solve(null);
+
+        assertFalse(result.isSolved(), result.toString());
+        assertTrue(result.complete(), result.toString());
+    }
+
+    /**
+     * LEVEL
+     * @param rows Drawing of the level, one letter per tile
+     * @return Level data with the drawn entities
+     */
+    private static DataStorage level(String... rows) {
+        List<String> names = new ArrayList<>();
+        List<int[]> points = new ArrayList<>();
+
+        for (int row = 0; row < rows.length; row++) {
+            for (int col = 0; col < rows[row].length(); col++) {
+                String entity = LEGEND.get(rows[row].charAt(col));
+                if (entity == null) continue;
+
+                names.add(entity);
+                points.add(new int[] { col * TILE_SIZE, row * TILE_SIZE });
+            }
+        }
+
+        DataStorage ds = new DataStorage();
+        ds.level_name = "Solver";
+        ds.file_date = "01/01/2026";
+        ds.max_col = rows[0].length();
+        ds.max_row = rows.length;
+        ds.names = names.toArray(String[]::new);
+        ds.worldX = new int[names.size()];
+        ds.worldY = new int[names.size()];
+        ds.belt_ori = new int[names.size()];
+        ds.wall_ori = new int[names.size()];
+        ds.wall_side = new int[names.size()];
+        ds.water_ori = new int[names.size()];
+        ds.water_side = new int[names.size()];
+
+        Arrays.fill(ds.belt_ori, -1);
+        Arrays.fill(ds.wall_ori, -1);
+        Arrays.fill(ds.wall_side, -1);
+        Arrays.fill(ds.water_ori, -1);
+        Arrays.fill(ds.water_side, -1);
+
+        for (int i = 0; i < names.size(); i++) {
+            ds.worldX[i] = points.get(i)[0];
+            ds.worldY[i] = points.get(i)[1];
+        }
+
+        return ds;
+    }
+}
@@ -0,0 +1,16 @@
+package state;
+
+/**
+ * Plays saved replays again as a regression check, run with ./gradlew replays
+ * Exits with status 1 if any replay does not end where it was recorded
+ */
+class ReplayCheck {
+
+    /**
+     * MAIN
+     * @param args Level and replay files or folders holding them, the replay and cache folders if none
+     */
+    public static void main(String[] args) {
+        if (ReplayPlayer.playAll(args) > 0) System.exit(1);
+    }
+}
@@ -0,0 +1,237 @@
+package state;
+
+import application.World;
+import data.DataStorage;
+import data.LevelFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replays recorded in a game world that saves its timeline, played again by ReplayPlayer
+ *  without a timeline folder
+ */
+class ReplayTest {
+
+    /* BOARD */
+    private static final int TILE_SIZE = 48;
+    private static final int MAX_COL = 12;
+    private static final int MAX_ROW = 9;
+
+    @TempDir
+    File dir;
+
+    @Test
+    void redoIntoAnEarlierSessionPlaysBack() throws IOException {
+        File timelines = new File(dir, "timeline");
+        DataStorage level = level();
+
+        // Earlier session: three moves right, the last two undone
+        World earlier = game(level, timelines);
+        step(earlier, World.Direction.RIGHT, null);
+        step(earlier, World.Direction.RIGHT, null);
+        step(earlier, World.Direction.RIGHT, null);
+        earlier.undo();
+        earlier.undo();
+
+        // This session opens with those turns, redo at the start follows them
+        World world = game(level, timelines);
+        ReplayRecorder recorder = new ReplayRecorder(new File(dir, "replays"));
+        recorder.start(world);
+
+        long start = Replay.hash(world);
+        redo(world, recorder);
+        assertNotEquals(start, Replay.hash(world));
+
+        redo(world, recorder);
+        long played = Replay.hash(world);
+
+        // Undo then redo comes back to the same board
+        undo(world, recorder);
+        redo(world, recorder);
+        assertEquals(played, Replay.hash(world));
+
+        step(world, World.Direction.DOWN, recorder);
+        undo(world, recorder);
+        undo(world, recorder);
+        redo(world, recorder);
+
+        File file = recorder.save(recorder.stop(world));
+        Replay replay = Replay.decode(Files.readAllBytes(file.toPath()), file.getParentFile());
+        assertEquals(8, replay.inputs().length);
+        assertTrue(replay.timeline().length > 0);
+
+        assertEquals(replay.stateHash(), ReplayPlayer.play(ReplayPlayer.load(level, replay), replay));
+    }
+
+    @Test
+    void timelineIsSavedOnceForEveryReplay() throws IOException {
+        File timelines = new File(dir, "timeline");
+        File replays = new File(dir, "replays");
+        DataStorage level = level();
+
+        // A long earlier session
+        World earlier = game(level, timelines);
+        for (int i = 0; i < 40; i++) {
+            step(earlier, i % 2 == 0 ? World.Direction.RIGHT : World.Direction.LEFT, null);
+        }
+
+        // Three plays opened with those turns, each undoing one of them
+        ReplayRecorder recorder = new ReplayRecorder(replays);
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            World world = game(level, timelines);
+            recorder.start(world);
+            undo(world, recorder);
+            files.add(recorder.save(recorder.stop(world)));
+        }
+
+        File[] stored = replays.listFiles((folder, name) -> name.endsWith(Replay.TIMELINE_EXTENSION));
+        assertEquals(1, stored.length);
+
+        for (File file : files) {
+            assertTrue(file.length() < 64, file.length() + " bytes");
+
+            Replay replay = Replay.decode(Files.readAllBytes(file.toPath()), replays);
+            assertArrayEquals(Files.readAllBytes(stored[0].toPath()), replay.timeline());
+            assertEquals(replay.stateHash(), ReplayPlayer.play(ReplayPlayer.load(level, replay), replay));
+        }
+    }
+
+    @Test
+    void folderIsTrimmedOldestFirst() throws IOException {
+        File replays = new File(dir, "replays");
+        ReplayRecorder recorder = new ReplayRecorder(replays, 3000);
+
+        byte[] oldTimeline = new byte[2000];
+        byte[] newTimeline = new byte[2000];
+        Arrays.fill(newTimeline, (byte) 1);
+
+        File oldReplay = recorder.save(new Replay(1, true, new byte[] { 0 }, 2, oldTimeline));
+        File oldStored = Replay.timelineFile(replays, Replay.timelineHash(oldTimeline));
+        long now = System.currentTimeMillis();
+        assertTrue(oldReplay.setLastModified(now - 20_000));
+        assertTrue(oldStored.setLastModified(now - 20_000));
+
+        // No room for both timelines, the old one goes with the replay using it
+        File newReplay = recorder.save(new Replay(1, true, new byte[] { 1 }, 3, newTimeline));
+
+        assertFalse(oldReplay.exists());
+        assertFalse(oldStored.exists());
+        assertTrue(newReplay.exists());
+        assertNotEquals(oldReplay, newReplay);
+        assertArrayEquals(newTimeline, Replay.decode(Files.readAllBytes(newReplay.toPath()), replays).timeline());
+    }
+
+    @Test
+    void encodeRoundTrip() throws IOException {
+        byte[] inputs = { 0, 0, 0, 1, Replay.UNDO, Replay.REDO, Replay.REDO, 3 };
+        byte[] timeline = { 1, 2, 3 };
+        Replay replay = new Replay(42, true, inputs, -7, timeline);
+        Files.write(Replay.timelineFile(dir, Replay.timelineHash(timeline)).toPath(), timeline);
+
+        Replay decoded = Replay.decode(replay.encode(), dir);
+
+        assertEquals(42, decoded.levelHash());
+        assertTrue(decoded.instantTurns());
+        assertArrayEquals(inputs, decoded.inputs());
+        assertEquals(-7, decoded.stateHash());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, decoded.timeline());
+    }
+
+    @Test
+    void boardSizeComesFromTheLevel() throws IOException {
+        DataStorage level = LevelFormat.decode(LevelFormat.encode(level(), TILE_SIZE));
+        World world = ReplayPlayer.load(level, true);
+
+        assertEquals(TILE_SIZE, world.tileSize);
+        assertEquals(MAX_COL, world.maxWorldCol);
+        assertEquals(MAX_ROW, world.maxWorldRow);
+
+        // BABA walks until it stops at the right edge of this board
+        for (int i = 0; i < 20; i++) {
+            world.step(World.Direction.RIGHT);
+        }
+        assertEquals(MAX_COL - 1, world.entities.stream()
+                .filter(e -> e.getName().equals("BABA"))
+                .mapToInt(e -> e.getPoint().x / TILE_SIZE)
+                .max().orElse(-1));
+    }
+
+    /**
+     * GAME
+     * Builds the level as GamePanel does, saving its timeline to the folder
+     */
+    private static World game(DataStorage level, File timelines) {
+        World world = new World(level.tile_size, level.max_col, level.max_row);
+        world.setInstantTurns(true);
+        world.setTimelineDir(timelines);
+
+        world.loadLevel(level);
+        world.setupLevel();
+
+        return world;
+    }
+
+    /**
+     * STEP / UNDO / REDO
+     * Plays an input the way GamePanel does, letting it settle, and records it
+     */
+    private static void step(World world, World.Direction direction, ReplayRecorder recorder) {
+        boolean moved = world.move(direction);
+        world.settle();
+        if (recorder != null) recorder.recordMove(direction, moved);
+    }
+    private static void undo(World world, ReplayRecorder recorder) {
+        world.undo();
+        world.settle();
+        recorder.recordUndo();
+    }
+    private static void redo(World world, ReplayRecorder recorder) {
+        world.redo();
+        world.settle();
+        recorder.recordRedo();
+    }
+
+    /**
+     * LEVEL
+     * @return BABA IS YOU with BABA and a rock, on a board smaller than the game's
+     */
+    private static DataStorage level() {
+        String[] names = { "WORD_BABA", "WORD_IS", "WORD_YOU", "BABA", "ROCK" };
+        int[][] tiles = { { 1, 1 }, { 2, 1 }, { 3, 1 }, { 2, 4 }, { 7, 4 } };
+
+        DataStorage ds = new DataStorage();
+        ds.level_name = "Replay";
+        ds.file_date = "01/01/2026";
+        ds.max_col = MAX_COL;
+        ds.max_row = MAX_ROW;
+        ds.names = names;
+        ds.worldX = new int[names.length];
+        ds.worldY = new int[names.length];
+        ds.belt_ori = new int[names.length];
+        ds.wall_ori = new int[names.length];
+        ds.wall_side = new int[names.length];
+        ds.water_ori = new int[names.length];
+        ds.water_side = new int[names.length];
+
+        Arrays.fill(ds.belt_ori, -1);
+        Arrays.fill(ds.wall_ori, -1);
+        Arrays.fill(ds.wall_side, -1);
+        Arrays.fill(ds.water_ori, -1);
+        Arrays.fill(ds.water_side, -1);
+
+        for (int i = 0; i < names.length; i++) {
+            ds.worldX[i] = tiles[i][0] * TILE_SIZE;
+            ds.worldY[i] = tiles[i][1] * TILE_SIZE;
+        }
+
+        return ds;
+    }
+}
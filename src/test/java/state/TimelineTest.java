@@ -0,0 +1,288 @@
+package state;
+
+import application.World;
+import entity.Entity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Undo timelines saved to a folder, played with branches, sought through and opened
+ *  again by a new world with the same starting board
+ */
+class TimelineTest {
+
+    /* BOARD */
+    private static final int TILE_SIZE = 48;
+    private static final int MAX_COL = 12;
+    private static final int MAX_ROW = 10;
+
+    @TempDir
+    File dir;
+
+    @Test
+    void branchesAndSeekSurviveReopening() {
+        World world = build(dir);
+
+        // Three moves right, back two, then a branch of two moves down, the last one undone
+        play(world, World.Direction.RIGHT, 3);
+        world.undo();
+        world.undo();
+        play(world, World.Direction.DOWN, 2);
+        world.undo();
+
+        // Start, both branches and the board before each undo
+        assertEquals(6, world.getTurnCount());
+
+        List<List<String>> boards = new ArrayList<>();
+        Set<String> babas = new HashSet<>();
+        for (int turn = 0; turn < world.getTurnCount(); turn++) {
+            world.seek(turn);
+            boards.add(board(world));
+            babas.add(baba(world));
+        }
+        assertEquals(Set.of("2,4", "3,4", "4,4", "5,4", "3,5", "3,6"), babas);
+
+        // Seeking back to a turn gives the same board
+        world.seek(3);
+        world.seek(2);
+        assertEquals(boards.get(2), board(world));
+
+        // Redo from the start follows the branch visited last
+        world.seek(5);
+        world.seek(0);
+        world.redo();
+        world.redo();
+        world.redo();
+        assertEquals("3,6", baba(world));
+
+        // A new session on the same board reads every turn and branch back
+        World reopened = build(dir);
+        assertEquals(world.getTurnCount(), reopened.getTurnCount());
+
+        for (int turn = 0; turn < reopened.getTurnCount(); turn++) {
+            reopened.seek(turn);
+            assertEquals(boards.get(turn), board(reopened), "reopened turn " + turn);
+        }
+
+        // A move played after reopening is saved on the branch it is played from
+        reopened.seek(3);
+        play(reopened, World.Direction.UP, 1);
+        reopened.undo();
+        assertEquals(7, build(dir).getTurnCount());
+    }
+
+    @Test
+    void deletedLevelLosesItsTimeline() {
+        World world = build(dir);
+        play(world, World.Direction.RIGHT, 3);
+        assertEquals(1, timelines(dir).length);
+
+        // Deleted by a world of its own, as when the level is deleted from the menu
+        World deleting = new World(TILE_SIZE, MAX_COL, MAX_ROW);
+        deleting.setTimelineDir(dir);
+        addBoard(deleting);
+        deleting.deleteTimeline();
+
+        assertEquals(0, timelines(dir).length);
+        assertEquals(1, build(dir).getTurnCount());
+    }
+
+    @Test
+    void levelDeletedByFileNameLosesItsTimeline() {
+        World world = build(dir);
+        play(world, World.Direction.RIGHT, 3);
+
+        // Linked when the level is loaded, by a world of its own
+        World loading = new World(TILE_SIZE, MAX_COL, MAX_ROW);
+        loading.setTimelineDir(dir);
+        addBoard(loading);
+        loading.linkTimeline("level.dat");
+
+        // Deleted with no board at all, as the level is no longer read
+        World deleting = new World(TILE_SIZE, MAX_COL, MAX_ROW);
+        deleting.setTimelineDir(dir);
+        deleting.deleteTimeline("other.dat");
+        assertEquals(1, timelines(dir).length);
+
+        deleting.deleteTimeline("level.dat");
+        assertEquals(0, timelines(dir).length);
+        assertEquals(0, dir.listFiles().length);
+        assertEquals(1, build(dir).getTurnCount());
+    }
+
+    @Test
+    void memoryStaysUnderItsCap() {
+        long cap = 16 << 10;
+
+        World world = build(dir);
+        world.setMaxUndoMemory(cap);
+
+        // Back and forth, undoing into a branch down and up every tenth move
+        for (int move = 0; move < 2000; move++) {
+            play(world, move % 2 == 0 ? World.Direction.RIGHT : World.Direction.LEFT, 1);
+
+            if (move % 10 == 9) {
+                world.undo();
+                world.undo();
+                play(world, World.Direction.DOWN, 1);
+                play(world, World.Direction.UP, 1);
+            }
+            assertTrue(world.getUndoMemory() <= cap, world.getUndoMemory() + " bytes at move " + move);
+        }
+        assertTrue(world.getTurnCount() < 2000, world.getTurnCount() + " turns");
+
+        // The newest moves still undo and redo back to the board
+        List<String> played = board(world);
+        world.undo();
+        assertNotEquals(played, board(world));
+
+        for (int i = 1; i < 20; i++) world.undo();
+        for (int i = 0; i < 20; i++) world.redo();
+        assertEquals(played, board(world));
+
+        // The file kept every turn, played from the same turns
+        World reopened = build(dir);
+        assertTrue(reopened.getTurnCount() > world.getTurnCount());
+
+        world.seek(world.getTurnCount() - 1);
+        reopened.seek(reopened.getTurnCount() - 1);
+        assertEquals(board(world), board(reopened));
+    }
+
+    @Test
+    void fileStopsGrowingAtItsCap() throws IOException {
+        long cap = 4096;
+
+        TimelineFile file = start(cap, Long.MAX_VALUE);
+        file.open(dir);
+        for (int turn = 0; turn < 1000; turn++) {
+            file.writeTurn(turn, changes(file, turn + 1), Snapshot.FIELDS);
+            file.flush();
+        }
+        file.close();
+
+        File saved = timelines(dir)[0];
+        assertTrue(saved.length() <= cap, saved.length() + " bytes");
+
+        // The turns that fit are read back, later ones were left in memory only
+        int stored = start(cap, Long.MAX_VALUE).open(dir).size();
+        assertTrue(stored > 0 && stored < 1000, stored + " turns");
+    }
+
+    @Test
+    void timelinesOpenedLongestAgoAreTrimmed() throws IOException {
+        File old = new File(dir, "old" + TimelineFile.EXTENSION);
+        File recent = new File(dir, "recent" + TimelineFile.EXTENSION);
+        File other = new File(dir, "other.dat");
+
+        for (File f : new File[] { old, recent, other }) {
+            Files.write(f.toPath(), new byte[1000]);
+        }
+        long now = System.currentTimeMillis();
+        assertTrue(old.setLastModified(now - 20_000));
+        assertTrue(recent.setLastModified(now - 10_000));
+
+        // Room for the new timeline and one more
+        TimelineFile file = start(Long.MAX_VALUE, 1500);
+        file.open(dir);
+        file.close();
+
+        assertFalse(old.exists());
+        assertTrue(recent.exists());
+        assertTrue(other.exists());
+        assertEquals(2, timelines(dir).length);
+    }
+
+    /**
+     * BUILD
+     * BABA IS YOU with BABA and a few rocks, set up for play with turns saved to the folder
+     */
+    private static World build(File dir) {
+        World world = new World(TILE_SIZE, MAX_COL, MAX_ROW);
+        world.setInstantTurns(true);
+        world.setTimelineDir(dir);
+
+        addBoard(world);
+        world.setupLevel();
+
+        return world;
+    }
+
+    private static void addBoard(World world) {
+        add(world, "WORD_BABA", 1, 1);
+        add(world, "WORD_IS", 2, 1);
+        add(world, "WORD_YOU", 3, 1);
+        add(world, "BABA", 2, 4);
+        add(world, "ROCK", 6, 4);
+        add(world, "ROCK", 3, 7);
+    }
+
+    private static void add(World world, String name, int col, int row) {
+        Entity e = world.eGenerator.getEntity(name, -1, -1);
+        e.setPoint(col * TILE_SIZE, row * TILE_SIZE);
+        world.addEntity(e);
+    }
+
+    private static void play(World world, World.Direction direction, int moves) {
+        for (int i = 0; i < moves; i++) {
+            assertTrue(world.step(direction));
+        }
+    }
+
+    /**
+     * BOARD
+     * @return Name, point and direction of each live entity, sorted
+     */
+    private static List<String> board(World world) {
+        List<String> board = new ArrayList<>();
+        for (Entity e : world.entities) {
+            if (!e.getAlive()) continue;
+            board.add(e.getName() + "@" + e.getPoint().x + "," + e.getPoint().y + " " + e.getDirection());
+        }
+        Collections.sort(board);
+        return board;
+    }
+
+    /**
+     * BABA
+     * @return Tile BABA is on
+     */
+    private static String baba(World world) {
+        for (Entity e : world.entities) {
+            if (e.getAlive() && e.getName().equals("BABA")) {
+                return e.getPoint().x / TILE_SIZE + "," + e.getPoint().y / TILE_SIZE;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * START
+     * @return Timeline file with the same one entity start each time
+     */
+    private static TimelineFile start(long maxFileBytes, long maxDirBytes) {
+        TimelineFile file = new TimelineFile(maxFileBytes, maxDirBytes);
+        file.writeTurn(-1, changes(file, 0), Snapshot.FIELDS);
+        return file;
+    }
+
+    private static int[] changes(TimelineFile file, int x) {
+        int[] changes = new int[Snapshot.FIELDS];
+        changes[Snapshot.ID] = 0;
+        changes[Snapshot.NAME] = file.nameIndex("BABA");
+        changes[Snapshot.X] = x * TILE_SIZE;
+        return changes;
+    }
+
+    private static File[] timelines(File dir) {
+        File[] files = dir.listFiles((folder, name) -> name.endsWith(TimelineFile.EXTENSION));
+        return files == null ? new File[0] : files;
+    }
+}